@@ -0,0 +1,127 @@
+package com.trilogyed.gamestorebenchmarks;
+
+import com.trilogyed.gamestorecatalog.GamestoreCatalogApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Time to load a vendor feed through POST /game/import: a real gamestore-catalog app on an ephemeral port, backed
+// by an in-memory H2 database, receiving `rows` games as one CSV or NDJSON body. Every 100th row fails validation
+// (no title), so the time includes reporting rejections. Each measurement starts from an empty game table.
+//   java -jar target/benchmarks.jar CatalogImportBenchmark
+//   java -jar target/benchmarks.jar CatalogImportBenchmark -p rows=200000 -p batchSize=1,1000
+// batchSize=1 is one INSERT round trip per row, for comparison with the batched import. H2 runs in process, so
+// network round trips to a real MySQL server make batching count for more than shown here.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class CatalogImportBenchmark {
+
+    @Param({"200000"})
+    public int rows;
+
+    @Param({"100", "1000", "5000"})
+    public int batchSize;
+
+    @Param({"csv", "ndjson"})
+    public String format;
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private String importUrl;
+    private byte[] body;
+    private String contentType;
+
+    @Setup(Level.Trial)
+    public void startCatalog() {
+        context = new SpringApplicationBuilder(GamestoreCatalogApplication.class).run(
+                //own config name so neither service's application.properties on the classpath is picked up
+                "--spring.config.name=catalog-import-benchmark",
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:catalog-import;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--spring.jpa.show-sql=false",
+                "--spring.autoconfigure.exclude=" + R2dbcAutoConfiguration.class.getName(),
+                "--spring.cloud.discovery.enabled=false",
+                "--eureka.client.enabled=false",
+                "--gamestore.invoicing.cache-invalidation-urls=",
+                "--gamestore.catalog.import.batch-size=" + batchSize,
+                "--logging.level.root=WARN");
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        importUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() +
+                "/game/import";
+        body = "csv".equals(format) ? csv() : ndjson();
+        contentType = "csv".equals(format) ? "text/csv" : "application/x-ndjson";
+    }
+
+    @TearDown(Level.Trial)
+    public void stopCatalog() {
+        context.close();
+    }
+
+    @Setup(Level.Iteration)
+    public void emptyGameTable() {
+        jdbcTemplate.update("delete from game");
+    }
+
+    private String title(int n) {
+        return n % 100 == 99 ? "" : "Game " + n;
+    }
+
+    private byte[] csv() {
+        StringBuilder csv = new StringBuilder("title,esrbRating,description,price,studio,quantity\n");
+        for (int n = 0; n < rows; n++) {
+            csv.append(title(n)).append(",T,vendor feed game,19.99,Studio ").append(n % 1000).append(",10\n");
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] ndjson() {
+        StringBuilder ndjson = new StringBuilder();
+        for (int n = 0; n < rows; n++) {
+            ndjson.append("{\"title\":\"").append(title(n)).append("\",\"esrbRating\":\"T\",")
+                    .append("\"description\":\"vendor feed game\",\"price\":19.99,\"studio\":\"Studio ")
+                    .append(n % 1000).append("\",\"quantity\":10}\n");
+        }
+        return ndjson.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Returns the response body, the import summary.
+    @Benchmark
+    public String importGames() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(importUrl).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(body.length);
+        connection.setRequestProperty("Content-Type", contentType);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        int status = connection.getResponseCode();
+        if (status != 200) {
+            throw new IllegalStateException("POST /game/import returned " + status);
+        }
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        try (InputStream in = connection.getInputStream()) {
+            in.transferTo(response);
+        }
+        return response.toString(StandardCharsets.UTF_8);
+    }
+}
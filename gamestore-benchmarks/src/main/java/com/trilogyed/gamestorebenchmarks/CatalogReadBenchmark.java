@@ -0,0 +1,238 @@
+package com.trilogyed.gamestorebenchmarks;
+
+import com.trilogyed.gamestorecatalog.GamestoreCatalogApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// End-to-end latency of the catalog read endpoints: a real gamestore-catalog app on an ephemeral port, backed by
+// an in-memory H2 database whose schema Hibernate generates from the entities (indexes included), called over
+// HTTP. SampleTime mode reports p50/p90/p99 per endpoint and table size; -prof gc adds bytes allocated per
+// request, counting the server's threads as well as the client's.
+//   java -jar target/benchmarks.jar CatalogReadBenchmark -prof gc
+//   java -jar target/benchmarks.jar CatalogReadBenchmark -p rows=100000 -t 8     (8 concurrent clients)
+// stack=servlet is the normal Tomcat/JPA app, stack=reactive the reactive profile (WebFlux/Netty, R2DBC) on the
+// same H2 database. To compare them per core, fix the cores the fork may use, e.g.
+//   taskset -c 0-1 java -jar target/benchmarks.jar CatalogReadBenchmark -p rows=100000 -t 16 \
+//       -jvmArgsAppend -XX:ActiveProcessorCount=2
+// and read the ops/s of each stack at the same thread count (client and server share those cores).
+// secondLevelCache toggles the servlet stack's Hibernate second-level and query cache (CatalogCacheConfig); the
+// reactive stack reads through R2DBC and is not affected. Ids are uniformly random, so the cache only helps once
+// warmup has touched most rows; compare on a table that fits in the warmup:
+//   java -jar target/benchmarks.jar 'CatalogReadBenchmark.get(GameInfo|GamesByStudio)$' -p stack=servlet \
+//       -p rows=1000 -p secondLevelCache=false,true
+// Every table gets the same number of rows. Studios, manufacturers and colors each have 1000 distinct values,
+// so the by-studio/manufacturer/color lookups return rows / 1000 items. The getAll endpoints return the whole
+// table, which at 1M rows is hundreds of MB of JSON per call.
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class CatalogReadBenchmark {
+
+    private static final int DISTINCT_VALUES = 1000;
+    private static final int SEED_BATCH_SIZE = 10000;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"servlet", "reactive"})
+    public String stack;
+
+    @Param({"true"})
+    public boolean secondLevelCache;
+
+    private ConfigurableApplicationContext context;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void startCatalog() {
+        //schema and rows come from a short-lived JPA context without a web server, so both stacks read the same
+        //tables, generated from the entities with their indexes
+        try (ConfigurableApplicationContext schemaContext = new SpringApplicationBuilder(GamestoreCatalogApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args("default", "--spring.jpa.hibernate.ddl-auto=create"))) {
+            seed(schemaContext.getBean(JdbcTemplate.class));
+        }
+
+        context = new SpringApplicationBuilder(GamestoreCatalogApplication.class).run(args(
+                "reactive".equals(stack) ? "reactive" : "default",
+                "--spring.main.web-application-type=" + stack,
+                "--spring.jpa.hibernate.ddl-auto=none",
+                "--gamestore.catalog.cache.enabled=" + secondLevelCache,
+                "--server.port=0"));
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://localhost:" + port;
+    }
+
+    @TearDown(Level.Trial)
+    public void stopCatalog() {
+        context.close();
+    }
+
+    private static String[] args(String profile, String... extraArgs) {
+        List<String> args = new ArrayList<>(Arrays.asList(
+                //own config name so neither service's application.properties on the classpath is picked up,
+                //which is also why the reactive profile's settings are repeated here
+                "--spring.config.name=catalog-benchmark",
+                "--spring.profiles.active=" + profile,
+                "--spring.datasource.url=jdbc:h2:mem:catalog;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--gamestore.catalog.r2dbc.url=r2dbc:h2:mem:///catalog?options=DB_CLOSE_DELAY=-1",
+                "--gamestore.catalog.r2dbc.username=sa",
+                "--spring.jpa.show-sql=false",
+                "--spring.cloud.discovery.enabled=false",
+                "--eureka.client.enabled=false",
+                "--gamestore.invoicing.cache-invalidation-urls=",
+                "--logging.level.root=WARN"));
+        args.addAll(Arrays.asList(extraArgs));
+        return args.toArray(new String[0]);
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        insert(jdbcTemplate, "insert into game (title, esrb_rating, description, price, studio, quantity) " +
+                "values (?, ?, ?, ?, ?, ?)", (ps, n) -> {
+            ps.setString(1, "Game " + n);
+            ps.setString(2, "T");
+            ps.setString(3, "benchmark game");
+            ps.setBigDecimal(4, new BigDecimal("19.99"));
+            ps.setString(5, "Studio " + n % DISTINCT_VALUES);
+            ps.setLong(6, 10);
+        });
+        insert(jdbcTemplate, "insert into console (model, manufacturer, memory_amount, processor, price, quantity) " +
+                "values (?, ?, ?, ?, ?, ?)", (ps, n) -> {
+            ps.setString(1, "Model " + n);
+            ps.setString(2, "Manufacturer " + n % DISTINCT_VALUES);
+            ps.setString(3, "8GB");
+            ps.setString(4, "ARM");
+            ps.setBigDecimal(5, new BigDecimal("299.99"));
+            ps.setLong(6, 5);
+        });
+        insert(jdbcTemplate, "insert into tshirt (size, color, description, price, quantity) " +
+                "values (?, ?, ?, ?, ?)", (ps, n) -> {
+            ps.setString(1, "M");
+            ps.setString(2, "Color " + n % DISTINCT_VALUES);
+            ps.setString(3, "benchmark shirt");
+            ps.setBigDecimal(4, new BigDecimal("14.95"));
+            ps.setLong(5, 20);
+        });
+    }
+
+    private interface RowSetter {
+        void set(PreparedStatement ps, int n) throws SQLException;
+    }
+
+    private void insert(JdbcTemplate jdbcTemplate, String sql, RowSetter rowSetter) {
+        for (int from = 0; from < rows; from += SEED_BATCH_SIZE) {
+            int start = from;
+            int count = Math.min(SEED_BATCH_SIZE, rows - from);
+            jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    rowSetter.set(ps, start + i);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return count;
+                }
+            });
+        }
+    }
+
+    // ids are assigned 1..rows by the seed
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, rows + 1);
+    }
+
+    private int randomValue() {
+        return ThreadLocalRandom.current().nextInt(Math.min(rows, DISTINCT_VALUES));
+    }
+
+    // Reads and discards the body so the connection goes back to the keep-alive pool. Returns the body size.
+    private long get(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestProperty("Accept", "application/json");
+        int status = connection.getResponseCode();
+        if (status != 200) {
+            throw new IllegalStateException("GET " + path + " returned " + status);
+        }
+        long size = 0;
+        byte[] buffer = new byte[8192];
+        try (InputStream in = connection.getInputStream()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                size += read;
+            }
+        }
+        return size;
+    }
+
+    /** game */
+    @Benchmark
+    public long getGameInfo() throws IOException {
+        return get("/game/" + randomId());
+    }
+
+    @Benchmark
+    public long getGamesByStudio() throws IOException {
+        return get("/game/studio/Studio%20" + randomValue());
+    }
+
+    @Benchmark
+    public long getAllGames() throws IOException {
+        return get("/game");
+    }
+
+    /** console */
+    @Benchmark
+    public long getConsoleInfo() throws IOException {
+        return get("/console/" + randomId());
+    }
+
+    @Benchmark
+    public long getConsolesByManufacturer() throws IOException {
+        return get("/console/manufacturer/Manufacturer%20" + randomValue());
+    }
+
+    @Benchmark
+    public long getAllConsoles() throws IOException {
+        return get("/console");
+    }
+
+    /** tshirt */
+    @Benchmark
+    public long getTShirtInfo() throws IOException {
+        return get("/tshirt/" + randomId());
+    }
+
+    @Benchmark
+    public long getTShirtsByColor() throws IOException {
+        return get("/tshirt/color/Color%20" + randomValue());
+    }
+
+    @Benchmark
+    public long getAllTShirts() throws IOException {
+        return get("/tshirt");
+    }
+}
@@ -0,0 +1,37 @@
+package com.trilogyed.gamestorebenchmarks;
+
+import com.trilogyed.gamestoreinvoicing.model.Invoice;
+import com.trilogyed.gamestoreinvoicing.service.GameStoreInvoicingServiceLayer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// End-to-end cost of GameStoreInvoicingServiceLayer.createNewInvoice with the catalog and repositories stubbed
+// in memory: validation, cached catalog lookup, pricing, stock reservation and save. Catalog items stay cached
+// for the whole run, so this is the warm-cache path.
+//   java -jar target/benchmarks.jar CreateInvoiceBenchmark -prof gc
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class CreateInvoiceBenchmark {
+
+    @Param({"Game", "Console", "T-Shirt"})
+    public String itemType;
+
+    private GameStoreInvoicingServiceLayer service;
+
+    @Setup
+    public void setUp() {
+        service = InvoicingFixture.newService();
+    }
+
+    // the request body is built inside the measurement since the service mutates the invoice it is given,
+    // the same way the controller hands it a freshly deserialized one
+    @Benchmark
+    public Invoice createNewInvoice() {
+        return service.createNewInvoice(InvoicingFixture.newInvoice(itemType));
+    }
+}
@@ -0,0 +1,166 @@
+package com.trilogyed.gamestorebenchmarks;
+
+import com.trilogyed.gamestoreinvoicing.feign.GameStoreCatalog;
+import com.trilogyed.gamestoreinvoicing.model.Console;
+import com.trilogyed.gamestoreinvoicing.model.Game;
+import com.trilogyed.gamestoreinvoicing.model.TShirt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Stand-in for the Feign client: lookups come from fixed maps and reserve/release always succeed,
+// so a benchmark measures the invoicing code and not the network or the catalog's stock.
+public class InMemoryGameStoreCatalog implements GameStoreCatalog {
+
+    private final Map<Long, Console> consoles = new HashMap<>();
+    private final Map<Long, Game> games = new HashMap<>();
+    private final Map<Long, TShirt> tshirts = new HashMap<>();
+
+    public void add(Console console) {
+        consoles.put(console.getId(), console);
+    }
+
+    public void add(Game game) {
+        games.put(game.getId(), game);
+    }
+
+    public void add(TShirt tshirt) {
+        tshirts.put(tshirt.getId(), tshirt);
+    }
+
+    private static <T> List<T> byIds(Map<Long, T> items, List<Long> ids) {
+        List<T> found = new ArrayList<>();
+        for (Long id : ids) {
+            T item = items.get(id);
+            if (item != null) {
+                found.add(item);
+            }
+        }
+        return found;
+    }
+
+    /** console */
+    @Override
+    public List<Console> getAllConsoles() {
+        return new ArrayList<>(consoles.values());
+    }
+
+    @Override
+    public Console getConsoleById(long consoleId) {
+        return consoles.get(consoleId);
+    }
+
+    @Override
+    public List<Console> getConsolesByIds(List<Long> consoleIds) {
+        return byIds(consoles, consoleIds);
+    }
+
+    @Override
+    public Console addConsole(Console consoleViewModel) {
+        add(consoleViewModel);
+        return consoleViewModel;
+    }
+
+    @Override
+    public Console updateConsole(Console consoleViewModel) {
+        add(consoleViewModel);
+        return consoleViewModel;
+    }
+
+    @Override
+    public void reserveConsole(long consoleId, long quantity, String reservationId) {
+    }
+
+    @Override
+    public void releaseConsole(long consoleId, String reservationId) {
+    }
+
+    @Override
+    public void deleteConsole(long consoleId) {
+        consoles.remove(consoleId);
+    }
+
+    /** game */
+    @Override
+    public List<Game> getAllGames() {
+        return new ArrayList<>(games.values());
+    }
+
+    @Override
+    public Game getGameById(long gameId) {
+        return games.get(gameId);
+    }
+
+    @Override
+    public List<Game> getGamesByIds(List<Long> gameIds) {
+        return byIds(games, gameIds);
+    }
+
+    @Override
+    public Game addGame(Game gameViewModel) {
+        add(gameViewModel);
+        return gameViewModel;
+    }
+
+    @Override
+    public Game updateGame(Game gameViewModel) {
+        add(gameViewModel);
+        return gameViewModel;
+    }
+
+    @Override
+    public void reserveGame(long gameId, long quantity, String reservationId) {
+    }
+
+    @Override
+    public void releaseGame(long gameId, String reservationId) {
+    }
+
+    @Override
+    public void deleteGame(long gameId) {
+        games.remove(gameId);
+    }
+
+    /** tshirt */
+    @Override
+    public List<TShirt> getAlltshirts() {
+        return new ArrayList<>(tshirts.values());
+    }
+
+    @Override
+    public TShirt getTshirtById(long tshirtId) {
+        return tshirts.get(tshirtId);
+    }
+
+    @Override
+    public List<TShirt> getTshirtsByIds(List<Long> tshirtIds) {
+        return byIds(tshirts, tshirtIds);
+    }
+
+    @Override
+    public TShirt addtshirt(TShirt tshirtViewModel) {
+        add(tshirtViewModel);
+        return tshirtViewModel;
+    }
+
+    @Override
+    public TShirt updateConsole(TShirt tshirtViewModel) {
+        add(tshirtViewModel);
+        return tshirtViewModel;
+    }
+
+    @Override
+    public void reserveTshirt(long tshirtId, long quantity, String reservationId) {
+    }
+
+    @Override
+    public void releaseTshirt(long tshirtId, String reservationId) {
+    }
+
+    @Override
+    public void deleteTshirt(long thsirtId) {
+        tshirts.remove(thsirtId);
+    }
+}
@@ -0,0 +1,117 @@
+package com.trilogyed.gamestorebenchmarks;
+
+import com.trilogyed.gamestoreinvoicing.GamestoreInvoicingApplication;
+import com.trilogyed.gamestoreinvoicing.model.Invoice;
+import com.trilogyed.gamestoreinvoicing.repository.InvoiceRepository;
+import org.h2.tools.Server;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Bulk insert throughput of invoiceRepo.saveAll on a real invoicing JPA context, in invoices per second. The
+// database is an in-memory H2 reached through H2's TCP server, so every statement costs a loopback round trip the
+// way it would against MySQL. idGeneration=identity is the old mapping (Invoice.id from an IDENTITY column, restored through
+// invoice-identity-orm.xml): Hibernate inserts every row as soon as it is persisted to read its key back, so
+// hibernate.jdbc.batch_size does nothing. idGeneration=pooled is InvoiceIdGenerator, one invoice_id_seq round trip
+// per allocationSize ids, with the inserts sent batchSize at a time.
+//   java -jar target/benchmarks.jar InvoiceSaveAllBenchmark
+//   java -jar target/benchmarks.jar InvoiceSaveAllBenchmark -p idGeneration=pooled -p batchSize=1,50,500
+// Across a real network the per-row round trips of the identity mapping weigh even more than over loopback.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class InvoiceSaveAllBenchmark {
+
+    private static final int INVOICES_PER_CALL = 1000;
+
+    @Param({"identity", "pooled"})
+    public String idGeneration;
+
+    @Param({"50"})
+    public int batchSize;
+
+    @Param({"50"})
+    public int allocationSize;
+
+    private Server database;
+    private ConfigurableApplicationContext context;
+    private InvoiceRepository invoiceRepo;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup(Level.Trial)
+    public void startInvoicing() throws SQLException {
+        database = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        List<String> args = new ArrayList<>(List.of(
+                //own config name so neither service's application.properties on the classpath is picked up
+                "--spring.config.name=invoice-save-all-benchmark",
+                "--spring.datasource.url=jdbc:h2:tcp://localhost:" + database.getPort() +
+                        "/mem:invoice-save-all;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--spring.jpa.show-sql=false",
+                "--spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize,
+                "--spring.jpa.properties.hibernate.order_inserts=true",
+                "--gamestore.invoice.id-allocation-size=" + allocationSize,
+                //the catalog's R2DBC driver is on this classpath too; without this the JDBC DataSource backs off
+                "--spring.autoconfigure.exclude=" + R2dbcAutoConfiguration.class.getName(),
+                "--spring.cloud.discovery.enabled=false",
+                "--eureka.client.enabled=false",
+                "--logging.level.root=WARN"));
+        if ("identity".equals(idGeneration)) {
+            args.add("--spring.jpa.mapping-resources=invoice-identity-orm.xml");
+        }
+        context = new SpringApplicationBuilder(GamestoreInvoicingApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(new String[0]));
+        invoiceRepo = context.getBean(InvoiceRepository.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopInvoicing() {
+        context.close();
+        database.stop();
+    }
+
+    //keeps the table, and with it H2's memory use, from growing across iterations
+    @TearDown(Level.Iteration)
+    public void deleteInvoices() {
+        jdbcTemplate.update("delete from invoice");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INVOICES_PER_CALL)
+    public List<Invoice> saveAll() {
+        List<Invoice> invoices = new ArrayList<>(INVOICES_PER_CALL);
+        for (int i = 0; i < INVOICES_PER_CALL; i++) {
+            invoices.add(newInvoice(i));
+        }
+        return invoiceRepo.saveAll(invoices);
+    }
+
+    private static Invoice newInvoice(int i) {
+        Invoice invoice = InvoicingFixture.newInvoice("Game");
+        invoice.setName("Customer " + i);
+        invoice.setUnitPrice(new BigDecimal("12.99"));
+        invoice.setSubtotal(new BigDecimal("25.98"));
+        invoice.setTax(new BigDecimal("1.56"));
+        invoice.setProcessingFee(new BigDecimal("1.49"));
+        invoice.setTotal(new BigDecimal("29.03"));
+        invoice.setCreatedAt(LocalDateTime.now());
+        return invoice;
+    }
+}
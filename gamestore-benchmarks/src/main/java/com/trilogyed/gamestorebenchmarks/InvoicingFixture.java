@@ -0,0 +1,121 @@
+package com.trilogyed.gamestorebenchmarks;
+
+import com.trilogyed.gamestoreinvoicing.feign.CatalogItemCache;
+import com.trilogyed.gamestoreinvoicing.model.*;
+import com.trilogyed.gamestoreinvoicing.repository.InvoiceRepository;
+import com.trilogyed.gamestoreinvoicing.repository.ProcessingFeeRepository;
+import com.trilogyed.gamestoreinvoicing.repository.TaxRepository;
+import com.trilogyed.gamestoreinvoicing.service.GameStoreInvoicingServiceLayer;
+import com.trilogyed.gamestoreinvoicing.service.InvoiceMetrics;
+import com.trilogyed.gamestoreinvoicing.service.PricingSnapshotService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+// Wires a GameStoreInvoicingServiceLayer the way Spring would, but over an in-memory catalog and stub-only Mockito
+// repositories (stubOnly: no invocation history piling up over a long run). One catalog item per type, priced and
+// sized so each invoice goes through every pricing branch without hitting a limit.
+public final class InvoicingFixture {
+
+    public static final long ITEM_ID = 1;
+    public static final String STATE = "NY";
+
+    private InvoicingFixture() {}
+
+    public static GameStoreInvoicingServiceLayer newService() {
+        InMemoryGameStoreCatalog catalog = new InMemoryGameStoreCatalog();
+        catalog.add((Game) catalogItem("Game"));
+        catalog.add((Console) catalogItem("Console"));
+        catalog.add((TShirt) catalogItem("T-Shirt"));
+
+        TaxRepository taxRepo = mock(TaxRepository.class, withSettings().stubOnly());
+        when(taxRepo.findAll()).thenReturn(Arrays.asList(new Tax(STATE, new BigDecimal("0.06"))));
+        ProcessingFeeRepository feeRepo = mock(ProcessingFeeRepository.class, withSettings().stubOnly());
+        when(feeRepo.findAll()).thenReturn(Arrays.asList(
+                fee("Console", "14.99"), fee("Game", "1.49"), fee("T-Shirt", "1.98")));
+        PricingSnapshotService pricing = new PricingSnapshotService(taxRepo, feeRepo);
+        pricing.load();
+
+        //save() hands out ids and keeps nothing, so memory stays flat over a long run
+        InvoiceRepository invoiceRepo = mock(InvoiceRepository.class, withSettings().stubOnly());
+        AtomicLong nextId = new AtomicLong();
+        when(invoiceRepo.save(any(Invoice.class))).thenAnswer(invocation -> {
+            Invoice invoice = invocation.getArgument(0);
+            invoice.setId(nextId.incrementAndGet());
+            return invoice;
+        });
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CatalogItemCache cache = new CatalogItemCache(catalog, meterRegistry, 10000, 30, 8, 64, 3000);
+
+        //there is no database, so the transaction around each save is a no-op stub
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class,
+                withSettings().stubOnly());
+
+        //the batch/listing repositories and the validator are only used by the bulk and listing paths
+        return new GameStoreInvoicingServiceLayer(catalog, cache, invoiceRepo,
+                null, null, pricing, null, new InvoiceMetrics(meterRegistry), transactionManager);
+    }
+
+    // The catalog item of the given type, with ITEM_ID and plenty of stock.
+    public static CatalogItem catalogItem(String itemType) {
+        if (itemType.equals("Console")) {
+            Console console = new Console();
+            console.setId(ITEM_ID);
+            console.setPrice(new BigDecimal("299.99"));
+            console.setQuantity(50000);
+            return console;
+        } else if (itemType.equals("Game")) {
+            Game game = new Game();
+            game.setId(ITEM_ID);
+            game.setPrice(new BigDecimal("12.99"));
+            game.setQuantity(50000);
+            return game;
+        } else {
+            TShirt tshirt = new TShirt();
+            tshirt.setId(ITEM_ID);
+            tshirt.setPrice(new BigDecimal("14.95"));
+            tshirt.setQuantity(50000);
+            return tshirt;
+        }
+    }
+
+    // Quantities: the T-Shirt order is over 10 so it also pays the bulk processing fee.
+    public static long quantityFor(String itemType) {
+        if (itemType.equals("Console")) {
+            return 1;
+        } else if (itemType.equals("Game")) {
+            return 2;
+        } else {
+            return 12;
+        }
+    }
+
+    public static Invoice newInvoice(String itemType) {
+        Invoice invoice = new Invoice();
+        invoice.setName("Joe Black");
+        invoice.setStreet("123 Main St");
+        invoice.setCity("any City");
+        invoice.setState(STATE);
+        invoice.setZipcode("10016");
+        invoice.setItemType(itemType);
+        invoice.setItemId(ITEM_ID);
+        invoice.setQuantity(quantityFor(itemType));
+        return invoice;
+    }
+
+    private static ProcessingFee fee(String productType, String amount) {
+        ProcessingFee fee = new ProcessingFee();
+        fee.setProductType(productType);
+        fee.setFee(new BigDecimal(amount));
+        return fee;
+    }
+}
@@ -0,0 +1,266 @@
+package com.trilogyed.gamestorebenchmarks;
+
+import com.sun.net.httpserver.HttpServer;
+import com.trilogyed.gamestoreinvoicing.GamestoreInvoicingApplication;
+import com.trilogyed.gamestoreinvoicing.service.PricingSnapshotService;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Closed-loop load test of POST /invoice at a given Tomcat thread count (server.tomcat.threads.max, 200 by default),
+// to see where throughput stops scaling with concurrent clients and how far a bigger pool moves that point. Not a
+// JMH benchmark: what matters here is throughput and tail latency as the number of clients grows past the thread
+// count.
+// Invoicing runs on H2; the catalog is a stub HTTP server that answers GET /game/{id} and POST /game/{id}/reserve
+// after catalogDelayMs, standing in for the network and database time of the real service. A comma-separated list
+// of delays starts one stub replica per delay (e.g. 20,200 for a healthy and a degraded replica), and the share of
+// catalog calls each replica got is printed at the end.
+//   java -cp target/benchmarks.jar com.trilogyed.gamestorebenchmarks.InvoicingLoadTest <tomcatThreads> \
+//        [catalogDelayMs=20] [secondsPerStep=15] [concurrency=50,200,400,800,1600]
+// Each step prints requests/s, p50/p99 latency and failed requests.
+public class InvoicingLoadTest {
+
+    private static final int GAME_IDS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        int tomcatThreads = Integer.parseInt(args[0]);
+        long[] catalogDelaysMs = args.length > 1
+                ? Arrays.stream(args[1].split(",")).mapToLong(Long::parseLong).toArray()
+                : new long[]{20};
+        int secondsPerStep = args.length > 2 ? Integer.parseInt(args[2]) : 15;
+        int[] concurrencySteps = args.length > 3
+                ? Arrays.stream(args[3].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[]{50, 200, 400, 800, 1600};
+
+        List<HttpServer> catalogs = new ArrayList<>();
+        List<AtomicLong> catalogCalls = new ArrayList<>();
+        for (long delayMs : catalogDelaysMs) {
+            AtomicLong calls = new AtomicLong();
+            catalogs.add(startCatalogStub(delayMs, calls));
+            catalogCalls.add(calls);
+        }
+        ConfigurableApplicationContext context;
+        try {
+            context = startInvoicing(catalogs, tomcatThreads);
+        } catch (RuntimeException e) {
+            stopAll(catalogs);
+            throw e;
+        }
+        String invoiceUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() +
+                "/invoice";
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        System.out.printf("tomcat threads: %d, catalog delay: %s ms, java %s%n",
+                tomcatThreads, Arrays.toString(catalogDelaysMs), System.getProperty("java.version"));
+        System.out.printf("%12s %12s %10s %10s %10s%n", "concurrency", "requests/s", "p50 ms", "p99 ms", "failed");
+        try {
+            //short warmup so JIT and connection setup don't land in the first step
+            run(client, invoiceUrl, 50, 5);
+            for (int concurrency : concurrencySteps) {
+                Result result = run(client, invoiceUrl, concurrency, secondsPerStep);
+                System.out.printf("%12d %12.0f %10.1f %10.1f %10d%n", concurrency, result.throughput,
+                        result.p50Millis, result.p99Millis, result.failed);
+            }
+            if (catalogs.size() > 1) {
+                long total = catalogCalls.stream().mapToLong(AtomicLong::get).sum();
+                for (int i = 0; i < catalogs.size(); i++) {
+                    System.out.printf("catalog replica %d (%d ms): %.1f%% of calls%n", i, catalogDelaysMs[i],
+                            100.0 * catalogCalls.get(i).get() / total);
+                }
+            }
+        } finally {
+            context.close();
+            stopAll(catalogs);
+        }
+    }
+
+    private static void stopAll(List<HttpServer> servers) {
+        for (HttpServer server : servers) {
+            server.stop(0);
+        }
+    }
+
+    // Every game exists, costs 19.99 and has plenty of stock. The stub handles each request on its own thread so
+    // it never becomes the bottleneck itself.
+    private static HttpServer startCatalogStub(long delayMs, AtomicLong calls) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 4096);
+        server.createContext("/game/", exchange -> {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            if ("POST".equals(exchange.getRequestMethod())) {
+                //the server drops the keep-alive connection if the request body is left unread
+                exchange.getRequestBody().readAllBytes();
+                exchange.sendResponseHeaders(204, -1);
+            } else {
+                byte[] body = ("{\"id\":" + path[2] + ",\"title\":\"Game " + path[2] + "\",\"esrbRating\":\"T\"," +
+                        "\"description\":\"load test\",\"price\":19.99,\"studio\":\"Studio\",\"quantity\":50000}")
+                        .getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        return server;
+    }
+
+    private static ConfigurableApplicationContext startInvoicing(List<HttpServer> catalogs, int tomcatThreads) {
+        List<String> args = new ArrayList<>(Arrays.asList(
+                //own config name so neither service's application.properties on the classpath is picked up
+                "--spring.config.name=invoicing-load-test",
+                "--server.port=0",
+                "--server.tomcat.max-connections=10000",
+                "--server.tomcat.threads.max=" + tomcatThreads,
+                "--spring.datasource.url=jdbc:h2:mem:invoicing;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--spring.jpa.show-sql=false",
+                //the catalog's R2DBC driver is on this classpath too; without this the JDBC DataSource backs off
+                "--spring.autoconfigure.exclude=" + R2dbcAutoConfiguration.class.getName(),
+                "--eureka.client.enabled=false",
+                "--feign.client.config.gamestore-catalog.connect-timeout=5000",
+                "--feign.client.config.gamestore-catalog.read-timeout=30000",
+                //size the catalog client for the highest concurrency step so the bulkhead and breaker stay out of it
+                "--gamestore.catalog-client.max-connections=2000",
+                "--gamestore.catalog-client.max-connections-per-route=2000",
+                "--gamestore.catalog-client.pool-wait-ms=30000",
+                "--gamestore.catalog-client.bulkhead.max-concurrent-calls=4000",
+                "--gamestore.catalog-client.circuit-breaker.slow-call-ms=60000",
+                "--logging.level.root=WARN"));
+        for (int i = 0; i < catalogs.size(); i++) {
+            args.add("--spring.cloud.discovery.client.simple.instances.gamestore-catalog[" + i + "].uri=" +
+                    "http://localhost:" + catalogs.get(i).getAddress().getPort());
+        }
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(GamestoreInvoicingApplication.class)
+                .run(args.toArray(new String[0]));
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("insert into tax (state, rate) values ('NJ', 0.05)");
+        jdbcTemplate.update("insert into fee (product_type, fee) values ('Game', 1.49)");
+        context.getBean(PricingSnapshotService.class).refresh();
+        return context;
+    }
+
+    private static final class Result {
+        double throughput;
+        double p50Millis;
+        double p99Millis;
+        long failed;
+    }
+
+    // latencies of the requests one client completed; only touched by that client's thread until it finishes
+    private static final class Latencies {
+        long[] nanos = new long[1024];
+        int count;
+
+        void add(long value) {
+            if (count == nanos.length) {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = value;
+        }
+    }
+
+    // Runs `concurrency` clients for `seconds`; each sends its next request as soon as the previous one answers.
+    private static Result run(HttpClient client, String invoiceUrl, int concurrency, int seconds)
+            throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Latencies> latencies = new ArrayList<>();
+        AtomicLong failed = new AtomicLong();
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        for (int c = 0; c < concurrency; c++) {
+            Latencies clientLatencies = new Latencies();
+            latencies.add(clientLatencies);
+            clients.execute(() -> {
+                while (System.nanoTime() < end) {
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(newInvoiceRequest(invoiceUrl),
+                                HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() == 201) {
+                            clientLatencies.add(System.nanoTime() - start);
+                        } else {
+                            failed.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        failed.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(seconds + 60, TimeUnit.SECONDS);
+
+        int total = 0;
+        for (Latencies clientLatencies : latencies) {
+            total += clientLatencies.count;
+        }
+        long[] all = new long[total];
+        int i = 0;
+        for (Latencies clientLatencies : latencies) {
+            System.arraycopy(clientLatencies.nanos, 0, all, i, clientLatencies.count);
+            i += clientLatencies.count;
+        }
+        Arrays.sort(all);
+
+        Result result = new Result();
+        result.throughput = total / (double) seconds;
+        result.p50Millis = percentile(all, 0.50);
+        result.p99Millis = percentile(all, 0.99);
+        result.failed = failed.get();
+        return result;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.floor(p * sorted.length))] / 1_000_000.0;
+    }
+
+    private static HttpRequest newInvoiceRequest(String invoiceUrl) {
+        long gameId = ThreadLocalRandom.current().nextLong(1, GAME_IDS + 1);
+        String body = "{\"name\":\"Load Test\",\"street\":\"1 Main St\",\"city\":\"Newark\",\"state\":\"NJ\"," +
+                "\"zipcode\":\"07101\",\"itemType\":\"Game\",\"itemId\":" + gameId + ",\"quantity\":1}";
+        return HttpRequest.newBuilder(URI.create(invoiceUrl))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
@@ -0,0 +1,40 @@
+package com.trilogyed.gamestorebenchmarks;
+
+import com.trilogyed.gamestoreinvoicing.model.CatalogItem;
+import com.trilogyed.gamestoreinvoicing.model.Invoice;
+import com.trilogyed.gamestoreinvoicing.service.GameStoreInvoicingServiceLayer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// GameStoreInvoicingServiceLayer.priceInvoice for one invoice, on its own (fee and tax lookups in the pricing
+// snapshot plus the BigDecimal work), so it can be compared against CreateInvoiceBenchmark.
+//   java -jar target/benchmarks.jar PricingArithmeticBenchmark -prof gc
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class PricingArithmeticBenchmark {
+
+    @Param({"Game", "Console", "T-Shirt"})
+    public String itemType;
+
+    private GameStoreInvoicingServiceLayer service;
+    private CatalogItem item;
+    private Invoice invoice;
+
+    // priceInvoice overwrites every field it computes, so one invoice can be priced over and over
+    @Setup
+    public void setUp() {
+        service = InvoicingFixture.newService();
+        item = InvoicingFixture.catalogItem(itemType);
+        invoice = InvoicingFixture.newInvoice(itemType);
+    }
+
+    @Benchmark
+    public Invoice priceInvoice() {
+        return service.priceInvoice(invoice, item);
+    }
+}
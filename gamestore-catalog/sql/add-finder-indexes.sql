@@ -0,0 +1,19 @@
+-- Adds the finder indexes from schema.sql to an existing game_store_catalog database.
+-- InnoDB builds these online (ALGORITHM=INPLACE, LOCK=NONE), so reads and writes keep working while it runs.
+use game_store_catalog;
+
+alter table game
+    add index idx_game_esrb_rating (esrb_rating),
+    add index idx_game_studio (studio),
+    add index idx_game_title (title),
+    algorithm = inplace, lock = none;
+
+alter table console
+    add index idx_console_manufacturer (manufacturer),
+    algorithm = inplace, lock = none;
+
+-- (color, size) also serves color-only lookups, so color doesn't need its own index
+alter table tshirt
+    add index idx_tshirt_color_size (color, size),
+    add index idx_tshirt_size (size),
+    algorithm = inplace, lock = none;
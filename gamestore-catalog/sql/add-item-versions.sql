@@ -0,0 +1,8 @@
+-- Adds the version column used by the PATCH endpoints' optimistic check to an existing game_store_catalog database.
+-- Existing rows start at version 0. MySQL 8 adds a column with a default as a metadata-only change (ALGORITHM=INSTANT),
+-- so the tables are not rebuilt or locked.
+use game_store_catalog;
+
+alter table game add column version int not null default 0, algorithm = instant;
+alter table console add column version int not null default 0, algorithm = instant;
+alter table tshirt add column version int not null default 0, algorithm = instant;
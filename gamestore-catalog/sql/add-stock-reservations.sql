@@ -0,0 +1,13 @@
+-- Adds the reservation records (stock_reservation) behind /reserve and /release to an existing game_store_catalog
+-- database. Callers must send ?reservation=<id> to both endpoints once this is deployed.
+use game_store_catalog;
+
+create table if not exists stock_reservation (
+    reservation_id varchar(64) primary key,
+    item_type varchar(20) not null,
+    item_id bigint not null,
+    quantity bigint not null,
+    released boolean not null default false,
+    created_at datetime not null,
+    index idx_stock_reservation_created_at (created_at)
+);
@@ -2,6 +2,7 @@ drop database if exists game_store_catalog;
 create database game_store_catalog;
 use game_store_catalog;
 
+-- version: optimistic lock, moved on by every update, patch and stock change; see sql/add-item-versions.sql
 create table game (
     game_id int primary key auto_increment,
     title varchar(50) not null,
@@ -9,7 +10,8 @@ create table game (
     description varchar(255) not null,
     price decimal(5, 2) not null,
     studio varchar(50) not null,
-    quantity int
+    quantity int,
+    version int not null default 0
 );
 
 create table console (
@@ -19,7 +21,8 @@ create table console (
     memory_amount varchar(20),
     processor varchar(20),
     price decimal(5, 2) not null,
-    quantity int not null
+    quantity int not null,
+    version int not null default 0
 );
 
 create table tshirt (
@@ -28,7 +31,27 @@ create table tshirt (
     color varchar(20) not null,
     description varchar(255) not null,
     price decimal(5,2) not null,
-    quantity int not null
+    quantity int not null,
+    version int not null default 0
 );
 
+-- secondary indexes for the finder endpoints (/game/esrb, /game/studio, /game/title, /console/manufacturer,
+-- /tshirt/color, /tshirt/size); existing databases can apply sql/add-finder-indexes.sql instead of recreating
+create index idx_game_esrb_rating on game (esrb_rating);
+create index idx_game_studio on game (studio);
+create index idx_game_title on game (title);
+create index idx_console_manufacturer on console (manufacturer);
+create index idx_tshirt_color_size on tshirt (color, size);
+create index idx_tshirt_size on tshirt (size);
 
+-- stock taken by each /reserve call, under the caller's reservation id; /release gives it back once
+-- (see sql/add-stock-reservations.sql for existing databases)
+create table stock_reservation (
+    reservation_id varchar(64) primary key,
+    item_type varchar(20) not null,
+    item_id bigint not null,
+    quantity bigint not null,
+    released boolean not null default false,
+    created_at datetime not null,
+    index idx_stock_reservation_created_at (created_at)
+);
@@ -0,0 +1,122 @@
+package com.trilogyed.gamestorecatalog;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.persistence.EntityManagerFactory;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// Hibernate second-level cache for Game, Console and TShirt plus the query cache for the repositories' finder
+// queries, held in Caffeine through JCache. findById is answered from the entity regions without any SQL; a cached
+// finder query keeps only the matching ids and reads each entity from its region, so entity regions must be at
+// least as large and live at least as long as the query results. Hibernate updates or evicts entries itself on
+// save and deleteById; stock changes and patches go through ItemUpdates, which locks only the cache entry of the
+// item it changed.
+// Hit ratios are exported per region as gamestore.catalog.cache.hit.ratio, next to Hibernate's own
+// hibernate.second.level.cache.requests and hibernate.cache.query.requests counters.
+@Configuration
+@Profile("!reactive")
+public class CatalogCacheConfig {
+
+    public static final String GAME_REGION = "game";
+    public static final String CONSOLE_REGION = "console";
+    public static final String TSHIRT_REGION = "tshirt";
+
+    private static final String[] ENTITY_REGIONS = {GAME_REGION, CONSOLE_REGION, TSHIRT_REGION};
+
+    @Bean(destroyMethod = "close")
+    public CacheManager catalogCacheManager(@Value("${gamestore.catalog.cache.max-entries:100000}") long maxEntries,
+                                            @Value("${gamestore.catalog.cache.query-max-entries:10000}") long queryMaxEntries,
+                                            @Value("${gamestore.catalog.cache.ttl-seconds:600}") long ttlSeconds) {
+        CaffeineCachingProvider provider = (CaffeineCachingProvider) Caching.getCachingProvider(
+                CaffeineCachingProvider.class.getName());
+        //a manager of its own: Caching hands out one per URI, and benchmarks start several contexts in one JVM
+        CacheManager cacheManager = provider.getCacheManager(URI.create("gamestore-catalog-" + UUID.randomUUID()),
+                getClass().getClassLoader());
+        for (String region : ENTITY_REGIONS) {
+            cacheManager.createCache(region, regionConfiguration(maxEntries, ttlSeconds));
+        }
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                regionConfiguration(queryMaxEntries, ttlSeconds));
+        //last-change time per table, which is how Hibernate knows a cached query result is stale; never evicted
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                regionConfiguration(-1, -1));
+        return cacheManager;
+    }
+
+    private static CaffeineConfiguration<Object, Object> regionConfiguration(long maxEntries, long ttlSeconds) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        //Hibernate only stores immutable disassembled state, so there is nothing to gain from copying it
+        configuration.setStoreByValue(false);
+        if (maxEntries >= 0) {
+            configuration.setMaximumSize(OptionalLong.of(maxEntries));
+        }
+        if (ttlSeconds >= 0) {
+            configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSeconds)));
+        }
+        return configuration;
+    }
+
+    // gamestore.catalog.cache.enabled=false turns both caches off, e.g. to compare read latency with and without.
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager catalogCacheManager,
+                                                                    @Value("${gamestore.catalog.cache.enabled:true}") boolean enabled) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, enabled);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, enabled);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, catalogCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            //hit and miss counts for the meters; without this Hibernate logs a metrics line for every session
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+            properties.put(AvailableSettings.LOG_SESSION_METRICS, false);
+        };
+    }
+
+    @Bean
+    public MeterBinder catalogCacheHitRatio(EntityManagerFactory entityManagerFactory,
+                                            @Value("${gamestore.catalog.cache.enabled:true}") boolean enabled) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        return registry -> {
+            if (!enabled) {
+                return;
+            }
+            for (String region : ENTITY_REGIONS) {
+                hitRatio(region, statistics, s -> s.getDomainDataRegionStatistics(region)).register(registry);
+            }
+            hitRatio(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, statistics,
+                    s -> s.getQueryRegionStatistics(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME))
+                    .register(registry);
+        };
+    }
+
+    private static Gauge.Builder<Statistics> hitRatio(String region, Statistics statistics,
+                                                      Function<Statistics, CacheRegionStatistics> regionStatistics) {
+        return Gauge.builder("gamestore.catalog.cache.hit.ratio", statistics, s -> {
+                    CacheRegionStatistics stats = regionStatistics.apply(s);
+                    long requests = stats.getHitCount() + stats.getMissCount();
+                    return requests == 0 ? Double.NaN : (double) stats.getHitCount() / requests;
+                })
+                .description("Share of second-level cache lookups answered from the cache")
+                .tag("region", region);
+    }
+}
@@ -2,9 +2,14 @@ package com.trilogyed.gamestorecatalog;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 
-@SpringBootApplication
+// R2DBC is only used by the reactive profile, which sets up its own connection pool (ReactiveCatalogConfig).
+// Boot's R2DBC auto-configuration would otherwise need an R2DBC URL in every mode, and its reactive transaction
+// manager would stop the JPA one from being created.
+@SpringBootApplication(exclude = {R2dbcAutoConfiguration.class, R2dbcTransactionManagerAutoConfiguration.class})
 @EnableDiscoveryClient
 public class GamestoreCatalogApplication {
 
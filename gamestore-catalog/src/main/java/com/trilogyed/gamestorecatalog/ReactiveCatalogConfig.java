@@ -0,0 +1,38 @@
+package com.trilogyed.gamestorecatalog;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+// R2DBC connection pool for the reactive profile's read endpoints (see application-reactive.properties).
+// Boot skips the JDBC DataSource, and with it JPA, when a ConnectionFactory bean exists, so in this mode the
+// service opens no blocking database connections at all.
+@Configuration
+@Profile("reactive")
+public class ReactiveCatalogConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool r2dbcConnectionPool(@Value("${gamestore.catalog.r2dbc.url}") String url,
+                                              @Value("${gamestore.catalog.r2dbc.username:}") String username,
+                                              @Value("${gamestore.catalog.r2dbc.password:}") String password,
+                                              @Value("${gamestore.catalog.r2dbc.pool-max-size:10}") int poolMaxSize) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .maxSize(poolMaxSize)
+                .build());
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(ConnectionPool r2dbcConnectionPool) {
+        return DatabaseClient.create(r2dbcConnectionPool);
+    }
+}
@@ -0,0 +1,68 @@
+package com.trilogyed.gamestorecatalog.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Tells gamestore-invoicing to drop its cached copy of an item after the item is updated or deleted here.
+// Best effort and off the request thread: if a call fails the invoicing cache TTL still bounds staleness.
+// Not needed by the read-only reactive profile.
+@Component
+@Profile("!reactive")
+public class InvoicingCacheNotifier {
+
+    public static final String GAME_ITEM_TYPE = "Game";
+    public static final String CONSOLE_ITEM_TYPE = "Console";
+    public static final String TSHIRT_ITEM_TYPE = "T-Shirt";
+
+    private static final Logger log = LoggerFactory.getLogger(InvoicingCacheNotifier.class);
+
+    private final RestTemplate restTemplate;
+    private final List<String> invoicingUrls;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "invoicing-cache-notifier");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public InvoicingCacheNotifier(RestTemplateBuilder restTemplateBuilder,
+                                  @Value("${gamestore.invoicing.cache-invalidation-urls:}") List<String> invoicingUrls) {
+        this.restTemplate = restTemplateBuilder
+                .setConnectTimeout(Duration.ofSeconds(1))
+                .setReadTimeout(Duration.ofSeconds(2))
+                .build();
+        this.invoicingUrls = invoicingUrls;
+    }
+
+    public void itemChanged(String itemType, long itemId) {
+        for (String url : invoicingUrls) {
+            if (url.trim().isEmpty()) {
+                continue;
+            }
+            executor.execute(() -> {
+                try {
+                    restTemplate.delete(url.trim() + "/catalog-cache/{itemType}/{id}", itemType, itemId);
+                } catch (RuntimeException e) {
+                    log.warn("Could not invalidate {} {} at {}: {}", itemType, itemId, url, e.getMessage());
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
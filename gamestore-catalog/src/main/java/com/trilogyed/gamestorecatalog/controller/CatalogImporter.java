@@ -0,0 +1,173 @@
+package com.trilogyed.gamestorecatalog.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.trilogyed.gamestorecatalog.model.ImportResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+// Bulk imports for the /import endpoints. The body is read one row at a time, as CSV (a header row naming the
+// fields, e.g. title,esrbRating,description,price,studio,quantity) or NDJSON (one JSON object per line). Each row
+// is checked against the entity's javax.validation constraints and valid rows are handed to insertBatch batchSize
+// at a time, so memory use does not grow with the feed. Ids in the feed are ignored: every row is a new item.
+// Rows that can't be parsed or fail validation are skipped and reported by line number.
+@Component
+@Profile("!reactive")
+public class CatalogImporter {
+
+    static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    private final ObjectMapper mapper;
+    private final CsvMapper csvMapper;
+    private final Validator validator;
+    private final int batchSize;
+    private final int maxReportedRejections;
+
+    @Autowired
+    public CatalogImporter(ObjectMapper mapper, Validator validator,
+                           @Value("${gamestore.catalog.import.batch-size:1000}") int batchSize,
+                           @Value("${gamestore.catalog.import.max-reported-rejections:1000}") int maxReportedRejections) {
+        this.mapper = mapper;
+        this.csvMapper = CsvMapper.builder()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .enable(CsvParser.Feature.TRIM_SPACES)
+                .enable(CsvParser.Feature.SKIP_EMPTY_LINES)
+                .build();
+        this.validator = validator;
+        this.batchSize = batchSize;
+        this.maxReportedRejections = maxReportedRejections;
+    }
+
+    public <T> ImportResult importRows(InputStream body, MediaType contentType, Class<T> type,
+                                       Consumer<List<T>> insertBatch) throws IOException {
+        Import<T> run = new Import<>(insertBatch);
+        if (TEXT_CSV.isCompatibleWith(contentType)) {
+            readCsv(body, type, run);
+        } else {
+            readNdjson(body, type, run);
+        }
+        run.flush();
+        return run.result;
+    }
+
+    private <T> void readCsv(InputStream body, Class<T> type, Import<T> run) throws IOException {
+        MappingIterator<T> rows = csvMapper.readerFor(type)
+                .with(CsvSchema.emptySchema().withHeader())
+                .readValues(body);
+        while (true) {
+            long line = rows.getCurrentLocation().getLineNr();
+            try {
+                if (!rows.hasNextValue()) {
+                    return;
+                }
+                //the parser has just read the row's first value, so this is the row's own line
+                line = rows.getCurrentLocation().getLineNr();
+                run.row(line, rows.nextValue());
+            } catch (JsonMappingException e) {
+                //the iterator skips the rest of the row and carries on with the next one
+                run.reject(line, Collections.singletonList(describe(e)));
+            } catch (JsonProcessingException e) {
+                //broken CSV (e.g. an unclosed quote): nothing after this point can be trusted
+                run.stop(line, e.getOriginalMessage());
+                return;
+            }
+        }
+    }
+
+    private <T> void readNdjson(InputStream body, Class<T> type, Import<T> run) throws IOException {
+        ObjectReader reader = mapper.readerFor(type);
+        BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        long line = 0;
+        String json;
+        while ((json = lines.readLine()) != null) {
+            line++;
+            if (json.isBlank()) {
+                continue;
+            }
+            try {
+                run.row(line, reader.readValue(json));
+            } catch (JsonMappingException e) {
+                run.reject(line, Collections.singletonList(describe(e)));
+            } catch (JsonProcessingException e) {
+                run.reject(line, Collections.singletonList("not valid JSON: " + e.getOriginalMessage()));
+            }
+        }
+    }
+
+    private static String describe(JsonMappingException e) {
+        String field = e.getPath().stream()
+                .map(JsonMappingException.Reference::getFieldName)
+                .collect(Collectors.joining("."));
+        return field.isEmpty() ? e.getOriginalMessage() : field + ": " + e.getOriginalMessage();
+    }
+
+    // State of one import: the batch being filled and the running result.
+    private class Import<T> {
+
+        final ImportResult result = new ImportResult();
+        final Consumer<List<T>> insertBatch;
+        List<T> batch = new ArrayList<>(batchSize);
+
+        Import(Consumer<List<T>> insertBatch) {
+            this.insertBatch = insertBatch;
+        }
+
+        void row(long line, T item) {
+            Set<ConstraintViolation<T>> violations = validator.validate(item);
+            if (!violations.isEmpty()) {
+                reject(line, violations.stream().map(ConstraintViolation::getMessage).sorted()
+                        .collect(Collectors.toList()));
+                return;
+            }
+            batch.add(item);
+            if (batch.size() == batchSize) {
+                flush();
+            }
+        }
+
+        void reject(long line, List<String> errors) {
+            result.setRejected(result.getRejected() + 1);
+            if (result.getRejectedRows().size() < maxReportedRejections) {
+                result.getRejectedRows().add(new ImportResult.RejectedRow(line, errors));
+            }
+        }
+
+        void stop(long line, String error) {
+            reject(line, Collections.singletonList("could not be read, import stopped here: " + error));
+            result.setComplete(false);
+        }
+
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            insertBatch.accept(batch);
+            result.setImported(result.getImported() + batch.size());
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+}
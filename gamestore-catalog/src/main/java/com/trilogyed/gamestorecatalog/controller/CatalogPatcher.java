@@ -0,0 +1,105 @@
+package com.trilogyed.gamestorecatalog.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trilogyed.gamestorecatalog.model.ItemPatch;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Turns a PATCH body into an ItemPatch. The body is a JSON object with the fields to change, e.g.
+// {"price": 24.99, "quantity": 120}, plus the "version" the item must still be at, which may come as an If-Match
+// header with the item's ETag instead. Each field is read the same way as in a full item and checked against that
+// field's javax.validation constraints only, so a patch never needs the fields it leaves alone.
+@Component
+@Profile("!reactive")
+public class CatalogPatcher {
+
+    private static final String VERSION = "version";
+
+    private final ObjectMapper mapper;
+    private final Validator validator;
+
+    @Autowired
+    public CatalogPatcher(ObjectMapper mapper, Validator validator) {
+        this.mapper = mapper;
+        this.validator = validator;
+    }
+
+    // patchable is the set of property names the patch may change. Throws PreconditionRequiredException if neither
+    // the body nor ifMatch names a version of the item with this id.
+    public <T> ItemPatch read(JsonNode body, String ifMatch, long id, Class<T> type, Set<String> patchable) {
+        if (body == null || !body.isObject()) {
+            throw new InvalidPatchException(List.of("The body must be a JSON object with the fields to change."));
+        }
+        List<String> errors = new ArrayList<>();
+        List<String> fields = new ArrayList<>();
+        for (Iterator<String> names = body.fieldNames(); names.hasNext(); ) {
+            String name = names.next();
+            if (patchable.contains(name)) {
+                fields.add(name);
+            } else if (!VERSION.equals(name)) {
+                errors.add(name + " can't be changed.");
+            }
+        }
+        Long version = null;
+        if (body.has(VERSION)) {
+            if (body.get(VERSION).canConvertToLong()) {
+                version = body.get(VERSION).longValue();
+            } else {
+                errors.add("version must be a whole number.");
+            }
+        }
+        Long taggedVersion = ItemETags.versionIn(ifMatch, id);
+        if (version != null && taggedVersion != null && !version.equals(taggedVersion)) {
+            errors.add("version doesn't match the If-Match header.");
+        }
+        if (fields.isEmpty() && errors.isEmpty()) {
+            errors.add("The body names no fields to change.");
+        }
+        if (!errors.isEmpty()) {
+            throw new InvalidPatchException(errors);
+        }
+
+        T item;
+        try {
+            item = mapper.treeToValue(body, type);
+        } catch (JsonMappingException e) {
+            throw new InvalidPatchException(List.of(e.getPath().stream()
+                    .map(JsonMappingException.Reference::getFieldName)
+                    .collect(Collectors.joining(".")) + ": " + e.getOriginalMessage()));
+        } catch (JsonProcessingException e) {
+            throw new InvalidPatchException(List.of(e.getOriginalMessage()));
+        }
+        BeanWrapperImpl properties = new BeanWrapperImpl(item);
+        Map<String, Object> changes = new LinkedHashMap<>();
+        for (String field : fields) {
+            for (ConstraintViolation<T> violation : validator.validateProperty(item, field)) {
+                errors.add(violation.getMessage());
+            }
+            changes.put(field, properties.getPropertyValue(field));
+        }
+        if (!errors.isEmpty()) {
+            throw new InvalidPatchException(errors);
+        }
+        if (version == null && taggedVersion == null) {
+            throw new PreconditionRequiredException(ifMatch == null
+                    ? "A patch must name the version it was made against, as \"version\" or If-Match."
+                    : "If-Match must hold the ETag from a GET of this item.");
+        }
+        return new ItemPatch(changes, version != null ? version : taggedVersion);
+    }
+}
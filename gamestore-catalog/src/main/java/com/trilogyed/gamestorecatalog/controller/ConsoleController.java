@@ -1,77 +1,219 @@
 package com.trilogyed.gamestorecatalog.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trilogyed.gamestorecatalog.client.InvoicingCacheNotifier;
+import com.trilogyed.gamestorecatalog.model.ImportResult;
+import com.trilogyed.gamestorecatalog.model.ItemPatch;
+import com.trilogyed.gamestorecatalog.model.KeysetPage;
 import com.trilogyed.gamestorecatalog.model.Console;
+import com.trilogyed.gamestorecatalog.model.StockReservation;
+import com.trilogyed.gamestorecatalog.repository.CatalogImportRepository;
+import com.trilogyed.gamestorecatalog.repository.CatalogPatchRepository;
+import com.trilogyed.gamestorecatalog.repository.CatalogStreamRepository;
 import com.trilogyed.gamestorecatalog.repository.ConsoleRepository;
+import com.trilogyed.gamestorecatalog.repository.OptimisticUpdates;
 //import com.trilogyed.gamestorecatalog.tShirtRepo.GameStoreCatalogServiceLayer;
 //import com.trilogyed.gamestorecatalog.viewModel.ConsoleViewModel;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Size;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
-import java.util.Optional;
 
 @RestController
 @RequestMapping(value = "/console")
 @CrossOrigin(origins = {"http://localhost:7475"})
+@Profile("!reactive")
+@Validated
 public class ConsoleController {
 
     @Autowired
     ConsoleRepository consoleRepo;
 
+    @Autowired
+    InvoicingCacheNotifier cacheNotifier;
+
+    @Autowired
+    CatalogStreamRepository catalogStreamRepo;
+
+    @Autowired
+    CatalogImportRepository catalogImportRepo;
+
+    @Autowired
+    CatalogImporter catalogImporter;
+
+    @Autowired
+    CatalogPatchRepository catalogPatchRepo;
+
+    @Autowired
+    CatalogPatcher catalogPatcher;
+
+    @Autowired
+    OptimisticUpdates optimisticUpdates;
+
+    @Autowired
+    ObjectMapper mapper;
+
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public @Valid Console createConsole(@RequestBody @Valid Console console ) {
+        console.setVersion(null);
         consoleRepo.save(console);
         return console ;
     }
 
     @GetMapping("/{id}")
-    @ResponseStatus(HttpStatus.OK)
-    public Console  getConsoleById(@PathVariable("id") long consoleId) {
-        Optional<Console> console = consoleRepo.findById(consoleId);
-        if (console == null) {
-            throw new IllegalArgumentException("Console could not be retrieved for id " + consoleId);
-        } else {
-            return (console.get());
-        }
+    public ResponseEntity<Console> getConsoleById(@PathVariable("id") long consoleId) {
+        return consoleRepo.findById(consoleId)
+                .map(console -> ResponseEntity.ok().eTag(ItemETags.of(consoleId, console.getVersion())).body(console))
+                .orElseThrow(() -> new IllegalArgumentException("Console could not be retrieved for id " + consoleId));
     }
 
+    // 409 if the body has a version and the console has changed since; without a version the update always
+    // applies, retried if a concurrent change lands between reading the current version and writing.
     @PutMapping
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void updateConsole(@RequestBody @Valid Console console) {
         if (console  == null || console .getId()< 1) {
             throw new IllegalArgumentException("Id in path must match id in view model");
         } else if (console .getId() > 0) {
-            consoleRepo.save(console);
+            if (console.getVersion() != null) {
+                consoleRepo.save(console);
+            } else {
+                optimisticUpdates.retry(Console.class, console.getId(), () -> {
+                    Console current = consoleRepo.findById(console.getId())
+                            .orElseThrow(() -> new IllegalArgumentException(
+                                    "Console could not be retrieved for id " + console.getId()));
+                    console.setVersion(current.getVersion());
+                    return consoleRepo.save(console);
+                });
+            }
+            cacheNotifier.itemChanged(InvoicingCacheNotifier.CONSOLE_ITEM_TYPE, console.getId());
         }
     }
 
+    // Partial update, e.g. PATCH /console/5 {"quantity": 120, "version": 4}; only the fields in the body are
+    // written. 409 if the console has moved past that version (or the one in the If-Match ETag), 428 without either.
+    @PatchMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void patchConsole(@PathVariable("id") long consoleId, @RequestBody JsonNode body,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        ItemPatch patch = catalogPatcher.read(body, ifMatch, consoleId, Console.class,
+                CatalogPatchRepository.CONSOLE_COLUMNS.keySet());
+        CatalogPatchRepository.Result result = catalogPatchRepo.patchConsole(consoleId, patch);
+        if (result == CatalogPatchRepository.Result.NOT_FOUND) {
+            throw new IllegalArgumentException("Console could not be retrieved for id " + consoleId);
+        }
+        if (result == CatalogPatchRepository.Result.STALE) {
+            throw new OptimisticLockingFailureException(
+                    "Version " + patch.getVersion() + " is out of date for console id " + consoleId);
+        }
+        cacheNotifier.itemChanged(InvoicingCacheNotifier.CONSOLE_ITEM_TYPE, consoleId);
+    }
+
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteConsole(@PathVariable("id") long consoleId) {
         consoleRepo.deleteById(consoleId);
+        cacheNotifier.itemChanged(InvoicingCacheNotifier.CONSOLE_ITEM_TYPE, consoleId);
+    }
+
+    @PostMapping("/{id}/reserve")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void reserveConsole(@PathVariable("id") long consoleId, @RequestParam("qty") @Min(1) long quantity,
+            @RequestParam("reservation") @NotBlank @Size(max = StockReservation.MAX_RESERVATION_ID_LENGTH)
+            String reservationId) {
+        if (consoleRepo.reserveQuantity(consoleId, quantity, reservationId) == 0) {
+            if (!consoleRepo.existsById(consoleId)) {
+                throw new IllegalArgumentException("Console could not be retrieved for id " + consoleId);
+            }
+            throw new InsufficientStockException("Requested quantity is unavailable for console id " + consoleId);
+        }
+    }
+
+    @PostMapping("/{id}/release")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void releaseConsole(@PathVariable("id") long consoleId,
+            @RequestParam("reservation") @NotBlank @Size(max = StockReservation.MAX_RESERVATION_ID_LENGTH)
+            String reservationId) {
+        if (!consoleRepo.releaseReservation(consoleId, reservationId)) {
+            throw new IllegalArgumentException("No reservation " + reservationId + " for console id " + consoleId);
+        }
     }
 
     @GetMapping("/manufacturer/{manufacturer}")
-    @ResponseStatus(HttpStatus.OK)
-    public List<Console> getConsoleByManufacturer(@PathVariable("manufacturer") String manu) {
+    public ResponseEntity<List<Console>> getConsoleByManufacturer(@PathVariable("manufacturer") String manu) {
         List<Console> cvmByManufacturer = consoleRepo.findAllByManufacturer(manu);
         if (cvmByManufacturer == null || cvmByManufacturer.isEmpty()) {
             throw new IllegalArgumentException("No consoles, manufactured by " + manu + ", were found");
         } else
-            return cvmByManufacturer;
+            return ResponseEntity.ok().eTag(ItemETags.of(cvmByManufacturer, Console::getId, Console::getVersion))
+                    .body(cvmByManufacturer);
     }
 
 
-    @GetMapping()
+    @GetMapping(params = "ids")
+    public ResponseEntity<List<Console>> getConsolesByIds(@RequestParam("ids") List<Long> ids) {
+        List<Console> consolesByIds = consoleRepo.findAllById(ids);
+        if (consolesByIds == null || consolesByIds.isEmpty()) {
+            throw new IllegalArgumentException("No consoles were found for ids " + ids);
+        }
+        return ResponseEntity.ok().eTag(ItemETags.of(consolesByIds, Console::getId, Console::getVersion))
+                .body(consolesByIds);
+    }
+
+    @GetMapping(params = "limit")
+    public ResponseEntity<KeysetPage<Console>> getConsolesPage(
+            @RequestParam(value = "afterId", defaultValue = "0") long afterId,
+            @RequestParam("limit") @Min(1) @Max(KeysetPage.MAX_LIMIT) int limit) {
+        List<Console> consoles = consoleRepo.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, limit + 1));
+        return ResponseEntity.ok().eTag(ItemETags.of(consoles, Console::getId, Console::getVersion))
+                .body(KeysetPage.of(consoles, limit, Console::getId));
+    }
+
+    @GetMapping(value = "/stream")
+    public ResponseEntity<StreamingResponseBody> streamConsoles(
+            @RequestParam(value = "afterId", defaultValue = "0") long afterId) {
+        StreamingResponseBody body = out -> {
+            NdjsonWriter writer = new NdjsonWriter(mapper, out);
+            catalogStreamRepo.streamConsoles(afterId, writer::write);
+        };
+        return ResponseEntity.ok().contentType(NdjsonWriter.APPLICATION_NDJSON).body(body);
+    }
+
+    // Bulk load from a vendor feed sent as text/csv or application/x-ndjson (see CatalogImporter for the format).
+    // Consoles are inserted in batches while the body is still being read; rows that fail validation are
+    // skipped and listed in the response.
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
     @ResponseStatus(HttpStatus.OK)
-    public List<Console > getAllConsoles() {
+    public ImportResult importConsoles(InputStream body,
+                                     @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType) throws IOException {
+        return catalogImporter.importRows(body, contentType, Console.class, catalogImportRepo::insertConsoles);
+    }
+
+    @GetMapping()
+    public ResponseEntity<List<Console>> getAllConsoles() {
         List<Console > allConsoles = consoleRepo.findAll();
         if (allConsoles == null || allConsoles.isEmpty()) {
             throw new IllegalArgumentException("No consoles were found");
         } else
-            return allConsoles;
+            return ResponseEntity.ok().eTag(ItemETags.of(allConsoles, Console::getId, Console::getVersion))
+                    .body(allConsoles);
     }
 }
@@ -1,101 +1,255 @@
 package com.trilogyed.gamestorecatalog.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trilogyed.gamestorecatalog.client.InvoicingCacheNotifier;
 import com.trilogyed.gamestorecatalog.model.Game;
+import com.trilogyed.gamestorecatalog.model.StockReservation;
+import com.trilogyed.gamestorecatalog.model.ImportResult;
+import com.trilogyed.gamestorecatalog.model.ItemPatch;
+import com.trilogyed.gamestorecatalog.model.KeysetPage;
+import com.trilogyed.gamestorecatalog.repository.CatalogImportRepository;
+import com.trilogyed.gamestorecatalog.repository.CatalogPatchRepository;
+import com.trilogyed.gamestorecatalog.repository.CatalogStreamRepository;
 import com.trilogyed.gamestorecatalog.repository.GameRepository;
+import com.trilogyed.gamestorecatalog.repository.OptimisticUpdates;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Size;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
-import java.util.Optional;
 
 @RestController
 @RequestMapping("/game")
 @CrossOrigin(origins = {"http://localhost:7475"})
+@Profile("!reactive")
+@Validated
 public class GameController {
 
     @Autowired
     GameRepository gameRepo;
+
+    @Autowired
+    InvoicingCacheNotifier cacheNotifier;
+
+    @Autowired
+    CatalogStreamRepository catalogStreamRepo;
+
+    @Autowired
+    CatalogImportRepository catalogImportRepo;
+
+    @Autowired
+    CatalogImporter catalogImporter;
+
+    @Autowired
+    CatalogPatchRepository catalogPatchRepo;
+
+    @Autowired
+    CatalogPatcher catalogPatcher;
+
+    @Autowired
+    OptimisticUpdates optimisticUpdates;
+
+    @Autowired
+    ObjectMapper mapper;
     
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public Game createGame(@RequestBody @Valid Game game) {
+        //a new game starts at version 0, whatever the body says
+        game.setVersion(null);
         Game game2 = gameRepo.save(game);
         return game2;
     }
 
+    // The ETag is the game's id and version (see ItemETags); a GET with If-None-Match naming the current one gets 304
+    // and no body. findById is normally answered from the second-level cache, so neither answer costs a query.
     @GetMapping("/{id}")
-    @ResponseStatus(HttpStatus.OK)
-    public Game getGameInfo(@PathVariable("id") long gameId) {
-        Optional<Game> game = gameRepo.findById(gameId);
-        if (game == null) {
-            throw new IllegalArgumentException("Game not found for id " + gameId);
-        } else {
-            return (game.get());
-        }
+    public ResponseEntity<Game> getGameInfo(@PathVariable("id") long gameId) {
+        return gameRepo.findById(gameId)
+                .map(game -> ResponseEntity.ok().eTag(ItemETags.of(gameId, game.getVersion())).body(game))
+                .orElseThrow(() -> new IllegalArgumentException("Game not found for id " + gameId));
     }
 
+    // With the version from a GET in the body, the update fails with 409 if the game has changed since. Without
+    // one it replaces whatever is there now, retrying if a concurrent change lands between the read and the write.
     @PutMapping
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void updateGame(@RequestBody @Valid Game game) {
         if(game == null || game.getId()< 1) {
             throw new IllegalArgumentException("Game does not exist.");
         }else if (game.getId() > 0){
-            gameRepo.save(game);
+            if (game.getVersion() != null) {
+                gameRepo.save(game);
+            } else {
+                optimisticUpdates.retry(Game.class, game.getId(), () -> {
+                    Game current = gameRepo.findById(game.getId())
+                            .orElseThrow(() -> new IllegalArgumentException("Game not found for id " + game.getId()));
+                    game.setVersion(current.getVersion());
+                    return gameRepo.save(game);
+                });
+            }
+            cacheNotifier.itemChanged(InvoicingCacheNotifier.GAME_ITEM_TYPE, game.getId());
+        }
+    }
+
+    // Partial update, e.g. PATCH /game/5 {"price": 24.99, "version": 3}. Only the fields in the body are written,
+    // in a single UPDATE that doesn't read the game first, and only while the game is still at that version, 409
+    // otherwise; every patch and stock change moves the version on. The version comes from the GET body, or its ETag
+    // goes in If-Match instead; a patch with neither gets 428.
+    @PatchMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void patchGame(@PathVariable("id") long gameId, @RequestBody JsonNode body,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        ItemPatch patch = catalogPatcher.read(body, ifMatch, gameId, Game.class,
+                CatalogPatchRepository.GAME_COLUMNS.keySet());
+        CatalogPatchRepository.Result result = catalogPatchRepo.patchGame(gameId, patch);
+        if (result == CatalogPatchRepository.Result.NOT_FOUND) {
+            throw new IllegalArgumentException("Game not found for id " + gameId);
+        }
+        if (result == CatalogPatchRepository.Result.STALE) {
+            throw new OptimisticLockingFailureException(
+                    "Version " + patch.getVersion() + " is out of date for game id " + gameId);
         }
+        cacheNotifier.itemChanged(InvoicingCacheNotifier.GAME_ITEM_TYPE, gameId);
     }
 
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteGame(@PathVariable("id") long gameId) {
         gameRepo.deleteById(gameId);
+        cacheNotifier.itemChanged(InvoicingCacheNotifier.GAME_ITEM_TYPE, gameId);
+    }
+
+    // Stock reservation for purchases, e.g. POST /game/5/reserve?qty=2&reservation=<id>. The decrement is a single
+    // conditional UPDATE, so the entity is never loaded; 409 if there isn't enough stock, 404 if the game doesn't
+    // exist, 400 for a qty below 1 or a blank or overlong reservation id. The caller picks a new reservation id per
+    // purchase line; repeating a reserve with it is a no-op.
+    @PostMapping("/{id}/reserve")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void reserveGame(@PathVariable("id") long gameId, @RequestParam("qty") @Min(1) long quantity,
+            @RequestParam("reservation") @NotBlank @Size(max = StockReservation.MAX_RESERVATION_ID_LENGTH)
+            String reservationId) {
+        if (gameRepo.reserveQuantity(gameId, quantity, reservationId) == 0) {
+            if (!gameRepo.existsById(gameId)) {
+                throw new IllegalArgumentException("Game not found for id " + gameId);
+            }
+            throw new InsufficientStockException("Requested quantity is unavailable for game id " + gameId);
+        }
+    }
+
+    // Gives back the stock taken by the reservation with this id, for a purchase that did not go through. Only the
+    // reserved quantity is returned, and only once, so retrying a release is safe; 404 for an unknown reservation.
+    @PostMapping("/{id}/release")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void releaseGame(@PathVariable("id") long gameId,
+            @RequestParam("reservation") @NotBlank @Size(max = StockReservation.MAX_RESERVATION_ID_LENGTH)
+            String reservationId) {
+        if (!gameRepo.releaseReservation(gameId, reservationId)) {
+            throw new IllegalArgumentException("No reservation " + reservationId + " for game id " + gameId);
+        }
     }
 
     @GetMapping("/title/{title}")
-    @ResponseStatus(HttpStatus.OK)
-    public List<Game> getGamesByTitle(@PathVariable("title") String title) {
+    public ResponseEntity<List<Game>> getGamesByTitle(@PathVariable("title") String title) {
         List<Game> gamesByTitle =   gameRepo.findAllByTitle(title);
 
         if (gamesByTitle == null || gamesByTitle.isEmpty()) {
             throw new IllegalArgumentException("No games were found with " + title);
         } else {
-            return gamesByTitle;
+            return ResponseEntity.ok().eTag(ItemETags.of(gamesByTitle, Game::getId, Game::getVersion))
+                    .body(gamesByTitle);
         }
     }
 
     @GetMapping("/esrbrating/{esrb}")
-    @ResponseStatus(HttpStatus.OK)
-    public List<Game> getGamesByEsrbRating(@PathVariable("esrb") String esrb) {
+    public ResponseEntity<List<Game>> getGamesByEsrbRating(@PathVariable("esrb") String esrb) {
         List<Game> gamesByEsrbRating = gameRepo.findAllByEsrbRating(esrb);
 
         if (gamesByEsrbRating == null || gamesByEsrbRating.isEmpty()) {
             throw new IllegalArgumentException("No games were found with ESRB Rating " + esrb);
         } else {
-            return gamesByEsrbRating;
+            return ResponseEntity.ok().eTag(ItemETags.of(gamesByEsrbRating, Game::getId, Game::getVersion))
+                    .body(gamesByEsrbRating);
         }
     }
 
     @GetMapping("/studio/{studio}")
-    @ResponseStatus(HttpStatus.OK)
-    public List<Game> getGamesByStudio(@PathVariable("studio") String studio) {
+    public ResponseEntity<List<Game>> getGamesByStudio(@PathVariable("studio") String studio) {
         List<Game> gamesByStudio = gameRepo.findAllByStudio(studio);
 
         if (gamesByStudio == null || gamesByStudio.isEmpty()) {
             throw new IllegalArgumentException("No games were found from " + studio);
         } else {
-            return gamesByStudio;
+            return ResponseEntity.ok().eTag(ItemETags.of(gamesByStudio, Game::getId, Game::getVersion))
+                    .body(gamesByStudio);
         }
     }
 
-    @GetMapping()
+    // Bulk lookup, e.g. GET /game?ids=1,2,3. Ids that don't exist are simply left out.
+    @GetMapping(params = "ids")
+    public ResponseEntity<List<Game>> getGamesByIds(@RequestParam("ids") List<Long> ids) {
+        List<Game> gamesByIds = gameRepo.findAllById(ids);
+        if (gamesByIds == null || gamesByIds.isEmpty()) {
+            throw new IllegalArgumentException("No games were found for ids " + ids);
+        }
+        return ResponseEntity.ok().eTag(ItemETags.of(gamesByIds, Game::getId, Game::getVersion)).body(gamesByIds);
+    }
+
+    // Keyset pagination: GET /game?limit=100, then GET /game?limit=100&afterId=<nextAfterId>.
+    @GetMapping(params = "limit")
+    public ResponseEntity<KeysetPage<Game>> getGamesPage(
+            @RequestParam(value = "afterId", defaultValue = "0") long afterId,
+            @RequestParam("limit") @Min(1) @Max(KeysetPage.MAX_LIMIT) int limit) {
+        List<Game> games = gameRepo.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, limit + 1));
+        //tagged on every row read, so the tag also changes when a next page appears or goes away
+        return ResponseEntity.ok().eTag(ItemETags.of(games, Game::getId, Game::getVersion))
+                .body(KeysetPage.of(games, limit, Game::getId));
+    }
+
+    // Whole table as NDJSON, one game per line, written as rows are read.
+    @GetMapping(value = "/stream")
+    public ResponseEntity<StreamingResponseBody> streamGames(
+            @RequestParam(value = "afterId", defaultValue = "0") long afterId) {
+        StreamingResponseBody body = out -> {
+            NdjsonWriter writer = new NdjsonWriter(mapper, out);
+            catalogStreamRepo.streamGames(afterId, writer::write);
+        };
+        return ResponseEntity.ok().contentType(NdjsonWriter.APPLICATION_NDJSON).body(body);
+    }
+
+    // Bulk load from a vendor feed sent as text/csv or application/x-ndjson (see CatalogImporter for the format).
+    // Games are inserted in batches while the body is still being read; rows that fail validation are
+    // skipped and listed in the response.
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
     @ResponseStatus(HttpStatus.OK)
-    public List<Game> getAllGames() {
+    public ImportResult importGames(InputStream body,
+                                     @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType) throws IOException {
+        return catalogImporter.importRows(body, contentType, Game.class, catalogImportRepo::insertGames);
+    }
+
+    @GetMapping()
+    public ResponseEntity<List<Game>> getAllGames() {
         List<Game> allGames = gameRepo.findAll();
 
         if (allGames == null || allGames.isEmpty()) {
             throw new IllegalArgumentException("No games were found.");
         } else {
-            return allGames;
+            return ResponseEntity.ok().eTag(ItemETags.of(allGames, Game::getId, Game::getVersion)).body(allGames);
         }
     }
 }
@@ -1,5 +1,8 @@
 package com.trilogyed.gamestorecatalog.controller;
 import org.springframework.http.HttpHeaders;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -9,6 +12,7 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+import javax.validation.ConstraintViolationException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.LinkedHashMap;
@@ -17,6 +21,7 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestControllerAdvice
+@Profile("!reactive")
 @RequestMapping(produces = "application/json")
 public class GameStoreCatalogControllerExceptionHandler extends ResponseEntityExceptionHandler {
 
@@ -30,6 +35,79 @@ public class GameStoreCatalogControllerExceptionHandler extends ResponseEntityEx
 
         return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
     }
+
+    //Not enough stock to reserve
+    @ExceptionHandler({InsufficientStockException.class})
+    public ResponseEntity<Object> handleInsufficientStock(
+            InsufficientStockException ex, WebRequest request) {
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("message", ex.getMessage());
+
+        return new ResponseEntity<>(body, HttpStatus.CONFLICT);
+    }
+
+    //Reservation id already used to reserve a different item or quantity
+    @ExceptionHandler({DuplicateKeyException.class})
+    public ResponseEntity<Object> handleReusedReservation(
+            DuplicateKeyException ex, WebRequest request) {
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("message", ex.getMessage());
+
+        return new ResponseEntity<>(body, HttpStatus.CONFLICT);
+    }
+
+    //PUT or PATCH with a version the item has already moved past: someone else's update got there first. The client should
+    //GET the item again and redo its change on top of it
+    @ExceptionHandler({OptimisticLockingFailureException.class})
+    public ResponseEntity<Object> handleStaleVersion(
+            OptimisticLockingFailureException ex, WebRequest request) {
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("message", "The item has changed since the version in the request; get it again and retry.");
+
+        return new ResponseEntity<>(body, HttpStatus.CONFLICT);
+    }
+
+    //out-of-range request parameters, e.g. ?limit=0
+    @ExceptionHandler({ConstraintViolationException.class})
+    public ResponseEntity<Object> handleInvalidParameter(
+            ConstraintViolationException ex, WebRequest request) {
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("message", ex.getMessage());
+
+        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
+
+    //PATCH body with fields that can't be changed or values that fail validation; same shape as an invalid body
+    @ExceptionHandler({InvalidPatchException.class})
+    public ResponseEntity<Object> handleInvalidPatch(
+            InvalidPatchException ex, WebRequest request) {
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDate.now());
+        body.put("status", HttpStatus.UNPROCESSABLE_ENTITY.value());
+        body.put("errors", ex.getErrors());
+
+        return new ResponseEntity<>(body, HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+    //PATCH that doesn't say which version it was made against, so it could overwrite changes it never saw
+    @ExceptionHandler({PreconditionRequiredException.class})
+    public ResponseEntity<Object> handlePreconditionRequired(
+            PreconditionRequiredException ex, WebRequest request) {
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("message", ex.getMessage());
+
+        return new ResponseEntity<>(body, HttpStatus.PRECONDITION_REQUIRED);
+    }
     //Handles all other exceptions...
     @Override
     public ResponseEntity<Object> handleMethodArgumentNotValid(
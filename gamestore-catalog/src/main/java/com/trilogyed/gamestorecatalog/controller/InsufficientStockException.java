@@ -0,0 +1,9 @@
+package com.trilogyed.gamestorecatalog.controller;
+
+// Thrown for a reserve asking for more of an item than is in stock.
+public class InsufficientStockException extends RuntimeException {
+
+    public InsufficientStockException(String message) {
+        super(message);
+    }
+}
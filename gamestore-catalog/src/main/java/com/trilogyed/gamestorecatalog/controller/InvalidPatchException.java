@@ -0,0 +1,18 @@
+package com.trilogyed.gamestorecatalog.controller;
+
+import java.util.List;
+
+// Thrown for a PATCH body that names fields which can't be changed or holds values that fail validation.
+public class InvalidPatchException extends RuntimeException {
+
+    private final List<String> errors;
+
+    public InvalidPatchException(List<String> errors) {
+        super(String.join("; ", errors));
+        this.errors = errors;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,42 @@
+package com.trilogyed.gamestorecatalog.controller;
+
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+// Strong ETags for catalog GETs, built from item ids and versions instead of the JSON. Every change to an item
+// (PUT, PATCH, stock reservation) moves its version on, so the id and version pin down the whole representation
+// and the tag can be worked out from the cached entity before anything is serialized. A list's tag is a digest of
+// its ids and versions in order, so adding, removing, reordering or changing any item changes it.
+class ItemETags {
+
+    static String of(long id, Long version) {
+        return "\"" + id + "." + version + "\"";
+    }
+
+    // The version in an If-Match header that holds this item's tag, or null if it holds none: no header, "*", a
+    // weak tag, a list of tags or another item's tag.
+    static Long versionIn(String ifMatch, long id) {
+        String prefix = "\"" + id + ".";
+        if (ifMatch == null || !ifMatch.startsWith(prefix) || !ifMatch.endsWith("\"") ||
+                ifMatch.length() <= prefix.length() + 1) {
+            return null;
+        }
+        try {
+            return Long.valueOf(ifMatch.substring(prefix.length(), ifMatch.length() - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static <T> String of(List<T> items, ToLongFunction<T> idOf, Function<T, Long> versionOf) {
+        StringBuilder ids = new StringBuilder(items.size() * 8);
+        for (T item : items) {
+            ids.append(idOf.applyAsLong(item)).append('.').append(versionOf.apply(item)).append(',');
+        }
+        return "\"" + DigestUtils.md5DigestAsHex(ids.toString().getBytes(StandardCharsets.US_ASCII)) + "\"";
+    }
+}
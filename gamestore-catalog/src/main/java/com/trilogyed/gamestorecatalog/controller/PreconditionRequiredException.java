@@ -0,0 +1,9 @@
+package com.trilogyed.gamestorecatalog.controller;
+
+// Thrown for a PATCH that doesn't say which version of the item it was made against, in the body or as If-Match.
+public class PreconditionRequiredException extends RuntimeException {
+
+    public PreconditionRequiredException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,41 @@
+package com.trilogyed.gamestorecatalog.controller;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import javax.validation.ConstraintViolationException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// GameStoreCatalogControllerExceptionHandler for the reactive profile, which only serves reads.
+@RestControllerAdvice
+@RequestMapping(produces = "application/json")
+@Profile("reactive")
+public class ReactiveCatalogExceptionHandler {
+
+    @ExceptionHandler({IllegalArgumentException.class})
+    public ResponseEntity<Object> handleNotFound(IllegalArgumentException ex) {
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("message", ex.getMessage());
+
+        return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
+    }
+
+    //out-of-range request parameters, e.g. ?limit=0
+    @ExceptionHandler({ConstraintViolationException.class})
+    public ResponseEntity<Object> handleInvalidParameter(ConstraintViolationException ex) {
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("message", ex.getMessage());
+
+        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
+}
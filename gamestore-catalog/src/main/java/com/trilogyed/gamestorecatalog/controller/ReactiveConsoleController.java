@@ -0,0 +1,72 @@
+package com.trilogyed.gamestorecatalog.controller;
+
+import com.trilogyed.gamestorecatalog.model.Console;
+import com.trilogyed.gamestorecatalog.model.KeysetPage;
+import com.trilogyed.gamestorecatalog.repository.ReactiveCatalogRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+import java.util.List;
+
+// Read-only /console endpoints for the reactive profile; see ReactiveGameController.
+@RestController
+@RequestMapping(value = "/console")
+@CrossOrigin(origins = {"http://localhost:7475"})
+@Profile("reactive")
+@Validated
+public class ReactiveConsoleController {
+
+    @Autowired
+    ReactiveCatalogRepository catalogRepo;
+
+    @GetMapping("/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<Console> getConsoleById(@PathVariable("id") long consoleId) {
+        return catalogRepo.findConsoleById(consoleId)
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Console could not be retrieved for id " + consoleId)));
+    }
+
+    @GetMapping(value = "/manufacturer/{manufacturer}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    public Flux<Console> getConsoleByManufacturer(@PathVariable("manufacturer") String manu) {
+        return catalogRepo.findConsolesByManufacturer(manu)
+                .switchIfEmpty(Flux.error(() -> new IllegalArgumentException("No consoles, manufactured by " + manu + ", were found")));
+    }
+
+    @GetMapping(params = "ids", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    public Flux<Console> getConsolesByIds(@RequestParam("ids") List<Long> ids) {
+        return catalogRepo.findConsolesByIds(ids)
+                .switchIfEmpty(Flux.error(() -> new IllegalArgumentException("No consoles were found for ids " + ids)));
+    }
+
+    @GetMapping(params = "limit")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<KeysetPage<Console>> getConsolesPage(@RequestParam(value = "afterId", defaultValue = "0") long afterId,
+                                                     @RequestParam("limit") @Min(1) @Max(KeysetPage.MAX_LIMIT)
+                                                     int limit) {
+        return catalogRepo.findConsolesAfter(afterId, limit + 1).collectList()
+                .map(consoles -> KeysetPage.of(consoles, limit, Console::getId));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Console> streamConsoles(@RequestParam(value = "afterId", defaultValue = "0") long afterId) {
+        return catalogRepo.findAllConsoles(afterId);
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    public Flux<Console> getAllConsoles() {
+        return catalogRepo.findAllConsoles(0)
+                .switchIfEmpty(Flux.error(() -> new IllegalArgumentException("No consoles were found")));
+    }
+}
@@ -0,0 +1,88 @@
+package com.trilogyed.gamestorecatalog.controller;
+
+import com.trilogyed.gamestorecatalog.model.Game;
+import com.trilogyed.gamestorecatalog.model.KeysetPage;
+import com.trilogyed.gamestorecatalog.repository.ReactiveCatalogRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+import java.util.List;
+
+// Read-only /game endpoints for the reactive profile, same paths and responses as GameController's GETs.
+// List endpoints stream one game per line when asked for application/x-ndjson; with application/json WebFlux
+// collects them into the usual JSON array.
+@RestController
+@RequestMapping("/game")
+@CrossOrigin(origins = {"http://localhost:7475"})
+@Profile("reactive")
+@Validated
+public class ReactiveGameController {
+
+    @Autowired
+    ReactiveCatalogRepository catalogRepo;
+
+    @GetMapping("/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<Game> getGameInfo(@PathVariable("id") long gameId) {
+        return catalogRepo.findGameById(gameId)
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Game not found for id " + gameId)));
+    }
+
+    @GetMapping(value = "/title/{title}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    public Flux<Game> getGamesByTitle(@PathVariable("title") String title) {
+        return catalogRepo.findGamesByTitle(title)
+                .switchIfEmpty(Flux.error(() -> new IllegalArgumentException("No games were found with " + title)));
+    }
+
+    @GetMapping(value = "/esrbrating/{esrb}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    public Flux<Game> getGamesByEsrbRating(@PathVariable("esrb") String esrb) {
+        return catalogRepo.findGamesByEsrbRating(esrb)
+                .switchIfEmpty(Flux.error(() -> new IllegalArgumentException("No games were found with ESRB Rating " + esrb)));
+    }
+
+    @GetMapping(value = "/studio/{studio}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    public Flux<Game> getGamesByStudio(@PathVariable("studio") String studio) {
+        return catalogRepo.findGamesByStudio(studio)
+                .switchIfEmpty(Flux.error(() -> new IllegalArgumentException("No games were found from " + studio)));
+    }
+
+    @GetMapping(params = "ids", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    public Flux<Game> getGamesByIds(@RequestParam("ids") List<Long> ids) {
+        return catalogRepo.findGamesByIds(ids)
+                .switchIfEmpty(Flux.error(() -> new IllegalArgumentException("No games were found for ids " + ids)));
+    }
+
+    @GetMapping(params = "limit")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<KeysetPage<Game>> getGamesPage(@RequestParam(value = "afterId", defaultValue = "0") long afterId,
+                                               @RequestParam("limit") @Min(1) @Max(KeysetPage.MAX_LIMIT)
+                                               int limit) {
+        return catalogRepo.findGamesAfter(afterId, limit + 1).collectList()
+                .map(games -> KeysetPage.of(games, limit, Game::getId));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Game> streamGames(@RequestParam(value = "afterId", defaultValue = "0") long afterId) {
+        return catalogRepo.findAllGames(afterId);
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    public Flux<Game> getAllGames() {
+        return catalogRepo.findAllGames(0)
+                .switchIfEmpty(Flux.error(() -> new IllegalArgumentException("No games were found.")));
+    }
+}
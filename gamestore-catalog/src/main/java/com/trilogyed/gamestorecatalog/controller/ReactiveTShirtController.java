@@ -0,0 +1,79 @@
+package com.trilogyed.gamestorecatalog.controller;
+
+import com.trilogyed.gamestorecatalog.model.KeysetPage;
+import com.trilogyed.gamestorecatalog.model.TShirt;
+import com.trilogyed.gamestorecatalog.repository.ReactiveCatalogRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+import java.util.List;
+
+// Read-only /tshirt endpoints for the reactive profile; see ReactiveGameController.
+@RestController
+@RequestMapping(value = "/tshirt")
+@CrossOrigin(origins = {"http://localhost:3000"})
+@Profile("reactive")
+@Validated
+public class ReactiveTShirtController {
+
+    @Autowired
+    ReactiveCatalogRepository catalogRepo;
+
+    @GetMapping("/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<TShirt> getTShirtById(@PathVariable("id") long tShirtId) {
+        return catalogRepo.findTShirtById(tShirtId)
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("T-Shirt could not be retrieved for id " + tShirtId)));
+    }
+
+    @GetMapping(value = "/size/{size}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    public Flux<TShirt> getTShirtsBySize(@PathVariable("size") String size) {
+        return catalogRepo.findTShirtsBySize(size)
+                .switchIfEmpty(Flux.error(() -> new IllegalArgumentException("No t-shirts were found in size " + size)));
+    }
+
+    @GetMapping(value = "/color/{color}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    public Flux<TShirt> getTShirtsByColor(@PathVariable("color") String color) {
+        return catalogRepo.findTShirtsByColor(color)
+                .switchIfEmpty(Flux.error(() -> new IllegalArgumentException("No t-shirts were found in " + color)));
+    }
+
+    @GetMapping(params = "ids", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    public Flux<TShirt> getTShirtsByIds(@RequestParam("ids") List<Long> ids) {
+        return catalogRepo.findTShirtsByIds(ids)
+                .switchIfEmpty(Flux.error(() -> new IllegalArgumentException("No t-shirts were found for ids " + ids)));
+    }
+
+    @GetMapping(params = "limit")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<KeysetPage<TShirt>> getTShirtsPage(@RequestParam(value = "afterId", defaultValue = "0") long afterId,
+                                                   @RequestParam("limit") @Min(1) @Max(KeysetPage.MAX_LIMIT)
+                                                   int limit) {
+        return catalogRepo.findTShirtsAfter(afterId, limit + 1).collectList()
+                .map(tShirts -> KeysetPage.of(tShirts, limit, TShirt::getId));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<TShirt> streamTShirts(@RequestParam(value = "afterId", defaultValue = "0") long afterId) {
+        return catalogRepo.findAllTShirts(afterId);
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    public Flux<TShirt> getAllTShirts() {
+        return catalogRepo.findAllTShirts(0)
+                .switchIfEmpty(Flux.error(() -> new IllegalArgumentException("No t-shirts were found.")));
+    }
+}
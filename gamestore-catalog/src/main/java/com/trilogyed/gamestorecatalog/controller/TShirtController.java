@@ -1,84 +1,224 @@
 package com.trilogyed.gamestorecatalog.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trilogyed.gamestorecatalog.client.InvoicingCacheNotifier;
+import com.trilogyed.gamestorecatalog.model.ImportResult;
+import com.trilogyed.gamestorecatalog.model.ItemPatch;
+import com.trilogyed.gamestorecatalog.model.KeysetPage;
 import com.trilogyed.gamestorecatalog.model.TShirt;
+import com.trilogyed.gamestorecatalog.model.StockReservation;
+import com.trilogyed.gamestorecatalog.repository.CatalogImportRepository;
+import com.trilogyed.gamestorecatalog.repository.CatalogPatchRepository;
+import com.trilogyed.gamestorecatalog.repository.CatalogStreamRepository;
+import com.trilogyed.gamestorecatalog.repository.OptimisticUpdates;
 import com.trilogyed.gamestorecatalog.repository.TShirtRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Size;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
-import java.util.Optional;
 
 @RestController
 @RequestMapping(value = "/tshirt")
 @CrossOrigin(origins = {"http://localhost:3000"})
+@Profile("!reactive")
+@Validated
 public class TShirtController {
 
     @Autowired
     TShirtRepository tShirtRepo;
 
+    @Autowired
+    InvoicingCacheNotifier cacheNotifier;
+
+    @Autowired
+    CatalogStreamRepository catalogStreamRepo;
+
+    @Autowired
+    CatalogImportRepository catalogImportRepo;
+
+    @Autowired
+    CatalogImporter catalogImporter;
+
+    @Autowired
+    CatalogPatchRepository catalogPatchRepo;
+
+    @Autowired
+    CatalogPatcher catalogPatcher;
+
+    @Autowired
+    OptimisticUpdates optimisticUpdates;
+
+    @Autowired
+    ObjectMapper mapper;
+
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public TShirt createTShirt(@RequestBody @Valid TShirt tShirt) {
+        tShirt.setVersion(null);
         tShirt = tShirtRepo.save(tShirt);
         return tShirt;
     }
 
     @GetMapping("/{id}")
-    @ResponseStatus(HttpStatus.OK)
-    public TShirt getTShirtById(@PathVariable("id") Long tShirtId) {
-        Optional<TShirt> tShirt = tShirtRepo.findById(tShirtId);
-        if (tShirt == null) {
-            throw new IllegalArgumentException("T-Shirt could not be retrieved for id " + tShirtId);
-        } else {
-            return (tShirt.get());
-        }
+    public ResponseEntity<TShirt> getTShirtById(@PathVariable("id") Long tShirtId) {
+        return tShirtRepo.findById(tShirtId)
+                .map(tShirt -> ResponseEntity.ok().eTag(ItemETags.of(tShirtId, tShirt.getVersion())).body(tShirt))
+                .orElseThrow(() -> new IllegalArgumentException("T-Shirt could not be retrieved for id " + tShirtId));
     }
 
+    // Versioned like PUT /game: 409 on a stale version, retried last-writer-wins when the body has none.
     @PutMapping
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void updateTShirt(@RequestBody @Valid TShirt tShirt) {
         if (tShirt == null || tShirt.getId() < 1) {
             throw new IllegalArgumentException("Id in path must match id in view model");
         }else if (tShirt.getId() > 0) {
-            tShirtRepo.save(tShirt);
+            if (tShirt.getVersion() != null) {
+                tShirtRepo.save(tShirt);
+            } else {
+                optimisticUpdates.retry(TShirt.class, tShirt.getId(), () -> {
+                    TShirt current = tShirtRepo.findById(tShirt.getId())
+                            .orElseThrow(() -> new IllegalArgumentException(
+                                    "T-Shirt could not be retrieved for id " + tShirt.getId()));
+                    tShirt.setVersion(current.getVersion());
+                    return tShirtRepo.save(tShirt);
+                });
+            }
+            cacheNotifier.itemChanged(InvoicingCacheNotifier.TSHIRT_ITEM_TYPE, tShirt.getId());
+        }
+    }
+
+    // Partial update, e.g. PATCH /tshirt/5 {"price": 12.50, "version": 7}; only the fields in the body are written.
+    // 409 if the t-shirt has moved past that version (or the one in the If-Match ETag), 428 without either.
+    @PatchMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void patchTShirt(@PathVariable("id") long tShirtId, @RequestBody JsonNode body,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        ItemPatch patch = catalogPatcher.read(body, ifMatch, tShirtId, TShirt.class,
+                CatalogPatchRepository.TSHIRT_COLUMNS.keySet());
+        CatalogPatchRepository.Result result = catalogPatchRepo.patchTShirt(tShirtId, patch);
+        if (result == CatalogPatchRepository.Result.NOT_FOUND) {
+            throw new IllegalArgumentException("T-Shirt could not be retrieved for id " + tShirtId);
+        }
+        if (result == CatalogPatchRepository.Result.STALE) {
+            throw new OptimisticLockingFailureException(
+                    "Version " + patch.getVersion() + " is out of date for t-shirt id " + tShirtId);
         }
+        cacheNotifier.itemChanged(InvoicingCacheNotifier.TSHIRT_ITEM_TYPE, tShirtId);
     }
 
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteTShirt(@PathVariable("id") Long tShirtId) {
         tShirtRepo.deleteById(tShirtId);
+        cacheNotifier.itemChanged(InvoicingCacheNotifier.TSHIRT_ITEM_TYPE, tShirtId);
+    }
+
+    @PostMapping("/{id}/reserve")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void reserveTShirt(@PathVariable("id") long tShirtId, @RequestParam("qty") @Min(1) long quantity,
+            @RequestParam("reservation") @NotBlank @Size(max = StockReservation.MAX_RESERVATION_ID_LENGTH)
+            String reservationId) {
+        if (tShirtRepo.reserveQuantity(tShirtId, quantity, reservationId) == 0) {
+            if (!tShirtRepo.existsById(tShirtId)) {
+                throw new IllegalArgumentException("T-Shirt could not be retrieved for id " + tShirtId);
+            }
+            throw new InsufficientStockException("Requested quantity is unavailable for t-shirt id " + tShirtId);
+        }
+    }
+
+    @PostMapping("/{id}/release")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void releaseTShirt(@PathVariable("id") long tShirtId,
+            @RequestParam("reservation") @NotBlank @Size(max = StockReservation.MAX_RESERVATION_ID_LENGTH)
+            String reservationId) {
+        if (!tShirtRepo.releaseReservation(tShirtId, reservationId)) {
+            throw new IllegalArgumentException("No reservation " + reservationId + " for t-shirt id " + tShirtId);
+        }
     }
 
     @GetMapping("/size/{size}")
-    @ResponseStatus(HttpStatus.OK)
-    public List<TShirt> getTShirtsBySize(@PathVariable("size") String size) {
+    public ResponseEntity<List<TShirt>> getTShirtsBySize(@PathVariable("size") String size) {
         List<TShirt> tShirtsBySize = tShirtRepo.findAllBySize(size);
         if (tShirtsBySize == null || tShirtsBySize.isEmpty()) {
             throw new IllegalArgumentException("No t-shirts were found in size " + size);
         }
-        return tShirtsBySize;
+        return ResponseEntity.ok().eTag(ItemETags.of(tShirtsBySize, TShirt::getId, TShirt::getVersion))
+                .body(tShirtsBySize);
     }
 
     @GetMapping("/color/{color}")
-    @ResponseStatus(HttpStatus.OK)
-    public List<TShirt> getTShirtsByColor(@PathVariable("color") String color) {
+    public ResponseEntity<List<TShirt>> getTShirtsByColor(@PathVariable("color") String color) {
         List<TShirt> tShirtsByColor = tShirtRepo.findAllByColor(color);
         if (tShirtsByColor == null || tShirtsByColor.isEmpty()) {
             throw new IllegalArgumentException("No t-shirts were found in " + color);
         }
-        return tShirtsByColor;
+        return ResponseEntity.ok().eTag(ItemETags.of(tShirtsByColor, TShirt::getId, TShirt::getVersion))
+                .body(tShirtsByColor);
     }
 
-    @GetMapping()
+    @GetMapping(params = "ids")
+    public ResponseEntity<List<TShirt>> getTShirtsByIds(@RequestParam("ids") List<Long> ids) {
+        List<TShirt> tShirtsByIds = tShirtRepo.findAllById(ids);
+        if (tShirtsByIds == null || tShirtsByIds.isEmpty()) {
+            throw new IllegalArgumentException("No t-shirts were found for ids " + ids);
+        }
+        return ResponseEntity.ok().eTag(ItemETags.of(tShirtsByIds, TShirt::getId, TShirt::getVersion))
+                .body(tShirtsByIds);
+    }
+
+    @GetMapping(params = "limit")
+    public ResponseEntity<KeysetPage<TShirt>> getTShirtsPage(
+            @RequestParam(value = "afterId", defaultValue = "0") long afterId,
+            @RequestParam("limit") @Min(1) @Max(KeysetPage.MAX_LIMIT) int limit) {
+        List<TShirt> tShirts = tShirtRepo.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, limit + 1));
+        return ResponseEntity.ok().eTag(ItemETags.of(tShirts, TShirt::getId, TShirt::getVersion))
+                .body(KeysetPage.of(tShirts, limit, TShirt::getId));
+    }
+
+    @GetMapping(value = "/stream")
+    public ResponseEntity<StreamingResponseBody> streamTShirts(
+            @RequestParam(value = "afterId", defaultValue = "0") long afterId) {
+        StreamingResponseBody body = out -> {
+            NdjsonWriter writer = new NdjsonWriter(mapper, out);
+            catalogStreamRepo.streamTShirts(afterId, writer::write);
+        };
+        return ResponseEntity.ok().contentType(NdjsonWriter.APPLICATION_NDJSON).body(body);
+    }
+
+    // Bulk load from a vendor feed sent as text/csv or application/x-ndjson (see CatalogImporter for the format).
+    // T-shirts are inserted in batches while the body is still being read; rows that fail validation are
+    // skipped and listed in the response.
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
     @ResponseStatus(HttpStatus.OK)
-    public List<TShirt> getAllTShirts() {
+    public ImportResult importTShirts(InputStream body,
+                                     @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType) throws IOException {
+        return catalogImporter.importRows(body, contentType, TShirt.class, catalogImportRepo::insertTShirts);
+    }
+
+    @GetMapping()
+    public ResponseEntity<List<TShirt>> getAllTShirts() {
         List<TShirt> allTShirts = tShirtRepo.findAll();
         if (allTShirts == null || allTShirts.isEmpty()) {
             throw new IllegalArgumentException("No t-shirts were found.");
         }
-        return allTShirts;
+        return ResponseEntity.ok().eTag(ItemETags.of(allTShirts, TShirt::getId, TShirt::getVersion)).body(allTShirts);
     }
 }
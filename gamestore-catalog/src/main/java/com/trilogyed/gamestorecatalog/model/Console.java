@@ -1,6 +1,10 @@
 package com.trilogyed.gamestorecatalog.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.trilogyed.gamestorecatalog.CatalogCacheConfig;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 import javax.persistence.*;
 import javax.validation.constraints.*;
@@ -9,8 +13,11 @@ import java.math.BigDecimal;
 import java.util.Objects;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CatalogCacheConfig.CONSOLE_REGION)
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
-@Table(name = "console")
+@Table(name = "console", indexes = {
+        @Index(name = "idx_console_manufacturer", columnList = "manufacturer")})
 public class Console implements Serializable {
 
     @Id
@@ -35,6 +42,10 @@ public class Console implements Serializable {
     @Min(value = 1, message = "The minimum quantity of 1 is required.")
     private long quantity;
 
+    @Version
+    @ColumnDefault("0")
+    private Long version;
+
     public long getId() {
         return id;
     }
@@ -91,6 +102,14 @@ public class Console implements Serializable {
         this.quantity = quantity;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -98,6 +117,7 @@ public class Console implements Serializable {
         Console console = (Console) o;
         return getId() == console.getId() &&
                 getQuantity() == console.getQuantity() &&
+                Objects.equals(getVersion(), console.getVersion()) &&
                 Objects.equals(getModel(), console.getModel()) &&
                 Objects.equals(getManufacturer(), console.getManufacturer()) &&
                 Objects.equals(getMemoryAmount(), console.getMemoryAmount()) &&
@@ -107,6 +127,6 @@ public class Console implements Serializable {
 
     @Override
     public int hashCode() {
-        return Objects.hash(getId(), getModel(), getManufacturer(), getMemoryAmount(), getProcessor(), getPrice(), getQuantity());
+        return Objects.hash(getId(), getModel(), getManufacturer(), getMemoryAmount(), getProcessor(), getPrice(), getQuantity(), getVersion());
     }
 }
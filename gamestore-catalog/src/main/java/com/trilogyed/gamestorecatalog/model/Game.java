@@ -1,6 +1,10 @@
 package com.trilogyed.gamestorecatalog.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.trilogyed.gamestorecatalog.CatalogCacheConfig;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 import javax.persistence.*;
 import javax.validation.constraints.*;
@@ -8,8 +12,13 @@ import java.math.BigDecimal;
 import java.util.Objects;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CatalogCacheConfig.GAME_REGION)
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
-@Table(name = "game")
+@Table(name = "game", indexes = {
+        @Index(name = "idx_game_esrb_rating", columnList = "esrbRating"),
+        @Index(name = "idx_game_studio", columnList = "studio"),
+        @Index(name = "idx_game_title", columnList = "title")})
 public class Game {
 
     @Id
@@ -33,6 +42,13 @@ public class Game {
     @Min(value = 1, message = "The minimum quantity of 1 is required.")
     private  long quantity;
 
+    // Optimistic lock: JPA updates check and move it on, and so do patches and stock changes made through SQL.
+    // A PUT with the version it read fails with 409 if the game changed since; left out (null), the PUT is applied
+    // to whatever the current version is.
+    @Version
+    @ColumnDefault("0")
+    private Long version;
+
 
     public long getId() {
         return id;
@@ -90,16 +106,24 @@ public class Game {
         this.quantity = quantity;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Game game = (Game) o;
-        return id == game.id && quantity == game.quantity && Objects.equals(title, game.title) && Objects.equals(esrbRating, game.esrbRating) && Objects.equals(description, game.description) && Objects.equals(price, game.price) && Objects.equals(studio, game.studio);
+        return id == game.id && quantity == game.quantity && Objects.equals(version, game.version) && Objects.equals(title, game.title) && Objects.equals(esrbRating, game.esrbRating) && Objects.equals(description, game.description) && Objects.equals(price, game.price) && Objects.equals(studio, game.studio);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, title, esrbRating, description, price, studio, quantity);
+        return Objects.hash(id, title, esrbRating, description, price, studio, quantity, version);
     }
 }
@@ -0,0 +1,105 @@
+package com.trilogyed.gamestorecatalog.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+// Outcome of a bulk import. rejected counts every row that was not imported; rejectedRows details the first ones
+// (up to gamestore.catalog.import.max-reported-rejections). complete is false when the feed could not be read to
+// the end, in which case the last rejected row says where it stopped; rows before it stay imported.
+public class ImportResult {
+
+    private long imported;
+    private long rejected;
+    private boolean complete = true;
+    private List<RejectedRow> rejectedRows = new ArrayList<>();
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+
+    public List<RejectedRow> getRejectedRows() {
+        return rejectedRows;
+    }
+
+    public void setRejectedRows(List<RejectedRow> rejectedRows) {
+        this.rejectedRows = rejectedRows;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ImportResult that = (ImportResult) o;
+        return imported == that.imported && rejected == that.rejected && complete == that.complete &&
+                Objects.equals(rejectedRows, that.rejectedRows);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(imported, rejected, complete, rejectedRows);
+    }
+
+    // line is the 1-based line of the feed the row started on (the CSV header is line 1)
+    public static class RejectedRow {
+
+        private long line;
+        private List<String> errors;
+
+        public RejectedRow() {}
+
+        public RejectedRow(long line, List<String> errors) {
+            this.line = line;
+            this.errors = errors;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public void setLine(long line) {
+            this.line = line;
+        }
+
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        public void setErrors(List<String> errors) {
+            this.errors = errors;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            RejectedRow that = (RejectedRow) o;
+            return line == that.line && Objects.equals(errors, that.errors);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(line, errors);
+        }
+    }
+}
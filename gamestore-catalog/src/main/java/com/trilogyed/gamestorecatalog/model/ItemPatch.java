@@ -0,0 +1,40 @@
+package com.trilogyed.gamestorecatalog.model;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+// A validated partial update of one catalog item: new values by entity property name, and the version the item
+// must still be at for the update to apply. The PATCH endpoints always set it; null applies the update whatever
+// the version.
+public class ItemPatch {
+
+    private final Map<String, Object> changes;
+    private final Long version;
+
+    public ItemPatch(Map<String, Object> changes, Long version) {
+        this.changes = Collections.unmodifiableMap(changes);
+        this.version = version;
+    }
+
+    public Map<String, Object> getChanges() {
+        return changes;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ItemPatch itemPatch = (ItemPatch) o;
+        return Objects.equals(changes, itemPatch.changes) && Objects.equals(version, itemPatch.version);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(changes, version);
+    }
+}
@@ -0,0 +1,97 @@
+package com.trilogyed.gamestorecatalog.model;
+
+import org.hibernate.annotations.ColumnDefault;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+// Stock taken by one POST /{game,console,tshirt}/{id}/reserve, under the id the caller chose for it. released is set
+// when the matching /release gives the quantity back, so a reservation can only be released once. Rows are written
+// by StockReservations; itemType is the item's table name.
+@Entity
+@Table(name = "stock_reservation", indexes = {
+        @Index(name = "idx_stock_reservation_created_at", columnList = "createdAt")})
+public class StockReservation {
+
+    public static final int MAX_RESERVATION_ID_LENGTH = 64;
+
+    @Id
+    @Column(name = "reservation_id", length = MAX_RESERVATION_ID_LENGTH)
+    private String reservationId;
+    @Column(nullable = false, length = 20)
+    private String itemType;
+    private long itemId;
+    private long quantity;
+    @ColumnDefault("false")
+    private boolean released;
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    public String getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(String reservationId) {
+        this.reservationId = reservationId;
+    }
+
+    public String getItemType() {
+        return itemType;
+    }
+
+    public void setItemType(String itemType) {
+        this.itemType = itemType;
+    }
+
+    public long getItemId() {
+        return itemId;
+    }
+
+    public void setItemId(long itemId) {
+        this.itemId = itemId;
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(long quantity) {
+        this.quantity = quantity;
+    }
+
+    public boolean isReleased() {
+        return released;
+    }
+
+    public void setReleased(boolean released) {
+        this.released = released;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StockReservation that = (StockReservation) o;
+        return getItemId() == that.getItemId() &&
+                getQuantity() == that.getQuantity() &&
+                isReleased() == that.isReleased() &&
+                Objects.equals(getReservationId(), that.getReservationId()) &&
+                Objects.equals(getItemType(), that.getItemType()) &&
+                Objects.equals(getCreatedAt(), that.getCreatedAt());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getReservationId(), getItemType(), getItemId(), getQuantity(), isReleased(),
+                getCreatedAt());
+    }
+}
@@ -1,6 +1,10 @@
 package com.trilogyed.gamestorecatalog.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.trilogyed.gamestorecatalog.CatalogCacheConfig;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 import javax.persistence.*;
 import javax.validation.constraints.*;
@@ -9,8 +13,12 @@ import java.math.BigDecimal;
 import java.util.Objects;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CatalogCacheConfig.TSHIRT_REGION)
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
-@Table(name = "tshirt")
+@Table(name = "tshirt", indexes = {
+        @Index(name = "idx_tshirt_color_size", columnList = "color, size"),
+        @Index(name = "idx_tshirt_size", columnList = "size")})
 public class TShirt implements Serializable {
 
     @Id
@@ -32,6 +40,10 @@ public class TShirt implements Serializable {
     @Max(value = 50000, message = "Maximum quantity allowed is 50,000")
     private long quantity;
 
+    @Version
+    @ColumnDefault("0")
+    private Long version;
+
     public long getId() {
         return id;
     }
@@ -80,6 +92,14 @@ public class TShirt implements Serializable {
         this.quantity = quantity;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -87,6 +107,7 @@ public class TShirt implements Serializable {
         TShirt tShirt = (TShirt) o;
         return getId() == tShirt.getId() &&
                 getQuantity() == tShirt.getQuantity() &&
+                Objects.equals(getVersion(), tShirt.getVersion()) &&
                 Objects.equals(getSize(), tShirt.getSize()) &&
                 Objects.equals(getColor(), tShirt.getColor()) &&
                 Objects.equals(getDescription(), tShirt.getDescription()) &&
@@ -95,6 +116,6 @@ public class TShirt implements Serializable {
 
     @Override
     public int hashCode() {
-        return Objects.hash(getId(), getSize(), getColor(), getDescription(), getPrice(), getQuantity());
+        return Objects.hash(getId(), getSize(), getColor(), getDescription(), getPrice(), getQuantity(), getVersion());
     }
 }
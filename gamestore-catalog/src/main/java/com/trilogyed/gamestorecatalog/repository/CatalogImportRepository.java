@@ -0,0 +1,71 @@
+package com.trilogyed.gamestorecatalog.repository;
+
+import com.trilogyed.gamestorecatalog.model.Console;
+import com.trilogyed.gamestorecatalog.model.Game;
+import com.trilogyed.gamestorecatalog.model.TShirt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+// JDBC batch inserts for the bulk import endpoints; each call is one batch in its own transaction, so a large feed
+// never holds one long transaction. The MySQL URL sets rewriteBatchedStatements=true, which turns a batch into
+// multi-row inserts. Hibernate doesn't see these writes, so each batch marks cached finder results over its own
+// table stale through ItemUpdates, as the stock updates do; the new rows were never in the entity cache.
+@Repository
+@Profile("!reactive")
+public class CatalogImportRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ItemUpdates itemUpdates;
+
+    @Autowired
+    public CatalogImportRepository(JdbcTemplate jdbcTemplate, ItemUpdates itemUpdates) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.itemUpdates = itemUpdates;
+    }
+
+    @Transactional
+    public void insertGames(List<Game> games) {
+        jdbcTemplate.batchUpdate("insert into game (title, esrb_rating, description, price, studio, quantity) " +
+                "values (?, ?, ?, ?, ?, ?)", games, games.size(), (ps, game) -> {
+            ps.setString(1, game.getTitle());
+            ps.setString(2, game.getEsrbRating());
+            ps.setString(3, game.getDescription());
+            ps.setBigDecimal(4, game.getPrice());
+            ps.setString(5, game.getStudio());
+            ps.setLong(6, game.getQuantity());
+        });
+        itemUpdates.invalidateQueryResults(Game.class);
+    }
+
+    @Transactional
+    public void insertConsoles(List<Console> consoles) {
+        jdbcTemplate.batchUpdate("insert into console (model, manufacturer, memory_amount, processor, price, " +
+                "quantity) values (?, ?, ?, ?, ?, ?)", consoles, consoles.size(), (ps, console) -> {
+            ps.setString(1, console.getModel());
+            ps.setString(2, console.getManufacturer());
+            ps.setString(3, console.getMemoryAmount());
+            ps.setString(4, console.getProcessor());
+            ps.setBigDecimal(5, console.getPrice());
+            ps.setLong(6, console.getQuantity());
+        });
+        itemUpdates.invalidateQueryResults(Console.class);
+    }
+
+    @Transactional
+    public void insertTShirts(List<TShirt> tShirts) {
+        jdbcTemplate.batchUpdate("insert into tshirt (size, color, description, price, quantity) " +
+                "values (?, ?, ?, ?, ?)", tShirts, tShirts.size(), (ps, tShirt) -> {
+            ps.setString(1, tShirt.getSize());
+            ps.setString(2, tShirt.getColor());
+            ps.setString(3, tShirt.getDescription());
+            ps.setBigDecimal(4, tShirt.getPrice());
+            ps.setLong(5, tShirt.getQuantity());
+        });
+        itemUpdates.invalidateQueryResults(TShirt.class);
+    }
+}
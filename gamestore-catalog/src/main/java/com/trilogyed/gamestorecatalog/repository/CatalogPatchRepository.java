@@ -0,0 +1,106 @@
+package com.trilogyed.gamestorecatalog.repository;
+
+import com.trilogyed.gamestorecatalog.model.Console;
+import com.trilogyed.gamestorecatalog.model.Game;
+import com.trilogyed.gamestorecatalog.model.ItemPatch;
+import com.trilogyed.gamestorecatalog.model.TShirt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Partial updates for the PATCH endpoints: one UPDATE that writes only the patched columns and moves the version
+// on, without loading the item first. With an expected version the row only matches while it is still at that
+// version, so a patch never overwrites a change it didn't see. When nothing matched, one look at the row's version
+// tells a missing item from a stale one. The update, that look and the cache invalidation share one transaction.
+@Repository
+@Profile("!reactive")
+public class CatalogPatchRepository {
+
+    // columns a patch may change, by entity property
+    public static final Map<String, String> GAME_COLUMNS = Map.of(
+            "title", "title",
+            "esrbRating", "esrb_rating",
+            "description", "description",
+            "price", "price",
+            "studio", "studio",
+            "quantity", "quantity");
+    public static final Map<String, String> CONSOLE_COLUMNS = Map.of(
+            "model", "model",
+            "manufacturer", "manufacturer",
+            "memoryAmount", "memory_amount",
+            "processor", "processor",
+            "price", "price",
+            "quantity", "quantity");
+    public static final Map<String, String> TSHIRT_COLUMNS = Map.of(
+            "size", "size",
+            "color", "color",
+            "description", "description",
+            "price", "price",
+            "quantity", "quantity");
+
+    // properties the cached finder queries filter on; changing one drops the query cache
+    private static final Set<String> GAME_FINDER_PROPERTIES = Set.of("title", "esrbRating", "studio");
+    private static final Set<String> CONSOLE_FINDER_PROPERTIES = Set.of("manufacturer");
+    private static final Set<String> TSHIRT_FINDER_PROPERTIES = Set.of("size", "color");
+
+    public enum Result { APPLIED, NOT_FOUND, STALE }
+
+    @Autowired
+    ItemUpdates itemUpdates;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Transactional
+    public Result patchGame(long id, ItemPatch patch) {
+        return patch(Game.class, "game", "game_id", GAME_COLUMNS, GAME_FINDER_PROPERTIES, id, patch);
+    }
+
+    @Transactional
+    public Result patchConsole(long id, ItemPatch patch) {
+        return patch(Console.class, "console", "console_id", CONSOLE_COLUMNS, CONSOLE_FINDER_PROPERTIES, id, patch);
+    }
+
+    @Transactional
+    public Result patchTShirt(long id, ItemPatch patch) {
+        return patch(TShirt.class, "tshirt", "tshirt_id", TSHIRT_COLUMNS, TSHIRT_FINDER_PROPERTIES, id, patch);
+    }
+
+    private Result patch(Class<?> itemClass, String table, String idColumn, Map<String, String> columns,
+                      Set<String> finderProperties, long id, ItemPatch patch) {
+        StringBuilder sql = new StringBuilder("update ").append(table).append(" set ");
+        List<Object> args = new ArrayList<>();
+        for (Map.Entry<String, Object> change : patch.getChanges().entrySet()) {
+            sql.append(columns.get(change.getKey())).append(" = ?, ");
+            args.add(change.getValue());
+        }
+        sql.append("version = version + 1 where ").append(idColumn).append(" = ?");
+        args.add(id);
+        if (patch.getVersion() != null) {
+            sql.append(" and version = ?");
+            args.add(patch.getVersion());
+        }
+        int updated = itemUpdates.update(itemClass, id, patch.getVersion(), sql.toString(),
+                args.toArray());
+        if (updated == 0) {
+            if (patch.getVersion() == null) {
+                return Result.NOT_FOUND;
+            }
+            List<Long> version = jdbcTemplate.queryForList("select version from " + table + " where " + idColumn +
+                    " = ?", Long.class, id);
+            return version.isEmpty() ? Result.NOT_FOUND : Result.STALE;
+        }
+        if (!Collections.disjoint(patch.getChanges().keySet(), finderProperties)) {
+            itemUpdates.invalidateQueryResults(itemClass);
+        }
+        return Result.APPLIED;
+    }
+}
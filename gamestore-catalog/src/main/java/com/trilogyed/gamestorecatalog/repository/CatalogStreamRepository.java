@@ -0,0 +1,86 @@
+package com.trilogyed.gamestorecatalog.repository;
+
+import com.trilogyed.gamestorecatalog.model.Console;
+import com.trilogyed.gamestorecatalog.model.Game;
+import com.trilogyed.gamestorecatalog.model.TShirt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.function.Consumer;
+
+// Forward-only reads of whole catalog tables for the NDJSON list endpoints. Rows are handed to the consumer as
+// they come off the JDBC cursor (the MySQL URL sets useCursorFetch=true), so memory use does not grow with the
+// table size.
+@Repository
+@Profile("!reactive")
+public class CatalogStreamRepository {
+
+    private static final RowMapper<Game> GAME_ROW_MAPPER = (rs, rowNum) -> {
+        Game game = new Game();
+        game.setId(rs.getLong("game_id"));
+        game.setTitle(rs.getString("title"));
+        game.setEsrbRating(rs.getString("esrb_rating"));
+        game.setDescription(rs.getString("description"));
+        game.setPrice(rs.getBigDecimal("price"));
+        game.setStudio(rs.getString("studio"));
+        game.setQuantity(rs.getLong("quantity"));
+        game.setVersion(rs.getLong("version"));
+        return game;
+    };
+
+    private static final RowMapper<Console> CONSOLE_ROW_MAPPER = (rs, rowNum) -> {
+        Console console = new Console();
+        console.setId(rs.getLong("console_id"));
+        console.setModel(rs.getString("model"));
+        console.setManufacturer(rs.getString("manufacturer"));
+        console.setMemoryAmount(rs.getString("memory_amount"));
+        console.setProcessor(rs.getString("processor"));
+        console.setPrice(rs.getBigDecimal("price"));
+        console.setQuantity(rs.getLong("quantity"));
+        console.setVersion(rs.getLong("version"));
+        return console;
+    };
+
+    private static final RowMapper<TShirt> TSHIRT_ROW_MAPPER = (rs, rowNum) -> {
+        TShirt tShirt = new TShirt();
+        tShirt.setId(rs.getLong("tshirt_id"));
+        tShirt.setSize(rs.getString("size"));
+        tShirt.setColor(rs.getString("color"));
+        tShirt.setDescription(rs.getString("description"));
+        tShirt.setPrice(rs.getBigDecimal("price"));
+        tShirt.setQuantity(rs.getLong("quantity"));
+        tShirt.setVersion(rs.getLong("version"));
+        return tShirt;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public CatalogStreamRepository(JdbcTemplate jdbcTemplate,
+                                   @Value("${gamestore.catalog.stream-fetch-size:500}") int fetchSize) {
+        //own template so the fetch size doesn't leak into other queries
+        this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    public void streamGames(long afterId, Consumer<Game> consumer) {
+        stream("select * from game where game_id > ? order by game_id", afterId, GAME_ROW_MAPPER, consumer);
+    }
+
+    public void streamConsoles(long afterId, Consumer<Console> consumer) {
+        stream("select * from console where console_id > ? order by console_id", afterId, CONSOLE_ROW_MAPPER, consumer);
+    }
+
+    public void streamTShirts(long afterId, Consumer<TShirt> consumer) {
+        stream("select * from tshirt where tshirt_id > ? order by tshirt_id", afterId, TSHIRT_ROW_MAPPER, consumer);
+    }
+
+    private <T> void stream(String sql, long afterId, RowMapper<T> rowMapper, Consumer<T> consumer) {
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> consumer.accept(rowMapper.mapRow(rs, 0)), afterId);
+    }
+}
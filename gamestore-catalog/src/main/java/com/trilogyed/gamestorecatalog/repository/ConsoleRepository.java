@@ -1,14 +1,23 @@
 package com.trilogyed.gamestorecatalog.repository;
 
 import com.trilogyed.gamestorecatalog.model.Console;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import javax.validation.Valid;
 import java.util.List;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+
 @Repository
-public interface ConsoleRepository extends JpaRepository<Console, Long> {
+public interface ConsoleRepository extends JpaRepository<Console, Long>, ConsoleStockRepository {
+    List<Console> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    // result ids are kept in the query cache, the items themselves in the second-level cache
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     List<Console> findAllByManufacturer(String manufacturer);
 
 
@@ -0,0 +1,20 @@
+package com.trilogyed.gamestorecatalog.repository;
+
+import com.trilogyed.gamestorecatalog.model.Console;
+import org.springframework.beans.factory.annotation.Autowired;
+
+class ConsoleStockRepositoryImpl implements ConsoleStockRepository {
+
+    @Autowired
+    StockReservations stockReservations;
+
+    @Override
+    public int reserveQuantity(long id, long qty, String reservationId) {
+        return stockReservations.reserve(Console.class, "console", "console_id", id, qty, reservationId);
+    }
+
+    @Override
+    public boolean releaseReservation(long id, String reservationId) {
+        return stockReservations.release(Console.class, "console", "console_id", id, reservationId);
+    }
+}
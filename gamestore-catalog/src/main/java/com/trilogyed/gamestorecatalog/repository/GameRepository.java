@@ -1,14 +1,25 @@
 package com.trilogyed.gamestorecatalog.repository;
 
 import com.trilogyed.gamestorecatalog.model.Game;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+
+import javax.persistence.QueryHint;
 import java.util.List;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+
 @Repository
-public interface GameRepository extends JpaRepository<Game, Long> {
+public interface GameRepository extends JpaRepository<Game, Long>, GameStockRepository {
+    List<Game> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    // result ids are kept in the query cache, the items themselves in the second-level cache
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     List<Game> findAllByEsrbRating(String esrbRating);
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     List<Game> findAllByStudio(String studio);
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     List<Game> findAllByTitle(String title);
-
 }
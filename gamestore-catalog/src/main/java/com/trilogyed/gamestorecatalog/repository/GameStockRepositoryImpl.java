@@ -0,0 +1,20 @@
+package com.trilogyed.gamestorecatalog.repository;
+
+import com.trilogyed.gamestorecatalog.model.Game;
+import org.springframework.beans.factory.annotation.Autowired;
+
+class GameStockRepositoryImpl implements GameStockRepository {
+
+    @Autowired
+    StockReservations stockReservations;
+
+    @Override
+    public int reserveQuantity(long id, long qty, String reservationId) {
+        return stockReservations.reserve(Game.class, "game", "game_id", id, qty, reservationId);
+    }
+
+    @Override
+    public boolean releaseReservation(long id, String reservationId) {
+        return stockReservations.release(Game.class, "game", "game_id", id, reservationId);
+    }
+}
@@ -0,0 +1,98 @@
+package com.trilogyed.gamestorecatalog.repository;
+
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.Serializable;
+
+// Single-row UPDATEs that bypass Hibernate: stock reservations and releases for the *StockRepositoryImpl fragments
+// and partial updates from CatalogPatchRepository. A JPQL bulk UPDATE makes Hibernate drop the item's whole
+// second-level cache region, which on every purchase would leave the cache nearly empty, so the conditional UPDATE
+// runs through JDBC instead and only the changed row's cache entry is touched, the way Hibernate does it for a
+// versioned entity update. The entry is soft-locked until the transaction ends, so nobody caches the row in the
+// meantime. A reader that loaded the old row before the commit but only gets to cache it afterwards is turned away
+// when the lock is released: by version if the caller knows the one the row had before the update, otherwise
+// because the reader started before the release. The next findById caches the new state. Evicting the entry
+// instead, even after the commit, would let that reader put the old state back.
+@Component
+@Profile("!reactive")
+public class ItemUpdates {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final SessionFactoryImplementor sessionFactory;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public ItemUpdates(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory,
+                       PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Runs sql, which must only touch the row with this id and move its version on, and returns the number of rows
+    // updated. previousVersion is the version sql expects the row to be at, or null if it updates whatever version
+    // is there. Joins the caller's transaction if there is one.
+    public int update(Class<?> itemClass, long id, Long previousVersion, String sql, Object... args) {
+        return transactionTemplate.execute(status -> {
+            int updated = jdbcTemplate.update(sql, args);
+            if (updated > 0) {
+                lockUntilCompletion(itemClass, id, previousVersion);
+            }
+            return updated;
+        });
+    }
+
+    // Hibernate doesn't see JDBC writes, so cached finder results over the item's table are marked stale by hand:
+    // from now until the transaction ends, and again when it has, so a finder that ran before the commit can't
+    // cache what it found either.
+    public void invalidateQueryResults(Class<?> itemClass) {
+        transactionTemplate.executeWithoutResult(status -> {
+            SharedSessionContractImplementor session = currentSession();
+            Serializable[] tables = sessionFactory.getMetamodel().entityPersister(itemClass).getQuerySpaces();
+            sessionFactory.getCache().getTimestampsCache().preInvalidate(tables, session);
+            afterCompletion(() -> sessionFactory.getCache().getTimestampsCache().invalidate(tables, session));
+        });
+    }
+
+    private void lockUntilCompletion(Class<?> itemClass, long id, Long previousVersion) {
+        EntityPersister persister = sessionFactory.getMetamodel().entityPersister(itemClass);
+        if (!persister.canWriteToCache()) {
+            return;
+        }
+        SharedSessionContractImplementor session = currentSession();
+        EntityDataAccess cache = persister.getCacheAccessStrategy();
+        Object key = cache.generateCacheKey(id, persister, sessionFactory, session.getTenantIdentifier());
+        SoftLock lock = cache.lockItem(session, key, previousVersion);
+        afterCompletion(() -> cache.unlockItem(session, key, lock));
+    }
+
+    private SharedSessionContractImplementor currentSession() {
+        return EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory)
+                .unwrap(SharedSessionContractImplementor.class);
+    }
+
+    private static void afterCompletion(Runnable release) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                release.run();
+            }
+        });
+    }
+}
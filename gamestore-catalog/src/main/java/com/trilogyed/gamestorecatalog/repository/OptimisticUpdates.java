@@ -0,0 +1,46 @@
+package com.trilogyed.gamestorecatalog.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.function.Supplier;
+
+// Read-modify-write of one catalog item without row locks. The update runs in its own transaction; if the item's
+// version moved between the read and the write (another update, a patch or a stock reservation got there first),
+// the item is dropped from the second-level cache so the next read sees the new version, and the whole update runs
+// again, up to gamestore.catalog.update.max-attempts times. The update must re-read the item each time.
+@Component
+@Profile("!reactive")
+public class OptimisticUpdates {
+
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final int maxAttempts;
+
+    @Autowired
+    public OptimisticUpdates(PlatformTransactionManager transactionManager, EntityManagerFactory entityManagerFactory,
+                             @Value("${gamestore.catalog.update.max-attempts:3}") int maxAttempts) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManagerFactory = entityManagerFactory;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public <T> T retry(Class<?> itemClass, long id, Supplier<T> update) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> update.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                entityManagerFactory.getCache().evict(itemClass, id);
+            }
+        }
+    }
+}
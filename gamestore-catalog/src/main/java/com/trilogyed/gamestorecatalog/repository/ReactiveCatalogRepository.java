@@ -0,0 +1,184 @@
+package com.trilogyed.gamestorecatalog.repository;
+
+import com.trilogyed.gamestorecatalog.model.Console;
+import com.trilogyed.gamestorecatalog.model.Game;
+import com.trilogyed.gamestorecatalog.model.TShirt;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.BiFunction;
+
+// Non-blocking versions of the catalog finders for the reactive profile. Same queries as the JPA repositories,
+// written out so each column maps straight onto the existing model classes; rows are emitted as they are read.
+@Repository
+@Profile("reactive")
+public class ReactiveCatalogRepository {
+
+    private static final BiFunction<Row, RowMetadata, Game> GAME_ROW_MAPPER = (row, metadata) -> {
+        Game game = new Game();
+        game.setId(longValue(row, "game_id"));
+        game.setTitle(row.get("title", String.class));
+        game.setEsrbRating(row.get("esrb_rating", String.class));
+        game.setDescription(row.get("description", String.class));
+        game.setPrice(row.get("price", BigDecimal.class));
+        game.setStudio(row.get("studio", String.class));
+        game.setQuantity(longValue(row, "quantity"));
+        game.setVersion(longValue(row, "version"));
+        return game;
+    };
+
+    private static final BiFunction<Row, RowMetadata, Console> CONSOLE_ROW_MAPPER = (row, metadata) -> {
+        Console console = new Console();
+        console.setId(longValue(row, "console_id"));
+        console.setModel(row.get("model", String.class));
+        console.setManufacturer(row.get("manufacturer", String.class));
+        console.setMemoryAmount(row.get("memory_amount", String.class));
+        console.setProcessor(row.get("processor", String.class));
+        console.setPrice(row.get("price", BigDecimal.class));
+        console.setQuantity(longValue(row, "quantity"));
+        console.setVersion(longValue(row, "version"));
+        return console;
+    };
+
+    private static final BiFunction<Row, RowMetadata, TShirt> TSHIRT_ROW_MAPPER = (row, metadata) -> {
+        TShirt tShirt = new TShirt();
+        tShirt.setId(longValue(row, "tshirt_id"));
+        tShirt.setSize(row.get("size", String.class));
+        tShirt.setColor(row.get("color", String.class));
+        tShirt.setDescription(row.get("description", String.class));
+        tShirt.setPrice(row.get("price", BigDecimal.class));
+        tShirt.setQuantity(longValue(row, "quantity"));
+        tShirt.setVersion(longValue(row, "version"));
+        return tShirt;
+    };
+
+    private final DatabaseClient databaseClient;
+
+    @Autowired
+    public ReactiveCatalogRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /** game */
+    public Mono<Game> findGameById(long id) {
+        return databaseClient.sql("select * from game where game_id = :id")
+                .bind("id", id)
+                .map(GAME_ROW_MAPPER)
+                .one();
+    }
+
+    public Flux<Game> findGamesByIds(List<Long> ids) {
+        return findByIds("select * from game where game_id in (:ids)", ids, GAME_ROW_MAPPER);
+    }
+
+    public Flux<Game> findGamesByTitle(String title) {
+        return findBy("select * from game where title = :value", title, GAME_ROW_MAPPER);
+    }
+
+    public Flux<Game> findGamesByEsrbRating(String esrbRating) {
+        return findBy("select * from game where esrb_rating = :value", esrbRating, GAME_ROW_MAPPER);
+    }
+
+    public Flux<Game> findGamesByStudio(String studio) {
+        return findBy("select * from game where studio = :value", studio, GAME_ROW_MAPPER);
+    }
+
+    public Flux<Game> findGamesAfter(long afterId, int limit) {
+        return findAfter("select * from game where game_id > :afterId order by game_id limit :limit",
+                afterId, limit, GAME_ROW_MAPPER);
+    }
+
+    public Flux<Game> findAllGames(long afterId) {
+        return findAfter("select * from game where game_id > :afterId order by game_id", afterId, GAME_ROW_MAPPER);
+    }
+
+    /** console */
+    public Mono<Console> findConsoleById(long id) {
+        return databaseClient.sql("select * from console where console_id = :id")
+                .bind("id", id)
+                .map(CONSOLE_ROW_MAPPER)
+                .one();
+    }
+
+    public Flux<Console> findConsolesByIds(List<Long> ids) {
+        return findByIds("select * from console where console_id in (:ids)", ids, CONSOLE_ROW_MAPPER);
+    }
+
+    public Flux<Console> findConsolesByManufacturer(String manufacturer) {
+        return findBy("select * from console where manufacturer = :value", manufacturer, CONSOLE_ROW_MAPPER);
+    }
+
+    public Flux<Console> findConsolesAfter(long afterId, int limit) {
+        return findAfter("select * from console where console_id > :afterId order by console_id limit :limit",
+                afterId, limit, CONSOLE_ROW_MAPPER);
+    }
+
+    public Flux<Console> findAllConsoles(long afterId) {
+        return findAfter("select * from console where console_id > :afterId order by console_id", afterId,
+                CONSOLE_ROW_MAPPER);
+    }
+
+    /** tshirt */
+    public Mono<TShirt> findTShirtById(long id) {
+        return databaseClient.sql("select * from tshirt where tshirt_id = :id")
+                .bind("id", id)
+                .map(TSHIRT_ROW_MAPPER)
+                .one();
+    }
+
+    public Flux<TShirt> findTShirtsByIds(List<Long> ids) {
+        return findByIds("select * from tshirt where tshirt_id in (:ids)", ids, TSHIRT_ROW_MAPPER);
+    }
+
+    public Flux<TShirt> findTShirtsBySize(String size) {
+        return findBy("select * from tshirt where size = :value", size, TSHIRT_ROW_MAPPER);
+    }
+
+    public Flux<TShirt> findTShirtsByColor(String color) {
+        return findBy("select * from tshirt where color = :value", color, TSHIRT_ROW_MAPPER);
+    }
+
+    public Flux<TShirt> findTShirtsAfter(long afterId, int limit) {
+        return findAfter("select * from tshirt where tshirt_id > :afterId order by tshirt_id limit :limit",
+                afterId, limit, TSHIRT_ROW_MAPPER);
+    }
+
+    public Flux<TShirt> findAllTShirts(long afterId) {
+        return findAfter("select * from tshirt where tshirt_id > :afterId order by tshirt_id", afterId,
+                TSHIRT_ROW_MAPPER);
+    }
+
+    private <T> Flux<T> findBy(String sql, String value, BiFunction<Row, RowMetadata, T> rowMapper) {
+        return databaseClient.sql(sql).bind("value", value).map(rowMapper).all();
+    }
+
+    //the list is expanded into one bind marker per id
+    private <T> Flux<T> findByIds(String sql, List<Long> ids, BiFunction<Row, RowMetadata, T> rowMapper) {
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        return databaseClient.sql(sql).bind("ids", ids).map(rowMapper).all();
+    }
+
+    private <T> Flux<T> findAfter(String sql, long afterId, BiFunction<Row, RowMetadata, T> rowMapper) {
+        return databaseClient.sql(sql).bind("afterId", afterId).map(rowMapper).all();
+    }
+
+    private <T> Flux<T> findAfter(String sql, long afterId, int limit, BiFunction<Row, RowMetadata, T> rowMapper) {
+        return databaseClient.sql(sql).bind("afterId", afterId).bind("limit", limit).map(rowMapper).all();
+    }
+
+    //ids and quantities are INT in MySQL and BIGINT in schemas Hibernate generates; game.quantity may be null
+    private static long longValue(Row row, String column) {
+        Number value = (Number) row.get(column);
+        return value == null ? 0 : value.longValue();
+    }
+}
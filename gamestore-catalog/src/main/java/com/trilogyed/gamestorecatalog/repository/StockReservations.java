@@ -0,0 +1,84 @@
+package com.trilogyed.gamestorecatalog.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+// Stock reservations for the *StockRepositoryImpl fragments. Every reservation is recorded in stock_reservation
+// under the caller's reservation id, in the same transaction as the stock decrement, and a release gives back
+// exactly what that reservation took, once. So a retried reserve doesn't take the stock twice, and a retried or
+// made-up release can't add stock that was never reserved.
+@Component
+@Profile("!reactive")
+public class StockReservations {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ItemUpdates itemUpdates;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public StockReservations(JdbcTemplate jdbcTemplate, ItemUpdates itemUpdates,
+                             PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.itemUpdates = itemUpdates;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Takes qty from the item's stock and records it under reservationId. Returns 0 (and records nothing) when the
+    // item doesn't exist or has fewer than qty in stock. Reserving again under the same id for the same item and
+    // quantity is a no-op that returns 1; any other reuse of the id is a DuplicateKeyException. (Not an
+    // IllegalStateException: the repository proxy would turn that into an InvalidDataAccessApiUsageException.)
+    public int reserve(Class<?> itemClass, String table, String idColumn, long id, long qty, String reservationId) {
+        return transactionTemplate.execute(status -> {
+            try {
+                jdbcTemplate.update("insert into stock_reservation " +
+                        "(reservation_id, item_type, item_id, quantity, released, created_at) " +
+                        "values (?, ?, ?, ?, false, current_timestamp)", reservationId, table, id, qty);
+            } catch (DuplicateKeyException e) {
+                List<Long> reserved = jdbcTemplate.queryForList("select quantity from stock_reservation " +
+                        "where reservation_id = ? and item_type = ? and item_id = ?", Long.class,
+                        reservationId, table, id);
+                if (reserved.isEmpty() || reserved.get(0) != qty) {
+                    throw new DuplicateKeyException("Reservation " + reservationId +
+                            " is already used for another item or quantity.", e);
+                }
+                return 1;
+            }
+            int updated = itemUpdates.update(itemClass, id, null, "update " + table +
+                    " set quantity = quantity - ?, version = version + 1 where " + idColumn +
+                    " = ? and quantity >= ?", qty, id, qty);
+            if (updated == 0) {
+                status.setRollbackOnly();
+            }
+            return updated;
+        });
+    }
+
+    // Gives back the stock reservationId took from the item. Returns false if there is no such reservation for the
+    // item; releasing a reservation that was already released changes nothing and returns true.
+    public boolean release(Class<?> itemClass, String table, String idColumn, long id, String reservationId) {
+        return transactionTemplate.execute(status -> {
+            //marking it released first locks the row, so concurrent releases of one reservation can't both win
+            int marked = jdbcTemplate.update("update stock_reservation set released = true " +
+                    "where reservation_id = ? and item_type = ? and item_id = ? and released = false",
+                    reservationId, table, id);
+            List<Long> reserved = jdbcTemplate.queryForList("select quantity from stock_reservation " +
+                    "where reservation_id = ? and item_type = ? and item_id = ?", Long.class, reservationId, table, id);
+            if (reserved.isEmpty()) {
+                return false;
+            }
+            if (marked > 0) {
+                itemUpdates.update(itemClass, id, null, "update " + table +
+                        " set quantity = quantity + ?, version = version + 1 where " + idColumn + " = ?",
+                        reserved.get(0), id);
+            }
+            return true;
+        });
+    }
+}
@@ -1,13 +1,23 @@
 package com.trilogyed.gamestorecatalog.repository;
 
 import com.trilogyed.gamestorecatalog.model.TShirt;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+
 @Repository
-public interface TShirtRepository extends JpaRepository<TShirt, Long> {
+public interface TShirtRepository extends JpaRepository<TShirt, Long>, TShirtStockRepository {
+    List<TShirt> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    // result ids are kept in the query cache, the items themselves in the second-level cache
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     List<TShirt> findAllByColor(String color);
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     List<TShirt> findAllBySize(String size);
 }
@@ -0,0 +1,12 @@
+package com.trilogyed.gamestorecatalog.repository;
+
+// Stock changes for TShirtRepository, implemented in TShirtStockRepositoryImpl.
+public interface TShirtStockRepository {
+
+    // Conditional decrement done in the database, so concurrent purchases can't oversell, recorded under
+    // reservationId (see StockReservations). Returns 0 when the item doesn't exist or has fewer than qty in stock.
+    int reserveQuantity(long id, long qty, String reservationId);
+
+    // Gives back what reservationId took, once. Returns false if the item has no such reservation.
+    boolean releaseReservation(long id, String reservationId);
+}
@@ -0,0 +1,20 @@
+package com.trilogyed.gamestorecatalog.repository;
+
+import com.trilogyed.gamestorecatalog.model.TShirt;
+import org.springframework.beans.factory.annotation.Autowired;
+
+class TShirtStockRepositoryImpl implements TShirtStockRepository {
+
+    @Autowired
+    StockReservations stockReservations;
+
+    @Override
+    public int reserveQuantity(long id, long qty, String reservationId) {
+        return stockReservations.reserve(TShirt.class, "tshirt", "tshirt_id", id, qty, reservationId);
+    }
+
+    @Override
+    public boolean releaseReservation(long id, String reservationId) {
+        return stockReservations.release(TShirt.class, "tshirt", "tshirt_id", id, reservationId);
+    }
+}
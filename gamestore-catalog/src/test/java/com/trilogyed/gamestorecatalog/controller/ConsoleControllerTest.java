@@ -1,8 +1,13 @@
 package com.trilogyed.gamestorecatalog.controller;
 
 import com.trilogyed.gamestorecatalog.model.Console;
+import com.trilogyed.gamestorecatalog.repository.CatalogImportRepository;
+import com.trilogyed.gamestorecatalog.repository.CatalogPatchRepository;
+import com.trilogyed.gamestorecatalog.repository.CatalogStreamRepository;
+import com.trilogyed.gamestorecatalog.repository.OptimisticUpdates;
 import com.trilogyed.gamestorecatalog.repository.ConsoleRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trilogyed.gamestorecatalog.client.InvoicingCacheNotifier;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -10,7 +15,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
@@ -18,6 +25,7 @@ import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,6 +38,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 @RunWith(SpringRunner.class)
 @WebMvcTest(ConsoleController.class)
+@Import({CatalogImporter.class, CatalogPatcher.class})
 @AutoConfigureMockMvc(addFilters = false)
 public class ConsoleControllerTest {
     @Autowired
@@ -40,6 +49,21 @@ public class ConsoleControllerTest {
     @MockBean
     private ConsoleRepository consoleRepo;
 
+    @MockBean
+    private InvoicingCacheNotifier cacheNotifier;
+
+    @MockBean
+    private CatalogStreamRepository catalogStreamRepo;
+
+    @MockBean
+    private CatalogImportRepository catalogImportRepo;
+
+    @MockBean
+    private CatalogPatchRepository catalogPatchRepo;
+
+    @MockBean
+    private OptimisticUpdates optimisticUpdates;
+
     @Autowired
     //used to move between Objects and JSON
     private ObjectMapper mapper;
@@ -165,6 +189,52 @@ public class ConsoleControllerTest {
                 .andExpect(status().isNotFound()); //Expected response status code.
     }
 
+    @Test
+    public void shouldReturn409WhenUpdatingWithStaleVersion() throws Exception {
+        Console inConsole = new Console();
+        inConsole.setMemoryAmount("300GB");
+        inConsole.setQuantity(12);
+        inConsole.setManufacturer("Sega");
+        inConsole.setModel("Nintendo II");
+        inConsole.setProcessor("AMD");
+        inConsole.setPrice(new BigDecimal("249.99"));
+        inConsole.setId(15L);
+        inConsole.setVersion(2L);
+
+        //someone else updated the console after this client read version 2
+        when(consoleRepo.save(inConsole)).thenThrow(new ObjectOptimisticLockingFailureException(Console.class, 15L));
+
+        mockMvc.perform(
+                        MockMvcRequestBuilders.put("/console")
+                                .content(mapper.writeValueAsString(inConsole))
+                                .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isConflict());
+        verify(cacheNotifier, never()).itemChanged(InvoicingCacheNotifier.CONSOLE_ITEM_TYPE, 15L);
+    }
+
+    @Test
+    public void shouldRetryUpdateWithoutVersion() throws Exception {
+        Console inConsole = new Console();
+        inConsole.setMemoryAmount("300GB");
+        inConsole.setQuantity(12);
+        inConsole.setManufacturer("Sega");
+        inConsole.setModel("Nintendo II");
+        inConsole.setProcessor("AMD");
+        inConsole.setPrice(new BigDecimal("249.99"));
+        inConsole.setId(15L);
+
+        mockMvc.perform(
+                        MockMvcRequestBuilders.put("/console")
+                                .content(mapper.writeValueAsString(inConsole))
+                                .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isNoContent());
+        //no version to check against, so the update goes through the retrying read-then-write path
+        verify(optimisticUpdates).retry(eq(Console.class), eq(15L), any());
+        verify(consoleRepo, never()).save(inConsole);
+    }
+
     @Test
     public void shouldDeleteConsoleReturnNoContent() throws Exception{
         //So we are mocking (not executing the consoleRep layer) since we are testing the controller here.
@@ -175,6 +245,8 @@ public class ConsoleControllerTest {
                         MockMvcRequestBuilders.delete("/console/{id}",15))
                 .andDo(print())
                 .andExpect(status().isNoContent()); //Expected response status code.
+        //invoicing is told to drop its cached copy
+        verify(cacheNotifier).itemChanged(InvoicingCacheNotifier.CONSOLE_ITEM_TYPE, 15L);
     }
 
     @Test
@@ -273,6 +345,62 @@ public class ConsoleControllerTest {
 
     //Testing bad cases...
 
+    @Test
+    public void shouldReserveConsoleStock() throws Exception {
+        when(consoleRepo.reserveQuantity(1L, 2L, "r-1")).thenReturn(1);
+
+        this.mockMvc.perform(post("/console/{id}/reserve", 1).param("qty", "2")
+                        .param("reservation", "r-1"))
+                .andDo(print())
+                .andExpect(status().isNoContent());
+
+        when(consoleRepo.reserveQuantity(1L, 20L, "r-1")).thenReturn(0);
+        when(consoleRepo.existsById(1L)).thenReturn(true);
+
+        this.mockMvc.perform(post("/console/{id}/reserve", 1).param("qty", "20")
+                        .param("reservation", "r-1"))
+                .andDo(print())
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    public void shouldReturnConsolesByIds() throws Exception {
+        Console console1 = new Console();
+        console1.setModel("Switch");
+        console1.setManufacturer("Nintendo");
+        console1.setMemoryAmount("4GB");
+        console1.setProcessor("ARM");
+        console1.setPrice(new BigDecimal("299.99"));
+        console1.setQuantity(7);
+        console1.setId(1L);
+
+        Console console2 = new Console();
+        console2.setModel("PS5");
+        console2.setManufacturer("Sony");
+        console2.setMemoryAmount("16GB");
+        console2.setProcessor("AMD");
+        console2.setPrice(new BigDecimal("499.99"));
+        console2.setQuantity(3);
+        console2.setId(2L);
+
+        List<Console> foundList = new ArrayList<>();
+        foundList.add(console1);
+        foundList.add(console2);
+
+        when(consoleRepo.findAllById(Arrays.asList(1L, 2L))).thenReturn(foundList);
+
+        this.mockMvc.perform(get("/console").param("ids", "1,2"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().json(mapper.writeValueAsString(foundList)));
+
+        when(consoleRepo.findAllById(Arrays.asList(99L))).thenReturn(new ArrayList<>());
+
+        this.mockMvc.perform(get("/console").param("ids", "99"))
+                .andDo(print())
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     public void shouldFailCreateConsoleWithInvalidQuantity() throws Exception {
 
@@ -660,7 +788,7 @@ public class ConsoleControllerTest {
         //the following mocks the consoleRep layer's method "createConsoleViewModel"
         //So we are mocking (not executing the consoleRep layer) since we are testing the controller here.
         // Remember: we are testing the code of the CONTROLLER methods.
-        when(consoleRepo.findById(16L)).thenReturn(null);
+        when(consoleRepo.findById(16L)).thenReturn(Optional.empty());
 
         mockMvc.perform( MockMvcRequestBuilders
                         .get("/console/{id}", 16L)
@@ -1,7 +1,15 @@
 package com.trilogyed.gamestorecatalog.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trilogyed.gamestorecatalog.client.InvoicingCacheNotifier;
 import com.trilogyed.gamestorecatalog.model.Game;
+import com.trilogyed.gamestorecatalog.model.ItemPatch;
+import com.trilogyed.gamestorecatalog.model.KeysetPage;
+import com.trilogyed.gamestorecatalog.model.StockReservation;
+import com.trilogyed.gamestorecatalog.repository.CatalogImportRepository;
+import com.trilogyed.gamestorecatalog.repository.CatalogPatchRepository;
+import com.trilogyed.gamestorecatalog.repository.CatalogStreamRepository;
+import com.trilogyed.gamestorecatalog.repository.OptimisticUpdates;
 import com.trilogyed.gamestorecatalog.repository.GameRepository;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -9,25 +17,46 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
 @WebMvcTest(GameController.class)
+@Import({CatalogImporter.class, CatalogPatcher.class})
 @AutoConfigureMockMvc(addFilters = false)
 public class GameControllerTest {
 
@@ -38,6 +67,21 @@ public class GameControllerTest {
     // Therefore, mock the gameRepo layer.
     @MockBean
     private GameRepository gameRepo;
+
+    @MockBean
+    private InvoicingCacheNotifier cacheNotifier;
+
+    @MockBean
+    private CatalogStreamRepository catalogStreamRepo;
+
+    @MockBean
+    private CatalogImportRepository catalogImportRepo;
+
+    @MockBean
+    private CatalogPatchRepository catalogPatchRepo;
+
+    @MockBean
+    private OptimisticUpdates optimisticUpdates;
     @Autowired
     //used to move between Objects and JSON
     private ObjectMapper mapper;
@@ -122,7 +166,7 @@ public class GameControllerTest {
 
         //Arrange
         Game  game = new Game();
-        when(gameRepo.findById(idForGameThatDoesNotExist)).thenReturn(null);
+        when(gameRepo.findById(idForGameThatDoesNotExist)).thenReturn(Optional.empty());
 
         //Act & Assert
         this.mockMvc.perform(get("/game/" + idForGameThatDoesNotExist))
@@ -130,6 +174,65 @@ public class GameControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void shouldReturn304WhenGameIsUnchanged() throws Exception {
+        Game game = new Game();
+        game.setTitle("Halo");
+        game.setEsrbRating("E10+");
+        game.setDescription("Puzzles and Math");
+        game.setPrice(new BigDecimal("23.99"));
+        game.setStudio("Xbox Game Studios");
+        game.setQuantity(5);
+        game.setId(8);
+        game.setVersion(3L);
+
+        when(gameRepo.findById(8L)).thenReturn(Optional.of(game));
+
+        this.mockMvc.perform(get("/game/8"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"8.3\""));
+
+        this.mockMvc.perform(get("/game/8").header("If-None-Match", "\"8.3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"8.3\""))
+                .andExpect(content().string(""));
+
+        //an older version gets the whole game again
+        this.mockMvc.perform(get("/game/8").header("If-None-Match", "\"8.2\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(3));
+    }
+
+    @Test
+    public void shouldChangeListETagWhenAGameChanges() throws Exception {
+        Game game = new Game();
+        game.setTitle("Halo");
+        game.setEsrbRating("E10+");
+        game.setDescription("Puzzles and Math");
+        game.setPrice(new BigDecimal("23.99"));
+        game.setStudio("Xbox Game Studios");
+        game.setQuantity(5);
+        game.setId(8);
+        game.setVersion(0L);
+
+        when(gameRepo.findAllByStudio("Xbox Game Studios")).thenReturn(List.of(game));
+
+        String etag = this.mockMvc.perform(get("/game/studio/{studio}", "Xbox Game Studios"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        this.mockMvc.perform(get("/game/studio/{studio}", "Xbox Game Studios").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        game.setVersion(1L);
+
+        String changedEtag = this.mockMvc.perform(get("/game/studio/{studio}", "Xbox Game Studios")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotEquals(etag, changedEtag);
+    }
+
     @Test
     public void shouldUpdateGame() throws Exception{
         //Object to JSON in String
@@ -159,6 +262,96 @@ public class GameControllerTest {
                 .andDo(print())
                 .andExpect(status().isNoContent());
     }
+    @Test
+    public void shouldPatchOnlyTheGivenFields() throws Exception{
+        ItemPatch patch = new ItemPatch(Map.of("price", new BigDecimal("24.99")), 3L);
+        when(catalogPatchRepo.patchGame(5L, patch)).thenReturn(CatalogPatchRepository.Result.APPLIED);
+
+        this.mockMvc.perform(patch("/game/5")
+                        .content("{\"price\": 24.99, \"version\": 3}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isNoContent());
+
+        verify(catalogPatchRepo).patchGame(5L, patch);
+        verify(cacheNotifier).itemChanged(InvoicingCacheNotifier.GAME_ITEM_TYPE, 5L);
+    }
+
+    @Test
+    public void shouldReturn409WhenPatchVersionIsOutOfDate() throws Exception{
+        when(catalogPatchRepo.patchGame(eq(5L), any())).thenReturn(CatalogPatchRepository.Result.STALE);
+
+        this.mockMvc.perform(patch("/game/5")
+                        .content("{\"quantity\": 40, \"version\": 2}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    public void shouldReturn404WhenPatchingMissingGame() throws Exception{
+        when(catalogPatchRepo.patchGame(eq(100L), any())).thenReturn(CatalogPatchRepository.Result.NOT_FOUND);
+
+        this.mockMvc.perform(patch("/game/100")
+                        .content("{\"quantity\": 40, \"version\": 2}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void shouldPatchVersionNamedByIfMatch() throws Exception{
+        ItemPatch patch = new ItemPatch(Map.of("quantity", 40L), 3L);
+        when(catalogPatchRepo.patchGame(5L, patch)).thenReturn(CatalogPatchRepository.Result.APPLIED);
+
+        this.mockMvc.perform(patch("/game/5")
+                        .header(HttpHeaders.IF_MATCH, "\"5.3\"")
+                        .content("{\"quantity\": 40}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isNoContent());
+
+        verify(catalogPatchRepo).patchGame(5L, patch);
+    }
+
+    @Test
+    public void shouldReturn428ForPatchWithoutVersion() throws Exception{
+        this.mockMvc.perform(patch("/game/5")
+                        .content("{\"quantity\": 40}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isPreconditionRequired());
+
+        //another game's ETag names no version of this one
+        this.mockMvc.perform(patch("/game/5")
+                        .header(HttpHeaders.IF_MATCH, "\"6.3\"")
+                        .content("{\"quantity\": 40}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isPreconditionRequired());
+
+        verify(catalogPatchRepo, never()).patchGame(anyLong(), any());
+    }
+
+    @Test
+    public void shouldReturn422ForPatchWithInvalidOrUnknownFields() throws Exception{
+        this.mockMvc.perform(patch("/game/5")
+                        .content("{\"price\": 0.50}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.errors[0]").value("The price for this items is less than $1.00."));
+
+        this.mockMvc.perform(patch("/game/5")
+                        .content("{\"id\": 9, \"title\": \"Halo\"}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.errors[0]").value("id can't be changed."));
+
+        verify(catalogPatchRepo, never()).patchGame(anyLong(), any());
+    }
+
     @Test
     public void shouldDeleteGame() throws Exception{
         //Object to JSON in String
@@ -415,6 +608,265 @@ public class GameControllerTest {
 
     }
 
+    @Test
+    public void shouldGetGamesPage() throws Exception{
+        Game game1 = new Game();
+        game1.setTitle("Halo");
+        game1.setEsrbRating("E10+");
+        game1.setDescription("Puzzles and Math");
+        game1.setPrice(new BigDecimal("23.99"));
+        game1.setStudio("A&E");
+        game1.setQuantity(5);
+        game1.setId(11L);
+
+        Game game2 = new Game();
+        game2.setTitle("Halo IV");
+        game2.setEsrbRating("E18+");
+        game2.setDescription("Puzzles and Math");
+        game2.setPrice(new BigDecimal("23.99"));
+        game2.setStudio("A&E");
+        game2.setQuantity(5);
+        game2.setId(12L);
+
+        Game game3 = new Game();
+        game3.setTitle("Halo V");
+        game3.setEsrbRating("E18+");
+        game3.setDescription("Puzzles and Math");
+        game3.setPrice(new BigDecimal("23.99"));
+        game3.setStudio("A&E");
+        game3.setQuantity(5);
+        game3.setId(15L);
+
+        //repo is asked for limit + 1 rows to find out whether there is a next page
+        when(gameRepo.findByIdGreaterThanOrderByIdAsc(10L, PageRequest.of(0, 3)))
+                .thenReturn(Arrays.asList(game1, game2, game3));
+
+        KeysetPage<Game> expected = new KeysetPage<>(Arrays.asList(game1, game2), 12L);
+
+        this.mockMvc.perform(get("/game").param("afterId", "10").param("limit", "2"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().json(mapper.writeValueAsString(expected)));
+
+        //last page has no cursor
+        when(gameRepo.findByIdGreaterThanOrderByIdAsc(12L, PageRequest.of(0, 3)))
+                .thenReturn(Arrays.asList(game3));
+
+        this.mockMvc.perform(get("/game").param("afterId", "12").param("limit", "2"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.nextAfterId").doesNotExist());
+
+        this.mockMvc.perform(get("/game").param("limit", "0"))
+                .andDo(print())
+                .andExpect(status().isBadRequest());
+        this.mockMvc.perform(get("/game").param("limit", "1001"))
+                .andDo(print())
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void shouldStreamGamesAsNdjson() throws Exception{
+        Game game1 = new Game();
+        game1.setTitle("Halo");
+        game1.setEsrbRating("E10+");
+        game1.setDescription("Puzzles and Math");
+        game1.setPrice(new BigDecimal("23.99"));
+        game1.setStudio("A&E");
+        game1.setQuantity(5);
+        game1.setId(11L);
+
+        Game game2 = new Game();
+        game2.setTitle("Halo IV");
+        game2.setEsrbRating("E18+");
+        game2.setDescription("Puzzles and Math");
+        game2.setPrice(new BigDecimal("23.99"));
+        game2.setStudio("A&E");
+        game2.setQuantity(5);
+        game2.setId(12L);
+
+        doAnswer(invocation -> {
+            Consumer<Game> consumer = invocation.getArgument(1);
+            consumer.accept(game1);
+            consumer.accept(game2);
+            return null;
+        }).when(catalogStreamRepo).streamGames(eq(0L), any());
+
+        MvcResult result = this.mockMvc.perform(get("/game/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(result))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(mapper.writeValueAsString(game1) + "\n"
+                        + mapper.writeValueAsString(game2) + "\n"));
+    }
+
+    @Test
+    public void shouldImportValidGamesFromCsvAndReportRejectedRows() throws Exception{
+        List<Game> imported = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<Game> batch = invocation.getArgument(0);
+            imported.addAll(batch);
+            return null;
+        }).when(catalogImportRepo).insertGames(any());
+
+        String csv = "title,esrbRating,description,price,studio,quantity\n" +
+                "Halo,E10+,Puzzles and Math,23.99,Xbox Game Studios,51\n" +
+                ",E10+,Puzzles and Math,23.99,Xbox Game Studios,51\n" +
+                "Halo IV,E18+,Puzzles and Math,free,Xbox Game Studios,5\n" +
+                "Halo V,E18+,Puzzles and Math,19.99,Xbox Game Studios,5\n";
+
+        this.mockMvc.perform(post("/game/import")
+                        .content(csv)
+                        .contentType("text/csv"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.rejected").value(2))
+                .andExpect(jsonPath("$.complete").value(true))
+                .andExpect(jsonPath("$.rejectedRows[0].line").value(3))
+                .andExpect(jsonPath("$.rejectedRows[0].errors[0]").value("title for the console is required."))
+                .andExpect(jsonPath("$.rejectedRows[1].line").value(4));
+
+        assertEquals(Arrays.asList("Halo", "Halo V"),
+                imported.stream().map(Game::getTitle).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void shouldImportGamesFromNdjson() throws Exception{
+        Game game = new Game();
+        game.setTitle("Halo");
+        game.setEsrbRating("E10+");
+        game.setDescription("Puzzles and Math");
+        game.setPrice(new BigDecimal("23.99"));
+        game.setStudio("Xbox Game Studios");
+        game.setQuantity(51L);
+
+        String ndjson = mapper.writeValueAsString(game) + "\n" +
+                "{\"title\":\"Halo IV\",\"quantity\":0}\n" +
+                "not json\n";
+
+        this.mockMvc.perform(post("/game/import")
+                        .content(ndjson)
+                        .contentType("application/x-ndjson"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.rejected").value(2))
+                .andExpect(jsonPath("$.rejectedRows[0].line").value(2))
+                .andExpect(jsonPath("$.rejectedRows[1].line").value(3));
+
+        verify(catalogImportRepo).insertGames(Arrays.asList(game));
+    }
+
+    @Test
+    public void shouldReserveGameStock() throws Exception{
+        when(gameRepo.reserveQuantity(8L, 3L, "r-1")).thenReturn(1);
+
+        this.mockMvc.perform(post("/game/{id}/reserve", 8).param("qty", "3")
+                        .param("reservation", "r-1"))
+                .andDo(print())
+                .andExpect(status().isNoContent());
+
+        //not enough stock left
+        when(gameRepo.reserveQuantity(8L, 300L, "r-1")).thenReturn(0);
+        when(gameRepo.existsById(8L)).thenReturn(true);
+
+        this.mockMvc.perform(post("/game/{id}/reserve", 8).param("qty", "300")
+                        .param("reservation", "r-1"))
+                .andDo(print())
+                .andExpect(status().isConflict());
+
+        //no such game
+        when(gameRepo.reserveQuantity(99L, 1L, "r-1")).thenReturn(0);
+        when(gameRepo.existsById(99L)).thenReturn(false);
+
+        this.mockMvc.perform(post("/game/{id}/reserve", 99).param("qty", "1")
+                        .param("reservation", "r-1"))
+                .andDo(print())
+                .andExpect(status().isNotFound());
+
+        //bad input is the caller's mistake, not a missing game
+        this.mockMvc.perform(post("/game/{id}/reserve", 8).param("qty", "0")
+                        .param("reservation", "r-1"))
+                .andDo(print())
+                .andExpect(status().isBadRequest());
+
+        this.mockMvc.perform(post("/game/{id}/reserve", 8).param("qty", "1")
+                        .param("reservation", " "))
+                .andDo(print())
+                .andExpect(status().isBadRequest());
+
+        this.mockMvc.perform(post("/game/{id}/reserve", 8).param("qty", "1")
+                        .param("reservation", "r".repeat(StockReservation.MAX_RESERVATION_ID_LENGTH + 1)))
+                .andDo(print())
+                .andExpect(status().isBadRequest());
+        verify(gameRepo, never()).reserveQuantity(eq(8L), eq(1L), anyString());
+    }
+
+    @Test
+    public void shouldReleaseGameStock() throws Exception{
+        when(gameRepo.releaseReservation(8L, "r-1")).thenReturn(true);
+
+        this.mockMvc.perform(post("/game/{id}/release", 8).param("reservation", "r-1"))
+                .andDo(print())
+                .andExpect(status().isNoContent());
+
+        //no such reservation for this game
+        when(gameRepo.releaseReservation(8L, "r-2")).thenReturn(false);
+
+        this.mockMvc.perform(post("/game/{id}/release", 8).param("reservation", "r-2"))
+                .andDo(print())
+                .andExpect(status().isNotFound());
+
+        //a release has to name the reservation it gives back
+        this.mockMvc.perform(post("/game/{id}/release", 8).param("qty", "3"))
+                .andDo(print())
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void shouldGetGamesByIds() throws Exception{
+        Game savedGame1 = new Game();
+        savedGame1.setTitle("Halo");
+        savedGame1.setEsrbRating("E10+");
+        savedGame1.setDescription("Puzzles and Math");
+        savedGame1.setPrice(new BigDecimal("23.99"));
+        savedGame1.setStudio("A&E");
+        savedGame1.setQuantity(5);
+        savedGame1.setId(56L);
+
+        Game savedGame2 = new Game();
+        savedGame2.setTitle("Halo IV");
+        savedGame2.setEsrbRating("E18+");
+        savedGame2.setDescription("Puzzles and Math");
+        savedGame2.setPrice(new BigDecimal("23.99"));
+        savedGame2.setStudio("A&E");
+        savedGame2.setQuantity(5);
+        savedGame2.setId(77L);
+
+        List<Game> foundList = new ArrayList<>();
+        foundList.add(savedGame1);
+        foundList.add(savedGame2);
+
+        when(gameRepo.findAllById(Arrays.asList(56L, 77L, 99L))).thenReturn(foundList);
+
+        this.mockMvc.perform(get("/game").param("ids", "56,77,99"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().json(mapper.writeValueAsString(foundList)));
+
+        when(gameRepo.findAllById(Arrays.asList(99L))).thenReturn(new ArrayList<>());
+
+        this.mockMvc.perform(get("/game").param("ids", "99"))
+                .andDo(print())
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     public void shouldFailCreateGameWithInvalidData() throws Exception {
 
@@ -767,7 +1219,7 @@ public class GameControllerTest {
 
         //So we are mocking (not executing the gameRepo layer) since we are testing the controller here.
         // Remember: we are testing the code of the CONTROLLER methods.
-        when(this.gameRepo.findById(77L)).thenReturn(null);
+        when(this.gameRepo.findById(77L)).thenReturn(Optional.empty());
 
         mockMvc.perform(
                         MockMvcRequestBuilders.get("/game/77") //converts object to JSON and places into RequestBody
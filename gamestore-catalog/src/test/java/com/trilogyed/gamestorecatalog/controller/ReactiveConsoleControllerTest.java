@@ -0,0 +1,98 @@
+package com.trilogyed.gamestorecatalog.controller;
+
+import com.trilogyed.gamestorecatalog.model.Console;
+import com.trilogyed.gamestorecatalog.repository.ReactiveCatalogRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+@RunWith(SpringRunner.class)
+@WebFluxTest(ReactiveConsoleController.class)
+@ActiveProfiles("reactive")
+public class ReactiveConsoleControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveCatalogRepository catalogRepo;
+
+    private Console console(long id, String manufacturer) {
+        Console console = new Console();
+        console.setId(id);
+        console.setModel("Playstation " + id);
+        console.setManufacturer(manufacturer);
+        console.setMemoryAmount("120gb");
+        console.setProcessor("Intel I7-9750H");
+        console.setPrice(new BigDecimal("299.99"));
+        console.setQuantity(4);
+        return console;
+    }
+
+    @Test
+    public void shouldGetConsoleById() {
+        Console console = console(40, "Sony");
+        when(catalogRepo.findConsoleById(40)).thenReturn(Mono.just(console));
+        when(catalogRepo.findConsoleById(41)).thenReturn(Mono.empty());
+
+        webTestClient.get().uri("/console/40").exchange()
+                .expectStatus().isOk()
+                .expectBody(Console.class).isEqualTo(console);
+
+        webTestClient.get().uri("/console/41").exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.message").isEqualTo("Console could not be retrieved for id 41");
+    }
+
+    @Test
+    public void shouldGetConsolesByIds() {
+        Console console1 = console(1, "Sony");
+        Console console2 = console(3, "Nintendo");
+        when(catalogRepo.findConsolesByIds(Arrays.asList(1L, 2L, 3L))).thenReturn(Flux.just(console1, console2));
+
+        webTestClient.get().uri("/console?ids=1,2,3").accept(MediaType.APPLICATION_JSON).exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Console.class).isEqualTo(Arrays.asList(console1, console2));
+    }
+
+    @Test
+    public void shouldStreamConsolesByManufacturerAsNdjson() {
+        Console console1 = console(1, "Sony");
+        Console console2 = console(2, "Sony");
+        when(catalogRepo.findConsolesByManufacturer("Sony")).thenReturn(Flux.just(console1, console2));
+        when(catalogRepo.findConsolesByManufacturer("Atari")).thenReturn(Flux.empty());
+
+        Flux<Console> body = webTestClient.get().uri("/console/manufacturer/Sony")
+                .accept(MediaType.APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Console.class).getResponseBody();
+
+        assertEquals(Arrays.asList(console1, console2), body.collectList().block());
+
+        webTestClient.get().uri("/console/manufacturer/Atari").exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void shouldRejectOutOfRangeConsolesPageLimit() {
+        webTestClient.get().uri("/console?limit=0").exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.get().uri("/console?limit=1001").exchange()
+                .expectStatus().isBadRequest();
+    }
+}
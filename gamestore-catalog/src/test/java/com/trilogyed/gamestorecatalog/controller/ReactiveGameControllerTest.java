@@ -0,0 +1,105 @@
+package com.trilogyed.gamestorecatalog.controller;
+
+import com.trilogyed.gamestorecatalog.model.Game;
+import com.trilogyed.gamestorecatalog.repository.ReactiveCatalogRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+@RunWith(SpringRunner.class)
+@WebFluxTest(ReactiveGameController.class)
+@ActiveProfiles("reactive")
+public class ReactiveGameControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveCatalogRepository catalogRepo;
+
+    private Game game(long id, String studio) {
+        Game game = new Game();
+        game.setId(id);
+        game.setTitle("Halo " + id);
+        game.setEsrbRating("M");
+        game.setDescription("Puzzles and Math");
+        game.setPrice(new BigDecimal("23.99"));
+        game.setStudio(studio);
+        game.setQuantity(5);
+        return game;
+    }
+
+    @Test
+    public void shouldGetGameById() {
+        Game game = game(8, "Xbox Game Studios");
+        when(catalogRepo.findGameById(8)).thenReturn(Mono.just(game));
+        when(catalogRepo.findGameById(9)).thenReturn(Mono.empty());
+
+        webTestClient.get().uri("/game/8").exchange()
+                .expectStatus().isOk()
+                .expectBody(Game.class).isEqualTo(game);
+
+        webTestClient.get().uri("/game/9").exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.message").isEqualTo("Game not found for id 9");
+    }
+
+    @Test
+    public void shouldGetGamesByStudioAsJsonArray() {
+        Game game1 = game(1, "Nintendo");
+        Game game2 = game(2, "Nintendo");
+        when(catalogRepo.findGamesByStudio("Nintendo")).thenReturn(Flux.just(game1, game2));
+        when(catalogRepo.findGamesByStudio("Sega")).thenReturn(Flux.empty());
+
+        webTestClient.get().uri("/game/studio/Nintendo").accept(MediaType.APPLICATION_JSON).exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Game.class).isEqualTo(Arrays.asList(game1, game2));
+
+        webTestClient.get().uri("/game/studio/Sega").exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void shouldStreamAllGamesAsNdjson() {
+        Game game1 = game(1, "Nintendo");
+        Game game2 = game(2, "Sega");
+        when(catalogRepo.findAllGames(0)).thenReturn(Flux.just(game1, game2));
+
+        Flux<Game> body = webTestClient.get().uri("/game").accept(MediaType.APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Game.class).getResponseBody();
+
+        assertEquals(Arrays.asList(game1, game2), body.collectList().block());
+    }
+
+    @Test
+    public void shouldGetGamesPage() {
+        when(catalogRepo.findGamesAfter(0, 3)).thenReturn(Flux.just(game(1, "A"), game(2, "B"), game(3, "C")));
+
+        webTestClient.get().uri("/game?limit=2").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items.length()").isEqualTo(2)
+                .jsonPath("$.nextAfterId").isEqualTo(2);
+
+        webTestClient.get().uri("/game?limit=0").exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.get().uri("/game?limit=1001").exchange()
+                .expectStatus().isBadRequest();
+    }
+}
@@ -0,0 +1,97 @@
+package com.trilogyed.gamestorecatalog.controller;
+
+import com.trilogyed.gamestorecatalog.model.TShirt;
+import com.trilogyed.gamestorecatalog.repository.ReactiveCatalogRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+@RunWith(SpringRunner.class)
+@WebFluxTest(ReactiveTShirtController.class)
+@ActiveProfiles("reactive")
+public class ReactiveTShirtControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveCatalogRepository catalogRepo;
+
+    private TShirt tShirt(long id, String color) {
+        TShirt tShirt = new TShirt();
+        tShirt.setId(id);
+        tShirt.setSize("M");
+        tShirt.setColor(color);
+        tShirt.setDescription("Everybody Knows Your Name");
+        tShirt.setPrice(new BigDecimal("10.05"));
+        tShirt.setQuantity(1);
+        return tShirt;
+    }
+
+    @Test
+    public void shouldGetTShirtById() {
+        TShirt tShirt = tShirt(51, "SkyBlue");
+        when(catalogRepo.findTShirtById(51)).thenReturn(Mono.just(tShirt));
+        when(catalogRepo.findTShirtById(52)).thenReturn(Mono.empty());
+
+        webTestClient.get().uri("/tshirt/51").exchange()
+                .expectStatus().isOk()
+                .expectBody(TShirt.class).isEqualTo(tShirt);
+
+        webTestClient.get().uri("/tshirt/52").exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.message").isEqualTo("T-Shirt could not be retrieved for id 52");
+    }
+
+    @Test
+    public void shouldGetTShirtsByColor() {
+        TShirt tShirt1 = tShirt(1, "Red");
+        TShirt tShirt2 = tShirt(2, "Red");
+        when(catalogRepo.findTShirtsByColor("Red")).thenReturn(Flux.just(tShirt1, tShirt2));
+        when(catalogRepo.findTShirtsByColor("Teal")).thenReturn(Flux.empty());
+
+        webTestClient.get().uri("/tshirt/color/Red").accept(MediaType.APPLICATION_JSON).exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TShirt.class).isEqualTo(Arrays.asList(tShirt1, tShirt2));
+
+        webTestClient.get().uri("/tshirt/color/Teal").exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.message").isEqualTo("No t-shirts were found in Teal");
+    }
+
+    @Test
+    public void shouldStreamTShirtsAfterId() {
+        TShirt tShirt1 = tShirt(11, "Red");
+        TShirt tShirt2 = tShirt(12, "Blue");
+        when(catalogRepo.findAllTShirts(10)).thenReturn(Flux.just(tShirt1, tShirt2));
+
+        Flux<TShirt> body = webTestClient.get().uri("/tshirt/stream?afterId=10").exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(TShirt.class).getResponseBody();
+
+        assertEquals(Arrays.asList(tShirt1, tShirt2), body.collectList().block());
+    }
+
+    @Test
+    public void shouldRejectOutOfRangeTShirtsPageLimit() {
+        webTestClient.get().uri("/tshirt?limit=0").exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.get().uri("/tshirt?limit=1001").exchange()
+                .expectStatus().isBadRequest();
+    }
+}
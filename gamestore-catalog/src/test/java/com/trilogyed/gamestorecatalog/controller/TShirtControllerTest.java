@@ -2,7 +2,12 @@ package com.trilogyed.gamestorecatalog.controller;
 
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trilogyed.gamestorecatalog.client.InvoicingCacheNotifier;
 import com.trilogyed.gamestorecatalog.model.TShirt;
+import com.trilogyed.gamestorecatalog.repository.CatalogImportRepository;
+import com.trilogyed.gamestorecatalog.repository.CatalogPatchRepository;
+import com.trilogyed.gamestorecatalog.repository.CatalogStreamRepository;
+import com.trilogyed.gamestorecatalog.repository.OptimisticUpdates;
 import com.trilogyed.gamestorecatalog.repository.TShirtRepository;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -10,12 +15,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,6 +35,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 @RunWith(SpringRunner.class)
 @WebMvcTest(TShirtController.class)
+@Import({CatalogImporter.class, CatalogPatcher.class})
 @AutoConfigureMockMvc(addFilters = false)
 public class TShirtControllerTest {
 
@@ -39,6 +47,21 @@ public class TShirtControllerTest {
     @MockBean
     private TShirtRepository tShirtRepo;
 
+    @MockBean
+    private InvoicingCacheNotifier cacheNotifier;
+
+    @MockBean
+    private CatalogStreamRepository catalogStreamRepo;
+
+    @MockBean
+    private CatalogImportRepository catalogImportRepo;
+
+    @MockBean
+    private CatalogPatchRepository catalogPatchRepo;
+
+    @MockBean
+    private OptimisticUpdates optimisticUpdates;
+
     @Autowired
     //used to move between Objects and JSON
     private ObjectMapper mapper;
@@ -112,6 +135,15 @@ public class TShirtControllerTest {
                 .andExpect(content().json(outputJson));
     }
 
+    @Test
+    public void shouldReturn404ForMissingTShirt() throws Exception{
+        when(tShirtRepo.findById(52L)).thenReturn(Optional.empty());
+
+        this.mockMvc.perform(get("/tshirt/{id}", 52))
+                .andDo(print())
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     public void shouldUpdateTShirt() throws Exception{
         //Object to JSON in String
@@ -339,6 +371,60 @@ public class TShirtControllerTest {
     }
 
     //test for bad incoming data...
+    @Test
+    public void shouldReserveTShirtStock() throws Exception{
+        when(tShirtRepo.reserveQuantity(4L, 2L, "r-1")).thenReturn(1);
+
+        this.mockMvc.perform(post("/tshirt/{id}/reserve", 4).param("qty", "2")
+                        .param("reservation", "r-1"))
+                .andDo(print())
+                .andExpect(status().isNoContent());
+
+        when(tShirtRepo.reserveQuantity(4L, 20L, "r-1")).thenReturn(0);
+        when(tShirtRepo.existsById(4L)).thenReturn(true);
+
+        this.mockMvc.perform(post("/tshirt/{id}/reserve", 4).param("qty", "20")
+                        .param("reservation", "r-1"))
+                .andDo(print())
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    public void shouldGetTShirtsByIds() throws Exception{
+        TShirt tShirt1 = new TShirt();
+        tShirt1.setSize("Med");
+        tShirt1.setColor("Yellow");
+        tShirt1.setDescription("Science");
+        tShirt1.setPrice(new BigDecimal("14.95"));
+        tShirt1.setQuantity(10);
+        tShirt1.setId(4L);
+
+        TShirt tShirt2 = new TShirt();
+        tShirt2.setSize("Large");
+        tShirt2.setColor("Blue");
+        tShirt2.setDescription("Math");
+        tShirt2.setPrice(new BigDecimal("12.95"));
+        tShirt2.setQuantity(20);
+        tShirt2.setId(5L);
+
+        List<TShirt> foundList = new ArrayList<>();
+        foundList.add(tShirt1);
+        foundList.add(tShirt2);
+
+        when(tShirtRepo.findAllById(Arrays.asList(4L, 5L))).thenReturn(foundList);
+
+        this.mockMvc.perform(get("/tshirt").param("ids", "4,5"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().json(mapper.writeValueAsString(foundList)));
+
+        when(tShirtRepo.findAllById(Arrays.asList(99L))).thenReturn(new ArrayList<>());
+
+        this.mockMvc.perform(get("/tshirt").param("ids", "99"))
+                .andDo(print())
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     public void shouldFailCreateTShirtWithBadData() throws Exception{
         //Object to JSON in String
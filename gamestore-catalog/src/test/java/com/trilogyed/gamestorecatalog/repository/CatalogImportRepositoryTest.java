@@ -0,0 +1,53 @@
+package com.trilogyed.gamestorecatalog.repository;
+
+import com.trilogyed.gamestorecatalog.CatalogCacheConfig;
+import com.trilogyed.gamestorecatalog.model.Game;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+// Runs against H2 with the second-level and query caches on, and without a test transaction, so every batch
+// commits the way it does behind the import endpoints.
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import({CatalogImportRepository.class, StockReservations.class, ItemUpdates.class, CatalogCacheConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class CatalogImportRepositoryTest {
+
+    @Autowired
+    CatalogImportRepository catalogImportRepo;
+
+    @Autowired
+    GameRepository gameRepo;
+
+    @Test
+    public void shouldShowImportedGamesToCachedFinder() {
+        catalogImportRepo.insertGames(List.of(game("Halo")));
+        assertEquals(1, gameRepo.findAllByStudio("Imported Studio").size());
+
+        catalogImportRepo.insertGames(List.of(game("Halo 2"), game("Halo 3")));
+
+        assertEquals(3, gameRepo.findAllByStudio("Imported Studio").size());
+    }
+
+    private static Game game(String title) {
+        Game game = new Game();
+        game.setTitle(title);
+        game.setEsrbRating("M");
+        game.setDescription("Shooter");
+        game.setPrice(new BigDecimal("19.99"));
+        game.setStudio("Imported Studio");
+        game.setQuantity(10);
+        return game;
+    }
+}
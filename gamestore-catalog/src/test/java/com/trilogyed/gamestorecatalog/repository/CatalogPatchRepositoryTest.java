@@ -0,0 +1,71 @@
+package com.trilogyed.gamestorecatalog.repository;
+
+import com.trilogyed.gamestorecatalog.CatalogCacheConfig;
+import com.trilogyed.gamestorecatalog.model.Game;
+import com.trilogyed.gamestorecatalog.model.ItemPatch;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+// Runs against H2 with the second-level cache on, and without a test transaction, like StockReservationsTest.
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import({CatalogPatchRepository.class, StockReservations.class, ItemUpdates.class, CatalogCacheConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class CatalogPatchRepositoryTest {
+
+    @Autowired
+    CatalogPatchRepository catalogPatchRepo;
+
+    @Autowired
+    GameRepository gameRepo;
+
+    @Test
+    public void shouldShowPatchToNextFindById() {
+        Game game = saveGame();
+        //cached at the version the patch names
+        long version = gameRepo.findById(game.getId()).get().getVersion();
+
+        ItemPatch patch = new ItemPatch(Map.of("price", new BigDecimal("24.99")), version);
+        assertEquals(CatalogPatchRepository.Result.APPLIED, catalogPatchRepo.patchGame(game.getId(), patch));
+
+        Game patched = gameRepo.findById(game.getId()).get();
+        assertEquals(new BigDecimal("24.99"), patched.getPrice());
+        assertEquals(version + 1, (long) patched.getVersion());
+    }
+
+    @Test
+    public void shouldTellStalePatchFromMissingItem() {
+        Game game = saveGame();
+        ItemPatch first = new ItemPatch(Map.of("quantity", 40L), game.getVersion());
+        catalogPatchRepo.patchGame(game.getId(), first);
+
+        //made against the version the first patch moved past
+        ItemPatch stale = new ItemPatch(Map.of("quantity", 30L), game.getVersion());
+        assertEquals(CatalogPatchRepository.Result.STALE, catalogPatchRepo.patchGame(game.getId(), stale));
+        assertEquals(CatalogPatchRepository.Result.NOT_FOUND, catalogPatchRepo.patchGame(-1, stale));
+
+        assertEquals(40, gameRepo.findById(game.getId()).get().getQuantity());
+    }
+
+    private Game saveGame() {
+        Game game = new Game();
+        game.setTitle("Halo");
+        game.setEsrbRating("M");
+        game.setDescription("Shooter");
+        game.setPrice(new BigDecimal("19.99"));
+        game.setStudio("Bungie");
+        game.setQuantity(10);
+        return gameRepo.save(game);
+    }
+}
@@ -0,0 +1,130 @@
+package com.trilogyed.gamestorecatalog.repository;
+
+import com.trilogyed.gamestorecatalog.CatalogCacheConfig;
+import com.trilogyed.gamestorecatalog.model.Game;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+// Runs against H2 with the second-level cache on, and without a test transaction, so every reserve and release
+// commits the way it does behind the controllers.
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import({StockReservations.class, ItemUpdates.class, CatalogCacheConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class StockReservationsTest {
+
+    @Autowired
+    GameRepository gameRepo;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    public void shouldShowStockChangeToNextFindById() {
+        long id = saveGame(10);
+        Game cached = gameRepo.findById(id).get();
+
+        assertEquals(1, gameRepo.reserveQuantity(id, 3, "visible-1"));
+
+        Game found = gameRepo.findById(id).get();
+        assertEquals(7, found.getQuantity());
+        assertEquals(cached.getVersion() + 1, (long) found.getVersion());
+    }
+
+    @Test
+    public void shouldNotCacheOldStockReadBeforeReserveCommitted() throws Exception {
+        long id = saveGame(10);
+        gameRepo.findById(id);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertEquals(1, gameRepo.reserveQuantity(id, 3, "reader-1"));
+            //another request reads the game while the reserve is still uncommitted and sees the old stock
+            CompletableFuture<Long> reader = CompletableFuture.supplyAsync(() ->
+                    gameRepo.findById(id).get().getQuantity());
+            assertEquals(10, (long) reader.join());
+        });
+
+        assertEquals(7, gameRepo.findById(id).get().getQuantity());
+    }
+
+    @Test
+    public void shouldTakeStockOnceForRepeatedReserve() {
+        long id = saveGame(10);
+
+        assertEquals(1, gameRepo.reserveQuantity(id, 3, "repeat-1"));
+        assertEquals(1, gameRepo.reserveQuantity(id, 3, "repeat-1"));
+
+        assertEquals(7, gameRepo.findById(id).get().getQuantity());
+    }
+
+    @Test(expected = DuplicateKeyException.class)
+    public void shouldRejectReservationIdReusedForAnotherQuantity() {
+        long id = saveGame(10);
+        gameRepo.reserveQuantity(id, 3, "reuse-1");
+
+        gameRepo.reserveQuantity(id, 4, "reuse-1");
+    }
+
+    @Test
+    public void shouldRecordNothingWhenStockIsShort() {
+        long id = saveGame(10);
+
+        assertEquals(0, gameRepo.reserveQuantity(id, 20, "short-1"));
+        //the failed reserve didn't use up the reservation id
+        assertEquals(1, gameRepo.reserveQuantity(id, 2, "short-1"));
+
+        assertEquals(8, gameRepo.findById(id).get().getQuantity());
+    }
+
+    @Test
+    public void shouldReleaseReservationOnlyOnce() {
+        long id = saveGame(10);
+        gameRepo.reserveQuantity(id, 3, "release-1");
+        assertEquals(7, gameRepo.findById(id).get().getQuantity());
+
+        assertTrue(gameRepo.releaseReservation(id, "release-1"));
+        assertTrue(gameRepo.releaseReservation(id, "release-1"));
+
+        assertEquals(10, gameRepo.findById(id).get().getQuantity());
+    }
+
+    @Test
+    public void shouldNotReleaseStockThatWasNeverReserved() {
+        long id = saveGame(10);
+        long otherId = saveGame(10);
+        gameRepo.reserveQuantity(otherId, 3, "other-1");
+
+        assertFalse(gameRepo.releaseReservation(id, "made-up"));
+        //a real reservation, but for another game
+        assertFalse(gameRepo.releaseReservation(id, "other-1"));
+
+        assertEquals(10, gameRepo.findById(id).get().getQuantity());
+    }
+
+    private long saveGame(long quantity) {
+        Game game = new Game();
+        game.setTitle("Halo");
+        game.setEsrbRating("M");
+        game.setDescription("Shooter");
+        game.setPrice(new BigDecimal("19.99"));
+        game.setStudio("Bungie");
+        game.setQuantity(quantity);
+        return gameRepo.save(game).getId();
+    }
+}
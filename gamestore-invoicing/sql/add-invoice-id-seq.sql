@@ -0,0 +1,14 @@
+-- Moves invoice ids from auto_increment to blocks allocated from invoice_id_seq (InvoiceIdGenerator) on an existing
+-- game_store_invoicing database. Run it with the invoicing service stopped; if a new version already started and
+-- created the table through ddl-auto, this resets it past the existing invoices.
+use game_store_invoicing;
+
+create table if not exists invoice_id_seq (
+    next_val bigint not null
+);
+
+delete from invoice_id_seq;
+insert into invoice_id_seq select coalesce(max(invoice_id), 0) + 1 from invoice;
+
+-- invoice_id keeps its auto_increment: it is no longer used, and removing it would mean dropping and re-adding
+-- invoice_line_item's foreign key first
@@ -0,0 +1,10 @@
+-- Adds Idempotency-Key support (invoice_idempotency_key) to an existing game_store_invoicing database.
+use game_store_invoicing;
+
+create table if not exists invoice_idempotency_key (
+    idempotency_key varchar(64) primary key,
+    request_hash varbinary(32) not null,
+    invoice_id int null,
+    created_at datetime not null,
+    index idx_idempotency_key_created_at (created_at)
+);
@@ -0,0 +1,17 @@
+-- Adds cart invoices (invoice_line_item) to an existing game_store_invoicing database.
+use game_store_invoicing;
+
+alter table invoice
+    modify item_type varchar(50) null,
+    modify unit_price decimal(8,2) null;
+
+create table if not exists invoice_line_item (
+    line_item_id int primary key auto_increment,
+    invoice_id int not null,
+    item_type varchar(50) not null,
+    item_id int not null,
+    unit_price decimal(8,2) not null,
+    quantity int not null,
+    subtotal decimal(8,2) not null,
+    foreign key (invoice_id) references invoice (invoice_id)
+);
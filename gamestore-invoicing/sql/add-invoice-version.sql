@@ -0,0 +1,5 @@
+-- Adds the optimistic-lock version column (Invoice @Version) to an existing game_store_invoicing database.
+-- Existing invoices start at version 0; with a default, MySQL 8 adds the column without rebuilding the table.
+use game_store_invoicing;
+
+alter table invoice add column version int not null default 0, algorithm = instant;
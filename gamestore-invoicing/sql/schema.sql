@@ -3,23 +3,59 @@ create database game_store_invoicing;
 
 use game_store_invoicing;
 
+-- invoice ids are handed out in blocks from invoice_id_seq (see InvoiceIdGenerator); next_val is the first id
+-- of the next free block
+create table invoice_id_seq (
+    next_val bigint not null
+);
+
+insert into invoice_id_seq values (1);
+
 create table invoice (
-    invoice_id int primary key auto_increment,
+    invoice_id int primary key,
     `name` varchar(50) not null,
     street varchar(100) null,
     city varchar(50) not null,
     state varchar(20) not null,
     zipcode varchar(10) null,
-    item_type varchar(50) not null,
-    item_id int not null, -- links to either game, console, or t_shirt ids
-    unit_price decimal(8,2) not null,
+    item_type varchar(50) null, -- null for cart invoices, whose items are in invoice_line_item
+    item_id int not null, -- links to either game, console, or t_shirt ids; 0 for cart invoices
+    unit_price decimal(8,2) null,
     quantity int not null,
     subtotal decimal(8,2) not null,
     tax decimal(8,2) not null,
     processing_fee decimal(8,2) not null,
-    total decimal(8,2) not null
+    total decimal(8,2) not null,
+    created_at datetime not null default current_timestamp,
+    version int not null default 0 -- optimistic lock (Invoice @Version)
 );
 
+create index idx_invoice_created_at on invoice (created_at);
+-- customer history lookups (/invoice/cname/{name}), newest first
+create index idx_invoice_name_id on invoice (`name`, invoice_id);
+
+create table invoice_line_item (
+    line_item_id int primary key auto_increment,
+    invoice_id int not null,
+    item_type varchar(50) not null,
+    item_id int not null,
+    unit_price decimal(8,2) not null,
+    quantity int not null,
+    subtotal decimal(8,2) not null,
+    foreign key (invoice_id) references invoice (invoice_id)
+);
+
+-- Idempotency-Key of each POST /invoice or /invoice/cart that sent one; invoice_id is null while the first request
+-- is still running. Rows older than gamestore.idempotency.ttl-hours are purged by the service.
+create table invoice_idempotency_key (
+    idempotency_key varchar(64) primary key,
+    request_hash varbinary(32) not null,
+    invoice_id int null,
+    created_at datetime not null
+);
+
+create index idx_idempotency_key_created_at on invoice_idempotency_key (created_at);
+
 create table fee (
     product_type varchar(50) primary key,
     fee decimal(8,2) not null
@@ -0,0 +1,18 @@
+package com.trilogyed.gamestoreinvoicing;
+
+import com.trilogyed.gamestoreinvoicing.repository.InvoiceIdAllocator;
+import com.trilogyed.gamestoreinvoicing.repository.InvoiceIdGenerator;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Hands InvoiceIdAllocator to Hibernate, where InvoiceIdGenerator picks it up. Ids left in a block when an
+// instance stops are skipped, not reused.
+@Configuration
+public class InvoicePersistenceConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer invoiceIdGeneratorCustomizer(InvoiceIdAllocator allocator) {
+        return properties -> properties.put(InvoiceIdGenerator.ALLOCATOR_SETTING, allocator);
+    }
+}
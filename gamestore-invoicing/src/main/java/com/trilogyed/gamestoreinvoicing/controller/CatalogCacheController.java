@@ -0,0 +1,32 @@
+package com.trilogyed.gamestoreinvoicing.controller;
+
+import com.trilogyed.gamestoreinvoicing.feign.CatalogItemCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+// Invalidation hook for the catalog item cache. gamestore-catalog calls this whenever a game, console or
+// t-shirt is updated or deleted.
+@RestController
+@RequestMapping(value = "/catalog-cache")
+public class CatalogCacheController {
+
+    @Autowired
+    CatalogItemCache catalogItemCache;
+
+    @DeleteMapping("/{itemType}/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void invalidateItem(@PathVariable("itemType") String itemType, @PathVariable("id") long itemId) {
+        if (!catalogItemCache.isKnownItemType(itemType)) {
+            throw new IllegalArgumentException(itemType +
+                    ": Unrecognized Item type. Valid ones: T-Shirt, Console, or Game");
+        }
+        catalogItemCache.invalidate(itemType, itemId);
+    }
+
+    @DeleteMapping
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void invalidateAll() {
+        catalogItemCache.invalidateAll();
+    }
+}
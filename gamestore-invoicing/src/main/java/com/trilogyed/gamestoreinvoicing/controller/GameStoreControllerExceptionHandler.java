@@ -1,5 +1,9 @@
 package com.trilogyed.gamestoreinvoicing.controller;
 
+import com.trilogyed.gamestoreinvoicing.feign.CatalogLookupTimeoutException;
+import com.trilogyed.gamestoreinvoicing.feign.CatalogUnavailableException;
+import com.trilogyed.gamestoreinvoicing.service.IdempotencyKeyConflictException;
+import com.trilogyed.gamestoreinvoicing.service.InvalidIdempotencyKeyException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -32,6 +36,49 @@ public class GameStoreControllerExceptionHandler extends ResponseEntityException
         return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler({CatalogLookupTimeoutException.class})
+    public ResponseEntity<Object> handleCatalogLookupTimeout(
+            CatalogLookupTimeoutException ex, WebRequest request) {
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("message", ex.getMessage());
+
+        return new ResponseEntity<>(body, HttpStatus.GATEWAY_TIMEOUT);
+    }
+
+    @ExceptionHandler({CatalogUnavailableException.class})
+    public ResponseEntity<Object> handleCatalogUnavailable(
+            CatalogUnavailableException ex, WebRequest request) {
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("message", ex.getMessage());
+
+        return new ResponseEntity<>(body, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler({IdempotencyKeyConflictException.class})
+    public ResponseEntity<Object> handleIdempotencyKeyConflict(
+            IdempotencyKeyConflictException ex, WebRequest request) {
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("message", ex.getMessage());
+
+        return new ResponseEntity<>(body, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler({InvalidIdempotencyKeyException.class})
+    public ResponseEntity<Object> handleInvalidIdempotencyKey(
+            InvalidIdempotencyKeyException ex, WebRequest request) {
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("message", ex.getMessage());
+
+        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
 
     //Handles all other exceptions...z
     @Override
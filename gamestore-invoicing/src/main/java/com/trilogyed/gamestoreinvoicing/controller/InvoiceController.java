@@ -1,13 +1,25 @@
 package com.trilogyed.gamestoreinvoicing.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trilogyed.gamestoreinvoicing.model.BatchInvoiceResult;
 import com.trilogyed.gamestoreinvoicing.model.Invoice;
+import com.trilogyed.gamestoreinvoicing.model.KeysetPage;
+import com.trilogyed.gamestoreinvoicing.repository.InvoiceFilter;
 import com.trilogyed.gamestoreinvoicing.service.GameStoreInvoicingServiceLayer;
+import com.trilogyed.gamestoreinvoicing.service.IdempotencyKeyService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
 
 @RestController
 @RequestMapping(value = "/invoice")
@@ -17,15 +29,53 @@ public class InvoiceController {
     @Autowired
     GameStoreInvoicingServiceLayer service;
 
+    @Autowired
+    IdempotencyKeyService idempotencyService;
+
+    @Autowired
+    ObjectMapper mapper;
+
     // Assumption: All orders are final and data privacy is not top priority. Therefore, the Update & Delete EndPoints
     // are left out by design due to its potential danger. The getAllInvoices is a questionable one since it could
-    // overwhelm the system and infringes on data privacy; however, it does not damage data as with the Update and Delete
+    // overwhelm the system and infringes on data privacy; however, it does not damage data as with the Update and Delete.
+    // Large reads should use the keyset-paged listing (?limit=) or /invoice/export instead.
 
+    // Clients that may retry should send an Idempotency-Key header (up to 64 characters, unique per purchase).
+    // A retry with the same key and body returns the invoice already created instead of buying again; the same
+    // key with a different body, or while the first request is still running, gets 409; a malformed key gets 400.
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public Invoice purchaseItem(@RequestBody @Valid Invoice invoice) {
-        invoice = service.createNewInvoice(invoice);
-        return invoice;
+    public Invoice purchaseItem(@RequestBody @Valid Invoice invoice,
+                                @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (idempotencyKey != null) {
+            return idempotencyService.createOnce(idempotencyKey, invoice,
+                    onSaved -> service.createNewInvoice(invoice, onSaved));
+        }
+        return service.createNewInvoice(invoice);
+    }
+
+    // One invoice for several items: send the customer fields plus lineItems [{itemType, itemId, quantity}].
+    // Tax and the processing fee are charged once on the whole cart. Accepts an Idempotency-Key like POST /invoice.
+    @PostMapping("/cart")
+    @ResponseStatus(HttpStatus.CREATED)
+    public Invoice purchaseCart(@RequestBody Invoice invoice,
+                                @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (idempotencyKey != null) {
+            return idempotencyService.createOnce(idempotencyKey, invoice,
+                    onSaved -> service.createCartInvoice(invoice, onSaved));
+        }
+        return service.createCartInvoice(invoice);
+    }
+
+    // Bulk purchase for wholesale imports. Invoices are validated one by one, so the response carries a
+    // CREATED/FAILED result per invoice rather than rejecting the whole list.
+    @PostMapping("/batch")
+    @ResponseStatus(HttpStatus.OK)
+    public List<BatchInvoiceResult> purchaseItems(@RequestBody List<Invoice> invoices) {
+        if (invoices == null || invoices.isEmpty()) {
+            throw new IllegalArgumentException("No invoices were submitted.");
+        }
+        return service.createNewInvoices(invoices);
     }
 
     @GetMapping("/{id}")
@@ -39,6 +89,64 @@ public class InvoiceController {
         }
     }
 
+    // Keyset pagination: GET /invoice?limit=100, then pass nextAfterId back as afterId.
+    // Optional filters: toId (inclusive) and from/to on the creation time (ISO date-time, inclusive).
+    @GetMapping(params = "limit")
+    @ResponseStatus(HttpStatus.OK)
+    public KeysetPage<Invoice> findInvoicesPage(
+            @RequestParam(value = "afterId", defaultValue = "0") long afterId,
+            @RequestParam(value = "toId", required = false) Long toId,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam("limit") int limit) {
+        return service.getInvoicePage(new InvoiceFilter(afterId, toId, from, to), limit);
+    }
+
+    // Full export for reporting, streamed straight from the database as NDJSON (default) or CSV. Runs as an async
+    // request, so it is cut off after spring.mvc.async.request-timeout; see exportRows for how it stops.
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportInvoices(
+            @RequestParam(value = "afterId", defaultValue = "0") long afterId,
+            @RequestParam(value = "toId", required = false) Long toId,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        InvoiceFilter filter = new InvoiceFilter(afterId, toId, from, to);
+
+        if (format.equalsIgnoreCase("csv")) {
+            StreamingResponseBody body = out -> {
+                InvoiceCsvWriter writer = new InvoiceCsvWriter(out);
+                writer.writeHeader();
+                exportRows(filter, writer::write);
+                writer.flush();
+            };
+            return ResponseEntity.ok()
+                    .contentType(InvoiceCsvWriter.TEXT_CSV)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"invoices.csv\"")
+                    .body(body);
+        } else if (format.equalsIgnoreCase("ndjson")) {
+            StreamingResponseBody body = out -> {
+                NdjsonWriter writer = new NdjsonWriter(mapper, out);
+                exportRows(filter, writer::write);
+            };
+            return ResponseEntity.ok().contentType(NdjsonWriter.APPLICATION_NDJSON).body(body);
+        } else {
+            throw new IllegalArgumentException(format + ": Unrecognized export format. Valid ones: ndjson or csv");
+        }
+    }
+
+    // When the request times out or the client goes away, Spring interrupts the thread running the export. The
+    // next row then throws, which ends the query and frees its connection and cursor instead of reading on to the
+    // end. (A write to a client that has gone away fails as well, but only once the response buffer fills.)
+    private void exportRows(InvoiceFilter filter, Consumer<Invoice> writer) {
+        service.streamInvoices(filter, invoice -> {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Invoice export cancelled after invoice " + invoice.getId());
+            }
+            writer.accept(invoice);
+        });
+    }
+
     @GetMapping()
     @ResponseStatus(HttpStatus.OK)
     public List<Invoice> findAllInvoices() {
@@ -51,6 +159,17 @@ public class InvoiceController {
         }
     }
 
+    // Customer history for the support desk, newest first: GET /invoice/cname/{name}?limit=20, then pass
+    // nextAfterId back as beforeId.
+    @GetMapping(value = "/cname/{name}", params = "limit")
+    @ResponseStatus(HttpStatus.OK)
+    public KeysetPage<Invoice> findCustomerHistory(
+            @PathVariable String name,
+            @RequestParam(value = "beforeId", defaultValue = "" + Long.MAX_VALUE) long beforeId,
+            @RequestParam("limit") int limit) {
+        return service.getCustomerHistory(name, beforeId, limit);
+    }
+
     @GetMapping("/cname/{name}")
     @ResponseStatus(HttpStatus.OK)
     public List<Invoice > findInvoicesByCustomerName(@PathVariable String name) {
@@ -0,0 +1,97 @@
+package com.trilogyed.gamestoreinvoicing.controller;
+
+import com.trilogyed.gamestoreinvoicing.model.Invoice;
+import com.trilogyed.gamestoreinvoicing.model.InvoiceLineItem;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+// Writes invoices as CSV rows (RFC 4180 quoting) to a streaming response body. A cart invoice gets one row per line
+// item: the item columns and lineItemId/lineSubtotal come from the line item, and the invoice's own columns (name
+// through total) repeat on every row. lineItemId and lineSubtotal are empty for single-item invoices.
+class InvoiceCsvWriter {
+
+    static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    private static final String HEADER = "id,name,street,city,state,zipcode,itemType,itemId,unitPrice,quantity," +
+            "subtotal,tax,processingFee,total,createdAt,lineItemId,lineSubtotal";
+
+    private final Writer out;
+
+    InvoiceCsvWriter(OutputStream out) {
+        this.out = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+    }
+
+    void writeHeader() {
+        writeLine(HEADER);
+    }
+
+    void write(Invoice invoice) {
+        if (invoice.getLineItems() == null || invoice.getLineItems().isEmpty()) {
+            writeRow(invoice, invoice.getItemType(), invoice.getItemId(), invoice.getUnitPrice(),
+                    invoice.getQuantity(), null, null);
+            return;
+        }
+        for (InvoiceLineItem lineItem : invoice.getLineItems()) {
+            writeRow(invoice, lineItem.getItemType(), lineItem.getItemId(), lineItem.getUnitPrice(),
+                    lineItem.getQuantity(), lineItem.getId(), lineItem.getSubtotal());
+        }
+    }
+
+    private void writeRow(Invoice invoice, String itemType, long itemId, BigDecimal unitPrice, long quantity,
+                          Long lineItemId, BigDecimal lineSubtotal) {
+        StringBuilder line = new StringBuilder();
+        line.append(invoice.getId()).append(',')
+                .append(field(invoice.getName())).append(',')
+                .append(field(invoice.getStreet())).append(',')
+                .append(field(invoice.getCity())).append(',')
+                .append(field(invoice.getState())).append(',')
+                .append(field(invoice.getZipcode())).append(',')
+                .append(field(itemType)).append(',')
+                .append(itemId).append(',')
+                .append(field(unitPrice)).append(',')
+                .append(quantity).append(',')
+                .append(field(invoice.getSubtotal())).append(',')
+                .append(field(invoice.getTax())).append(',')
+                .append(field(invoice.getProcessingFee())).append(',')
+                .append(field(invoice.getTotal())).append(',')
+                .append(field(invoice.getCreatedAt())).append(',')
+                .append(field(lineItemId)).append(',')
+                .append(field(lineSubtotal));
+        writeLine(line.toString());
+    }
+
+    void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeLine(String line) {
+        try {
+            out.write(line);
+            out.write("\r\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String field(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
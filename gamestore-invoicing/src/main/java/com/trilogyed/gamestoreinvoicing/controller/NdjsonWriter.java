@@ -0,0 +1,32 @@
+package com.trilogyed.gamestoreinvoicing.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+// Writes one JSON object per line to a streaming response body.
+class NdjsonWriter {
+
+    static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final ObjectWriter writer;
+    private final OutputStream out;
+
+    NdjsonWriter(ObjectMapper mapper, OutputStream out) {
+        this.writer = mapper.writer();
+        this.out = out;
+    }
+
+    void write(Object row) {
+        try {
+            out.write(writer.writeValueAsBytes(row));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
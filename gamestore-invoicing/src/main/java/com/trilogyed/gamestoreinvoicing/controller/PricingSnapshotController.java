@@ -0,0 +1,28 @@
+package com.trilogyed.gamestoreinvoicing.controller;
+
+import com.trilogyed.gamestoreinvoicing.service.PricingSnapshot;
+import com.trilogyed.gamestoreinvoicing.service.PricingSnapshotService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping(value = "/admin/pricing-snapshot")
+public class PricingSnapshotController {
+
+    @Autowired
+    PricingSnapshotService pricingSnapshotService;
+
+    @GetMapping
+    @ResponseStatus(HttpStatus.OK)
+    public PricingSnapshot getPricingSnapshot() {
+        return pricingSnapshotService.getSnapshot();
+    }
+
+    // Forces a reload of the tax and fee tables, e.g. right after a rate change.
+    @PostMapping("/refresh")
+    @ResponseStatus(HttpStatus.OK)
+    public PricingSnapshot refreshPricingSnapshot() {
+        return pricingSnapshotService.refresh();
+    }
+}
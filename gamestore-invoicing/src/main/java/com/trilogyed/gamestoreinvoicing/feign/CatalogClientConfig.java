@@ -0,0 +1,142 @@
+package com.trilogyed.gamestoreinvoicing.feign;
+
+import feign.Client;
+import feign.hc5.ApacheHttp5Client;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.cloud.openfeign.loadbalancer.FeignBlockingLoadBalancerClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.function.ToDoubleFunction;
+
+// HTTP plumbing for the GameStoreCatalog Feign client, replacing Feign's default HttpURLConnection client:
+// - a pooled Apache HttpClient 5 with keep-alive; idle connections are evicted before the catalog's Tomcat would
+//   time them out (20 s by default) and a caller waits at most pool-wait-ms for a free one. Connect and read timeouts stay in feign.client.config.gamestore-catalog.*.
+// - a bulkhead capping concurrent catalog calls, and a circuit breaker that fails fast once the catalog is
+//   erroring or slow (see ResilientCatalogClient).
+// - replicas are chosen by LeastLoadedLoadBalancer (CatalogLoadBalancerConfig) instead of round robin.
+// Pool usage is published as gamestore.catalog.pool.* gauges and breaker/bulkhead state as resilience4j.* meters.
+@Configuration
+@org.springframework.cloud.loadbalancer.annotation.LoadBalancerClient(name = CatalogClientConfig.CATALOG,
+        configuration = CatalogLoadBalancerConfig.class)
+public class CatalogClientConfig {
+
+    public static final String CATALOG = "gamestore-catalog";
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager catalogConnectionManager(
+            MeterRegistry meterRegistry,
+            @Value("${gamestore.catalog-client.max-connections:200}") int maxConnections,
+            @Value("${gamestore.catalog-client.max-connections-per-route:100}") int maxConnectionsPerRoute,
+            @Value("${gamestore.catalog-client.connection-ttl-seconds:300}") long connectionTtlSeconds,
+            @Value("${gamestore.catalog-client.validate-after-idle-ms:2000}") long validateAfterIdleMillis) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setConnectionTimeToLive(TimeValue.ofSeconds(connectionTtlSeconds))
+                //a connection idle this long is checked before reuse, in case the catalog closed it meanwhile
+                .setValidateAfterInactivity(TimeValue.ofMilliseconds(validateAfterIdleMillis))
+                .build();
+
+        poolGauge(meterRegistry, connectionManager, "leased", "Connections in use", PoolStats::getLeased);
+        poolGauge(meterRegistry, connectionManager, "available", "Idle keep-alive connections",
+                PoolStats::getAvailable);
+        poolGauge(meterRegistry, connectionManager, "pending", "Callers waiting for a connection",
+                PoolStats::getPending);
+        poolGauge(meterRegistry, connectionManager, "max", "Pool size", PoolStats::getMax);
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient catalogHttpClient(
+            PoolingHttpClientConnectionManager catalogConnectionManager,
+            @Value("${gamestore.catalog-client.pool-wait-ms:500}") long poolWaitMillis,
+            @Value("${gamestore.catalog-client.idle-eviction-seconds:15}") long idleEvictionSeconds) {
+        return HttpClients.custom()
+                .setConnectionManager(catalogConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolWaitMillis))
+                        .setRedirectsEnabled(false)
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(idleEvictionSeconds))
+                .disableCookieManagement()
+                //reserve/release are POSTs; whether to retry is the caller's decision, and the breaker should see
+                //every failure
+                .disableAutomaticRetries()
+                .build();
+    }
+
+    @Bean
+    public CircuitBreaker catalogCircuitBreaker(
+            MeterRegistry meterRegistry,
+            @Value("${gamestore.catalog-client.circuit-breaker.window-size:50}") int windowSize,
+            @Value("${gamestore.catalog-client.circuit-breaker.minimum-calls:20}") int minimumCalls,
+            @Value("${gamestore.catalog-client.circuit-breaker.failure-rate-percent:50}") float failureRatePercent,
+            @Value("${gamestore.catalog-client.circuit-breaker.slow-call-ms:1000}") long slowCallMillis,
+            @Value("${gamestore.catalog-client.circuit-breaker.slow-call-rate-percent:80}") float slowCallRatePercent,
+            @Value("${gamestore.catalog-client.circuit-breaker.open-ms:10000}") long openMillis,
+            @Value("${gamestore.catalog-client.circuit-breaker.half-open-calls:5}") int halfOpenCalls) {
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindow(windowSize, minimumCalls, CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .failureRateThreshold(failureRatePercent)
+                .slowCallDurationThreshold(Duration.ofMillis(slowCallMillis))
+                .slowCallRateThreshold(slowCallRatePercent)
+                .waitDurationInOpenState(Duration.ofMillis(openMillis))
+                .permittedNumberOfCallsInHalfOpenState(halfOpenCalls)
+                .build());
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry.circuitBreaker(CATALOG);
+    }
+
+    @Bean
+    public Bulkhead catalogBulkhead(
+            MeterRegistry meterRegistry,
+            @Value("${gamestore.catalog-client.bulkhead.max-concurrent-calls:64}") int maxConcurrentCalls,
+            @Value("${gamestore.catalog-client.bulkhead.max-wait-ms:0}") long maxWaitMillis) {
+        BulkheadRegistry registry = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(Duration.ofMillis(maxWaitMillis))
+                .build());
+        TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+        return registry.bulkhead(CATALOG);
+    }
+
+    // Takes the place of the load-balanced client Spring Cloud would otherwise build around HttpURLConnection.
+    @Bean
+    public Client feignClient(CloseableHttpClient catalogHttpClient, LoadBalancerClient loadBalancerClient,
+                              LoadBalancerClientFactory loadBalancerClientFactory,
+                              CircuitBreaker catalogCircuitBreaker, Bulkhead catalogBulkhead) {
+        Client loadBalanced = new FeignBlockingLoadBalancerClient(new ApacheHttp5Client(catalogHttpClient),
+                loadBalancerClient, loadBalancerClientFactory);
+        return new ResilientCatalogClient(loadBalanced, catalogCircuitBreaker, catalogBulkhead);
+    }
+
+    private static void poolGauge(MeterRegistry meterRegistry, PoolingHttpClientConnectionManager connectionManager,
+                                  String name, String description, ToDoubleFunction<PoolStats> value) {
+        Gauge.builder("gamestore.catalog.pool." + name, connectionManager, cm -> value.applyAsDouble(cm.getTotalStats()))
+                .description(description)
+                .register(meterRegistry);
+    }
+}
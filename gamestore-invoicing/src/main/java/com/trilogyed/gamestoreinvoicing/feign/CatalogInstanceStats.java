@@ -0,0 +1,121 @@
+package com.trilogyed.gamestoreinvoicing.feign;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Per-replica load as seen from this invoicing instance: requests in flight and an exponentially weighted moving
+// average of response time. Fed by the load balancer lifecycle hooks FeignBlockingLoadBalancerClient calls around
+// every catalog request, and read by LeastLoadedLoadBalancer. A failed call counts as at least
+// gamestore.catalog-lb.failure-penalty-ms so a replica that errors quickly doesn't look fast. Replicas that drop out
+// of discovery are forgotten (retainOnly), so the map doesn't grow as catalog instances come and go.
+@Component
+public class CatalogInstanceStats implements LoadBalancerLifecycle<RequestDataContext, ResponseData, ServiceInstance> {
+
+    static final class InstanceStats {
+        final AtomicInteger outstanding = new AtomicInteger();
+        //0 until the first response; concurrent updates may drop a sample, which is fine for a moving average
+        volatile double latencyNanos;
+    }
+
+    private final ConcurrentMap<String, InstanceStats> stats = new ConcurrentHashMap<>();
+    private final double decay;
+    private final long failurePenaltyNanos;
+
+    public CatalogInstanceStats(@Value("${gamestore.catalog-lb.latency-decay:0.2}") double decay,
+                                @Value("${gamestore.catalog-lb.failure-penalty-ms:2000}") long failurePenaltyMillis) {
+        this.decay = decay;
+        this.failurePenaltyNanos = TimeUnit.MILLISECONDS.toNanos(failurePenaltyMillis);
+    }
+
+    public int outstanding(ServiceInstance instance) {
+        InstanceStats instanceStats = stats.get(key(instance));
+        return instanceStats == null ? 0 : instanceStats.outstanding.get();
+    }
+
+    // Moving average response time in nanoseconds, or 0 if nothing has been measured yet.
+    public double latencyNanos(ServiceInstance instance) {
+        InstanceStats instanceStats = stats.get(key(instance));
+        return instanceStats == null ? 0 : instanceStats.latencyNanos;
+    }
+
+    // Drops the stats of every replica that isn't in instances, the latest list from discovery. Stats only exist
+    // for replicas that were picked from such a list, so there is nothing to drop until the map outgrows it.
+    public void retainOnly(List<ServiceInstance> instances) {
+        if (stats.size() <= instances.size()) {
+            return;
+        }
+        Set<String> current = new HashSet<>();
+        for (ServiceInstance instance : instances) {
+            current.add(key(instance));
+        }
+        stats.keySet().retainAll(current);
+    }
+
+    @Override
+    public boolean supports(Class requestContextClass, Class responseClass, Class serverTypeClass) {
+        return RequestDataContext.class.isAssignableFrom(requestContextClass)
+                && ResponseData.class.isAssignableFrom(responseClass)
+                && ServiceInstance.class.isAssignableFrom(serverTypeClass);
+    }
+
+    @Override
+    public void onStart(Request<RequestDataContext> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<RequestDataContext> request, Response<ServiceInstance> lbResponse) {
+        if (!lbResponse.hasServer()) {
+            return;
+        }
+        statsFor(lbResponse.getServer()).outstanding.incrementAndGet();
+        ((TimedRequestContext) request.getContext()).setRequestStartTime(System.nanoTime());
+    }
+
+    @Override
+    public void onComplete(CompletionContext<ResponseData, ServiceInstance, RequestDataContext> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (completionContext.status() == CompletionContext.Status.DISCARD || lbResponse == null
+                || !lbResponse.hasServer()) {
+            return;
+        }
+        //null if the replica left discovery while the call was running; don't bring it back
+        InstanceStats instanceStats = stats.get(key(lbResponse.getServer()));
+        if (instanceStats == null) {
+            return;
+        }
+        instanceStats.outstanding.decrementAndGet();
+
+        long startTime = ((TimedRequestContext) completionContext.getLoadBalancerRequest().getContext())
+                .getRequestStartTime();
+        long elapsed = System.nanoTime() - startTime;
+        if (completionContext.status() == CompletionContext.Status.FAILED) {
+            elapsed = Math.max(elapsed, failurePenaltyNanos);
+        }
+        double previous = instanceStats.latencyNanos;
+        instanceStats.latencyNanos = previous == 0 ? elapsed : previous + decay * (elapsed - previous);
+    }
+
+    private InstanceStats statsFor(ServiceInstance instance) {
+        return stats.computeIfAbsent(key(instance), k -> new InstanceStats());
+    }
+
+    private static String key(ServiceInstance instance) {
+        return instance.getHost() + ":" + instance.getPort();
+    }
+}
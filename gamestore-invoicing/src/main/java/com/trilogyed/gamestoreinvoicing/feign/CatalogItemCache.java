@@ -0,0 +1,232 @@
+package com.trilogyed.gamestoreinvoicing.feign;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.trilogyed.gamestoreinvoicing.model.CatalogItem;
+import feign.FeignException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Size- and TTL-bounded cache in front of the GameStoreCatalog Feign client, one cache per item type.
+// Entries are dropped early when the catalog calls DELETE /catalog-cache/{itemType}/{id} after an update or delete,
+// so the TTL only bounds staleness if that notification is lost. Hit/miss stats are published as
+// cache.* meters tagged cache=catalogItems, itemType=<type>; the calls that reach the catalog are timed as
+// gamestore.catalog.lookup tagged itemType=<type>, mode=single|bulk.
+// Bulk misses are fetched concurrently on a small bounded pool (gamestore.catalog-lookup.*), one task per item
+// type and id chunk, so a cart's lookups take as long as the slowest call rather than the sum of them. Each call
+// is bounded by the Feign client timeouts and the whole fan-out by deadline-ms.
+@Component
+public class CatalogItemCache {
+
+    public static final String GAME_ITEM_TYPE = "Game";
+    public static final String CONSOLE_ITEM_TYPE = "Console";
+    public static final String TSHIRT_ITEM_TYPE = "T-Shirt";
+
+    //keeps the ?ids= query string well under URL length limits
+    private static final int MAX_IDS_PER_LOOKUP = 200;
+
+    private final GameStoreCatalog client;
+    private final Map<String, Cache<Long, CatalogItem>> caches = new HashMap<>();
+    private final Map<String, Timer> singleLookupTimers = new HashMap<>();
+    private final Map<String, Timer> bulkLookupTimers = new HashMap<>();
+    private final ThreadPoolExecutor lookupExecutor;
+    private final long deadlineMillis;
+
+    @Autowired
+    public CatalogItemCache(GameStoreCatalog client, MeterRegistry meterRegistry,
+                            @Value("${gamestore.catalog-cache.max-size:10000}") long maxSize,
+                            @Value("${gamestore.catalog-cache.ttl-seconds:30}") long ttlSeconds,
+                            @Value("${gamestore.catalog-lookup.threads:8}") int lookupThreads,
+                            @Value("${gamestore.catalog-lookup.queue-capacity:64}") int lookupQueueCapacity,
+                            @Value("${gamestore.catalog-lookup.deadline-ms:3000}") long deadlineMillis) {
+        this.client = client;
+        this.deadlineMillis = deadlineMillis;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        //when the queue is full the request thread does the lookup itself, which also slows callers down
+        this.lookupExecutor = new ThreadPoolExecutor(lookupThreads, lookupThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(lookupQueueCapacity), r -> {
+                    Thread thread = new Thread(r, "catalog-lookup-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.lookupExecutor.allowCoreThreadTimeOut(true);
+
+        for (String itemType : Arrays.asList(GAME_ITEM_TYPE, CONSOLE_ITEM_TYPE, TSHIRT_ITEM_TYPE)) {
+            Cache<Long, CatalogItem> cache = Caffeine.newBuilder()
+                    .maximumSize(maxSize)
+                    .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, "catalogItems", Tags.of("itemType", itemType));
+            caches.put(itemType, cache);
+            singleLookupTimers.put(itemType, lookupTimer(meterRegistry, itemType, "single"));
+            bulkLookupTimers.put(itemType, lookupTimer(meterRegistry, itemType, "bulk"));
+        }
+    }
+
+    public boolean isKnownItemType(String itemType) {
+        return itemType != null && caches.containsKey(itemType);
+    }
+
+    // Returns null if the catalog has no such item (404); misses are not cached. Any other catalog failure is a
+    // CatalogUnavailableException.
+    public CatalogItem get(String itemType, long itemId) {
+        return cacheFor(itemType).get(itemId, id -> fetch(itemType, id));
+    }
+
+    // Looks up many items of several types at once. Only the ids not already cached go to the catalog, as
+    // concurrent calls of up to MAX_IDS_PER_LOOKUP ids each. Ids the catalog doesn't know are missing from the
+    // returned maps. Throws CatalogLookupTimeoutException if the calls miss the deadline, and
+    // CatalogUnavailableException if the catalog client is failing fast or any call fails other than with a 404.
+    public Map<String, Map<Long, CatalogItem>> getAll(Map<String, ? extends Collection<Long>> idsByType) {
+        Map<String, Map<Long, CatalogItem>> itemsByType = new HashMap<>();
+        List<Future<List<? extends CatalogItem>>> lookups = new ArrayList<>();
+        List<String> lookupTypes = new ArrayList<>();
+
+        for (Map.Entry<String, ? extends Collection<Long>> entry : idsByType.entrySet()) {
+            String itemType = entry.getKey();
+            Cache<Long, CatalogItem> cache = cacheFor(itemType);
+
+            Map<Long, CatalogItem> items = new HashMap<>(cache.getAllPresent(entry.getValue()));
+            itemsByType.put(itemType, items);
+
+            List<Long> missing = new ArrayList<>();
+            for (Long id : entry.getValue()) {
+                if (!items.containsKey(id)) {
+                    missing.add(id);
+                }
+            }
+            for (int from = 0; from < missing.size(); from += MAX_IDS_PER_LOOKUP) {
+                List<Long> chunk = missing.subList(from, Math.min(from + MAX_IDS_PER_LOOKUP, missing.size()));
+                lookups.add(lookupExecutor.submit(() -> fetchChunk(itemType, chunk)));
+                lookupTypes.add(itemType);
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        for (int i = 0; i < lookups.size(); i++) {
+            List<? extends CatalogItem> found;
+            try {
+                found = lookups.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                for (Future<?> lookup : lookups) {
+                    lookup.cancel(true);
+                }
+                throw new CatalogLookupTimeoutException("Catalog lookups did not finish within " +
+                        deadlineMillis + " ms.");
+            } catch (ExecutionException e) {
+                //fetchChunk already turned catalog failures into CatalogUnavailableException (and unknown ids into
+                //an empty result), so anything else is a bug here and goes up as it is rather than as a 503
+                for (Future<?> lookup : lookups) {
+                    lookup.cancel(true);
+                }
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw new IllegalStateException("Catalog lookup failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CatalogLookupTimeoutException("Interrupted while waiting for catalog lookups.");
+            }
+
+            Cache<Long, CatalogItem> cache = cacheFor(lookupTypes.get(i));
+            Map<Long, CatalogItem> items = itemsByType.get(lookupTypes.get(i));
+            for (CatalogItem item : found) {
+                cache.put(item.getId(), item);
+                items.put(item.getId(), item);
+            }
+        }
+        return itemsByType;
+    }
+
+    public void invalidate(String itemType, long itemId) {
+        cacheFor(itemType).invalidate(itemId);
+    }
+
+    public void invalidateAll() {
+        for (Cache<Long, CatalogItem> cache : caches.values()) {
+            cache.invalidateAll();
+        }
+    }
+
+    private Cache<Long, CatalogItem> cacheFor(String itemType) {
+        Cache<Long, CatalogItem> cache = itemType == null ? null : caches.get(itemType);
+        if (cache == null) {
+            throw new IllegalArgumentException(itemType +
+                    ": Unrecognized Item type. Valid ones: T-Shirt, Console, or Game");
+        }
+        return cache;
+    }
+
+    private static Timer lookupTimer(MeterRegistry meterRegistry, String itemType, String mode) {
+        return Timer.builder("gamestore.catalog.lookup")
+                .description("Calls to the catalog service for items missing from the cache")
+                .tag("itemType", itemType)
+                .tag("mode", mode)
+                .register(meterRegistry);
+    }
+
+    private CatalogItem fetch(String itemType, long itemId) {
+        try {
+            return singleLookupTimers.get(itemType).record(() -> {
+                if (itemType.equals(CONSOLE_ITEM_TYPE)) {
+                    return client.getConsoleById(itemId);
+                } else if (itemType.equals(GAME_ITEM_TYPE)) {
+                    return client.getGameById(itemId);
+                } else {
+                    return client.getTshirtById(itemId);
+                }
+            });
+        } catch (FeignException.NotFound e) {
+            return null;
+        } catch (FeignException e) {
+            throw unavailable(itemType, e);
+        }
+    }
+
+    // The catalog answers 404 when none of the ids exist; that is the only failure that means "no such items".
+    private List<? extends CatalogItem> fetchChunk(String itemType, List<Long> ids) {
+        List<? extends CatalogItem> found;
+        try {
+            found = bulkLookupTimers.get(itemType).record(() -> {
+                if (itemType.equals(CONSOLE_ITEM_TYPE)) {
+                    return client.getConsolesByIds(ids);
+                } else if (itemType.equals(GAME_ITEM_TYPE)) {
+                    return client.getGamesByIds(ids);
+                } else {
+                    return client.getTshirtsByIds(ids);
+                }
+            });
+        } catch (FeignException.NotFound e) {
+            return Collections.emptyList();
+        } catch (FeignException e) {
+            throw unavailable(itemType, e);
+        }
+        return found == null ? Collections.emptyList() : found;
+    }
+
+    private static CatalogUnavailableException unavailable(String itemType, FeignException e) {
+        return new CatalogUnavailableException("The catalog could not look up " + itemType + " items (status " +
+                e.status() + "); try again shortly.", e);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lookupExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,24 @@
+package com.trilogyed.gamestoreinvoicing.feign;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+// Per-client load balancer configuration for gamestore-catalog, registered through @LoadBalancerClient on
+// CatalogClientConfig. Deliberately not a @Configuration: it must only be loaded into the catalog's load balancer
+// context, not picked up by component scanning.
+public class CatalogLoadBalancerConfig {
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> catalogLoadBalancer(Environment environment,
+                                                                    LoadBalancerClientFactory loadBalancerClientFactory,
+                                                                    CatalogInstanceStats stats) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        return new LeastLoadedLoadBalancer(
+                loadBalancerClientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class),
+                serviceId, stats);
+    }
+}
@@ -0,0 +1,9 @@
+package com.trilogyed.gamestoreinvoicing.feign;
+
+// Thrown when catalog lookups for one request don't all finish within gamestore.catalog-lookup.deadline-ms.
+public class CatalogLookupTimeoutException extends RuntimeException {
+
+    public CatalogLookupTimeoutException(String message) {
+        super(message);
+    }
+}
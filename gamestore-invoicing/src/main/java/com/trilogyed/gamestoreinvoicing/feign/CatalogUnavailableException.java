@@ -0,0 +1,14 @@
+package com.trilogyed.gamestoreinvoicing.feign;
+
+// Thrown without calling the catalog when its circuit breaker is open or too many calls to it are already in flight,
+// and in place of any catalog failure other than a 404, so an outage is answered with 503 rather than as a bad item.
+public class CatalogUnavailableException extends RuntimeException {
+
+    public CatalogUnavailableException(String message) {
+        super(message);
+    }
+
+    public CatalogUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -19,6 +19,9 @@ public interface GameStoreCatalog {
     @RequestMapping(value = "/console/{id}", method = RequestMethod.GET)
     public Console getConsoleById(@PathVariable("id") long consoleId);
 
+    @RequestMapping(value = "/console", method = RequestMethod.GET)
+    public List<Console> getConsolesByIds(@RequestParam("ids") List<Long> consoleIds);
+
     @RequestMapping(value = "/console", method = RequestMethod.POST)
     public Console addConsole(Console consoleViewModel);
 //    thought maybe parameter should have @PathVariable? dont think so. or RequestBody!
@@ -26,6 +29,13 @@ public interface GameStoreCatalog {
     @RequestMapping(value = "/console", method = RequestMethod.PUT)
     public Console updateConsole(Console consoleViewModel);
 
+    @RequestMapping(value = "/console/{id}/reserve", method = RequestMethod.POST)
+    public void reserveConsole(@PathVariable("id") long consoleId, @RequestParam("qty") long quantity,
+            @RequestParam("reservation") String reservationId);
+
+    @RequestMapping(value = "/console/{id}/release", method = RequestMethod.POST)
+    public void releaseConsole(@PathVariable("id") long consoleId, @RequestParam("reservation") String reservationId);
+
     @RequestMapping(value = "/console/{id}", method = RequestMethod.DELETE)
     public void deleteConsole(@PathVariable("id") long consoleId);
 
@@ -36,12 +46,22 @@ public interface GameStoreCatalog {
     @RequestMapping(value = "/game/{id}", method = RequestMethod.GET)
     public Game getGameById(@PathVariable("id") long gameId);
 
+    @RequestMapping(value = "/game", method = RequestMethod.GET)
+    public List<Game> getGamesByIds(@RequestParam("ids") List<Long> gameIds);
+
     @RequestMapping(value = "/game", method = RequestMethod.POST)
     public Game addGame(Game gameViewModel);
 
     @RequestMapping(value = "/game", method = RequestMethod.PUT)
     public Game updateGame(Game gameViewModel);
 
+    @RequestMapping(value = "/game/{id}/reserve", method = RequestMethod.POST)
+    public void reserveGame(@PathVariable("id") long gameId, @RequestParam("qty") long quantity,
+            @RequestParam("reservation") String reservationId);
+
+    @RequestMapping(value = "/game/{id}/release", method = RequestMethod.POST)
+    public void releaseGame(@PathVariable("id") long gameId, @RequestParam("reservation") String reservationId);
+
     @RequestMapping(value = "/game/{id}", method = RequestMethod.DELETE)
     public void deleteGame(@PathVariable("id") long gameId);
 
@@ -53,12 +73,22 @@ public interface GameStoreCatalog {
     @RequestMapping(value = "/tshirt/{id}", method = RequestMethod.GET)
     public TShirt getTshirtById(@PathVariable("id") long tshirtId);
 
+    @RequestMapping(value = "/tshirt", method = RequestMethod.GET)
+    public List<TShirt> getTshirtsByIds(@RequestParam("ids") List<Long> tshirtIds);
+
     @RequestMapping(value = "/tshirt", method = RequestMethod.POST)
     public TShirt addtshirt(TShirt tshirtViewModel);
 
     @RequestMapping(value = "/tshirt", method = RequestMethod.PUT)
     public TShirt updateConsole(TShirt tshirtViewModel);
 
+    @RequestMapping(value = "/tshirt/{id}/reserve", method = RequestMethod.POST)
+    public void reserveTshirt(@PathVariable("id") long tshirtId, @RequestParam("qty") long quantity,
+            @RequestParam("reservation") String reservationId);
+
+    @RequestMapping(value = "/tshirt/{id}/release", method = RequestMethod.POST)
+    public void releaseTshirt(@PathVariable("id") long tshirtId, @RequestParam("reservation") String reservationId);
+
     @RequestMapping(value = "/tshirt/{id}", method = RequestMethod.DELETE)
     public void deleteTshirt(@PathVariable("id") long thsirtId);
 
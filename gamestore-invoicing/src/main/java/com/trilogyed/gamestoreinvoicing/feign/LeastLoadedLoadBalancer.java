@@ -0,0 +1,86 @@
+package com.trilogyed.gamestoreinvoicing.feign;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+// Latency-aware replacement for Spring Cloud's round robin: "power of two choices". Two replicas are picked at
+// random and the request goes to the cheaper one, where cost = (requests in flight + 1) x average response time
+// (CatalogInstanceStats). A slow or overloaded replica gets fewer requests without every caller herding onto the
+// single fastest one. A replica with no measurements yet is assumed to be as fast as the one it is compared with.
+public class LeastLoadedLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(LeastLoadedLoadBalancer.class);
+
+    private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+    private final String serviceId;
+    private final CatalogInstanceStats stats;
+    private final Supplier<Random> random;
+
+    public LeastLoadedLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+                                   String serviceId, CatalogInstanceStats stats) {
+        this(serviceInstanceListSupplierProvider, serviceId, stats, ThreadLocalRandom::current);
+    }
+
+    // For tests, which pass a seeded Random so the picks repeat.
+    LeastLoadedLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+                            String serviceId, CatalogInstanceStats stats, Supplier<Random> random) {
+        this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
+        this.serviceId = serviceId;
+        this.stats = stats;
+        this.random = random;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = serviceInstanceListSupplierProvider
+                .getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(this::choose);
+    }
+
+    private Response<ServiceInstance> choose(List<ServiceInstance> instances) {
+        stats.retainOnly(instances);
+        if (instances.isEmpty()) {
+            log.warn("No servers available for service: {}", serviceId);
+            return new EmptyResponse();
+        }
+        if (instances.size() == 1) {
+            return new DefaultResponse(instances.get(0));
+        }
+
+        Random random = this.random.get();
+        int first = random.nextInt(instances.size());
+        int second = random.nextInt(instances.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+
+        double latencyA = stats.latencyNanos(a);
+        double latencyB = stats.latencyNanos(b);
+        if (latencyA == 0) {
+            latencyA = latencyB == 0 ? 1 : latencyB;
+        }
+        if (latencyB == 0) {
+            latencyB = latencyA;
+        }
+        double costA = (stats.outstanding(a) + 1) * latencyA;
+        double costB = (stats.outstanding(b) + 1) * latencyB;
+        return new DefaultResponse(costA <= costB ? a : b);
+    }
+}
@@ -0,0 +1,156 @@
+package com.trilogyed.gamestoreinvoicing.feign;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Feign Client decorator that puts a bulkhead and a circuit breaker in front of every catalog call. Both are
+// checked before a pooled connection is taken, so when the catalog is slow or down callers fail fast with
+// CatalogUnavailableException instead of queueing behind it. Only connection errors, timeouts and 5xx answers count
+// as failures: 404 and 409 are the catalog's normal answers for unknown items and short stock.
+// A call lasts until Feign has read and closed the response body, not just until the headers arrive: the bulkhead
+// permit is held and the outcome recorded only then, so a body that is slow to arrive or fails halfway counts
+// against the catalog like any other slow or failed call.
+public class ResilientCatalogClient implements Client {
+
+    private final Client delegate;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+
+    public ResilientCatalogClient(Client delegate, CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+        this.delegate = delegate;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        if (!bulkhead.tryAcquirePermission()) {
+            throw new CatalogUnavailableException("Too many catalog calls in flight; try again shortly.");
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            bulkhead.onComplete();
+            throw new CatalogUnavailableException("The catalog is unavailable; try again shortly.");
+        }
+        Call call = new Call(System.nanoTime());
+        Response response;
+        try {
+            response = delegate.execute(request, options);
+        } catch (IOException | RuntimeException e) {
+            call.finished(e);
+            throw e;
+        }
+        IOException serverError = response.status() >= 500
+                ? new IOException("Catalog answered " + response.status()) : null;
+        if (response.body() == null) {
+            call.finished(serverError);
+            return response;
+        }
+        return response.toBuilder().body(new GuardedBody(response.body(), call, serverError)).build();
+    }
+
+    // One catalog call: records its outcome with the circuit breaker and frees its bulkhead permit, once.
+    private class Call {
+
+        private final long start;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        Call(long start) {
+            this.start = start;
+        }
+
+        // error is null for a successful call
+        void finished(Throwable error) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            if (error == null) {
+                circuitBreaker.onSuccess(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            } else {
+                circuitBreaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, error);
+            }
+            bulkhead.onComplete();
+        }
+    }
+
+    // Ends the call when the body is closed, or as a failure when reading it throws.
+    private static class GuardedBody implements Response.Body {
+
+        private final Response.Body body;
+        private final Call call;
+        private final IOException serverError;
+
+        GuardedBody(Response.Body body, Call call, IOException serverError) {
+            this.body = body;
+            this.call = call;
+            this.serverError = serverError;
+        }
+
+        @Override
+        public Integer length() {
+            return body.length();
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return body.isRepeatable();
+        }
+
+        @Override
+        public InputStream asInputStream() throws IOException {
+            InputStream in;
+            try {
+                in = body.asInputStream();
+            } catch (IOException | RuntimeException e) {
+                call.finished(e);
+                throw e;
+            }
+            return new FilterInputStream(in) {
+                @Override
+                public int read() throws IOException {
+                    try {
+                        return super.read();
+                    } catch (IOException e) {
+                        call.finished(e);
+                        throw e;
+                    }
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    try {
+                        return super.read(b, off, len);
+                    } catch (IOException e) {
+                        call.finished(e);
+                        throw e;
+                    }
+                }
+            };
+        }
+
+        @Override
+        public Reader asReader(Charset charset) throws IOException {
+            return new InputStreamReader(asInputStream(), charset);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                body.close();
+            } finally {
+                call.finished(serverError);
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.trilogyed.gamestoreinvoicing.model;
+
+import java.util.Objects;
+
+// Outcome of one invoice in a POST /invoice/batch request. index is the position in the request list.
+public class BatchInvoiceResult {
+
+    public static final String CREATED = "CREATED";
+    public static final String FAILED = "FAILED";
+
+    private int index;
+    private String status;
+    private Invoice invoice;
+    private String message;
+
+    public BatchInvoiceResult() {}
+
+    public static BatchInvoiceResult created(int index, Invoice invoice) {
+        BatchInvoiceResult result = new BatchInvoiceResult();
+        result.setIndex(index);
+        result.setStatus(CREATED);
+        result.setInvoice(invoice);
+        return result;
+    }
+
+    public static BatchInvoiceResult failed(int index, String message) {
+        BatchInvoiceResult result = new BatchInvoiceResult();
+        result.setIndex(index);
+        result.setStatus(FAILED);
+        result.setMessage(message);
+        return result;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Invoice getInvoice() {
+        return invoice;
+    }
+
+    public void setInvoice(Invoice invoice) {
+        this.invoice = invoice;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BatchInvoiceResult that = (BatchInvoiceResult) o;
+        return getIndex() == that.getIndex() &&
+                Objects.equals(getStatus(), that.getStatus()) &&
+                Objects.equals(getInvoice(), that.getInvoice()) &&
+                Objects.equals(getMessage(), that.getMessage());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getIndex(), getStatus(), getInvoice(), getMessage());
+    }
+}
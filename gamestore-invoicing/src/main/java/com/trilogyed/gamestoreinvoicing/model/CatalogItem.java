@@ -0,0 +1,13 @@
+package com.trilogyed.gamestoreinvoicing.model;
+
+import java.math.BigDecimal;
+
+// What the invoice service needs from a catalog item, regardless of whether it is a Game, Console or T-Shirt.
+public interface CatalogItem {
+
+    long getId();
+
+    BigDecimal getPrice();
+
+    long getQuantity();
+}
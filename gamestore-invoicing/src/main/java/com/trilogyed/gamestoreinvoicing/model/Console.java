@@ -11,7 +11,7 @@ import java.util.Objects;
 @Entity
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Table(name = "console")
-public class Console implements Serializable {
+public class Console implements Serializable, CatalogItem {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -10,7 +10,7 @@ import java.util.Objects;
 @Entity
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Table(name = "game")
-public class Game {
+public class Game implements CatalogItem {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
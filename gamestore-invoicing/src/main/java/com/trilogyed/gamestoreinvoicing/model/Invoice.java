@@ -1,20 +1,29 @@
 package com.trilogyed.gamestoreinvoicing.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 import javax.validation.constraints.*;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Objects;
 
 @Entity
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
-@Table(name = "invoice")
+@Table(name = "invoice", indexes = {
+        @Index(name = "idx_invoice_created_at", columnList = "createdAt"),
+        @Index(name = "idx_invoice_name_id", columnList = "name, invoice_id")})
 public class Invoice {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "invoice_id")
+    @GenericGenerator(name = "invoice_id", strategy = "com.trilogyed.gamestoreinvoicing.repository.InvoiceIdGenerator")
     @Column(name = "invoice_id")
     private long id;
     @NotEmpty(message = "Name is required, please.")
@@ -41,6 +50,21 @@ public class Invoice {
     private BigDecimal tax;
     private BigDecimal processingFee;
     private BigDecimal total;
+    //set by the service when the invoice is created
+    private LocalDateTime createdAt;
+    //optimistic lock: JPA writes 0 on insert and checks and moves it on with every update; rows inserted through
+    //InvoiceBatchRepository get the column default. Null until saved, which also tells Hibernate the invoice is new
+    @Version
+    @ColumnDefault("0")
+    private Long version;
+    //only cart invoices (POST /invoice/cart) have line items; their item columns above are left empty.
+    //Written by InvoiceBatchRepository, so JPA only reads them.
+    @OneToMany(fetch = FetchType.LAZY)
+    @JoinColumn(name = "invoice_id", insertable = false, updatable = false)
+    @OrderBy("id")
+    @BatchSize(size = 100)
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private List<InvoiceLineItem> lineItems;
 
     public String getName() {
         return name;
@@ -91,11 +115,12 @@ public class Invoice {
     }
 
     public BigDecimal getUnitPrice() {
-        return unitPrice.setScale(2, RoundingMode.HALF_UP);
+        //null on cart invoices
+        return unitPrice == null ? null : unitPrice.setScale(2, RoundingMode.HALF_UP);
     }
 
     public void setUnitPrice(BigDecimal unitPrice) {
-        this.unitPrice = unitPrice.setScale(2, RoundingMode.HALF_UP);
+        this.unitPrice = unitPrice == null ? null : unitPrice.setScale(2, RoundingMode.HALF_UP);
     }
 
     public long getQuantity() {
@@ -138,6 +163,30 @@ public class Invoice {
         this.total = total;
     }
 
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public List<InvoiceLineItem> getLineItems() {
+        return lineItems;
+    }
+
+    public void setLineItems(List<InvoiceLineItem> lineItems) {
+        this.lineItems = lineItems;
+    }
+
     public long getId() {
         return id;
     }
@@ -162,6 +211,7 @@ public class Invoice {
         return getId() == invoice.getId() &&
                 getItemId() == invoice.getItemId() &&
                 getQuantity() == invoice.getQuantity() &&
+                Objects.equals(getVersion(), invoice.getVersion()) &&
                 Objects.equals(getName(), invoice.getName()) &&
                 Objects.equals(getStreet(), invoice.getStreet()) &&
                 Objects.equals(getCity(), invoice.getCity()) &&
@@ -172,13 +222,14 @@ public class Invoice {
                 Objects.equals(getSubtotal(), invoice.getSubtotal()) &&
                 Objects.equals(getTax(), invoice.getTax()) &&
                 Objects.equals(getProcessingFee(), invoice.getProcessingFee()) &&
-                Objects.equals(getTotal(), invoice.getTotal());
+                Objects.equals(getTotal(), invoice.getTotal()) &&
+                Objects.equals(getCreatedAt(), invoice.getCreatedAt());
     }
 
     @Override
     public int hashCode() {
         return Objects.hash(getId(), getName(), getStreet(), getCity(), getState(), getZipcode(),
                 getItemType(), getItemId(), getUnitPrice(), getQuantity(), getSubtotal(), getTax(),
-                getProcessingFee(), getTotal());
+                getProcessingFee(), getTotal(), getCreatedAt(), getVersion());
     }
 }
@@ -0,0 +1,84 @@
+package com.trilogyed.gamestoreinvoicing.model;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Objects;
+
+// Idempotency-Key sent with a POST /invoice (or /invoice/cart). requestHash is the SHA-256 of the request body, so
+// a key can't be replayed for a different purchase; invoiceId stays null while the first request is in progress.
+// Rows are written by IdempotencyKeyRepository and expire after gamestore.idempotency.ttl-hours.
+@Entity
+@Table(name = "invoice_idempotency_key", indexes = {
+        @Index(name = "idx_idempotency_key_created_at", columnList = "createdAt")})
+public class InvoiceIdempotencyKey {
+
+    public static final int MAX_KEY_LENGTH = 64;
+
+    @Id
+    @Column(name = "idempotency_key", length = MAX_KEY_LENGTH)
+    private String key;
+    @Column(nullable = false, length = 32)
+    private byte[] requestHash;
+    private Long invoiceId;
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    public InvoiceIdempotencyKey() {}
+
+    public InvoiceIdempotencyKey(String key, byte[] requestHash, Long invoiceId, LocalDateTime createdAt) {
+        this.key = key;
+        this.requestHash = requestHash;
+        this.invoiceId = invoiceId;
+        this.createdAt = createdAt;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public byte[] getRequestHash() {
+        return requestHash;
+    }
+
+    public void setRequestHash(byte[] requestHash) {
+        this.requestHash = requestHash;
+    }
+
+    public Long getInvoiceId() {
+        return invoiceId;
+    }
+
+    public void setInvoiceId(Long invoiceId) {
+        this.invoiceId = invoiceId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        InvoiceIdempotencyKey that = (InvoiceIdempotencyKey) o;
+        return Objects.equals(getKey(), that.getKey()) &&
+                Arrays.equals(getRequestHash(), that.getRequestHash()) &&
+                Objects.equals(getInvoiceId(), that.getInvoiceId()) &&
+                Objects.equals(getCreatedAt(), that.getCreatedAt());
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(getKey(), getInvoiceId(), getCreatedAt());
+        return 31 * result + Arrays.hashCode(getRequestHash());
+    }
+}
@@ -0,0 +1,108 @@
+package com.trilogyed.gamestoreinvoicing.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import javax.persistence.*;
+import javax.validation.constraints.*;
+import java.math.BigDecimal;
+import java.util.Objects;
+
+// One item of a cart invoice. unitPrice and subtotal are filled in by the service; tax and the processing fee
+// are only charged on the invoice itself.
+@Entity
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+@Table(name = "invoice_line_item")
+public class InvoiceLineItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "line_item_id")
+    private long id;
+    @Column(name = "invoice_id")
+    private long invoiceId;
+    @NotEmpty(message = "Item type is required, please.")
+    private String itemType;
+    @NotNull(message = "An item id is required, please.")
+    private long itemId;
+    private BigDecimal unitPrice;
+    @Min(value = 1, message = "Minimum quantity is 1.")
+    @Max(value = 50000, message = "Maximum quantity is 50,000.")
+    private long quantity;
+    private BigDecimal subtotal;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public long getInvoiceId() {
+        return invoiceId;
+    }
+
+    public void setInvoiceId(long invoiceId) {
+        this.invoiceId = invoiceId;
+    }
+
+    public String getItemType() {
+        return itemType;
+    }
+
+    public void setItemType(String itemType) {
+        this.itemType = itemType;
+    }
+
+    public long getItemId() {
+        return itemId;
+    }
+
+    public void setItemId(long itemId) {
+        this.itemId = itemId;
+    }
+
+    public BigDecimal getUnitPrice() {
+        return unitPrice;
+    }
+
+    public void setUnitPrice(BigDecimal unitPrice) {
+        this.unitPrice = unitPrice;
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(long quantity) {
+        this.quantity = quantity;
+    }
+
+    public BigDecimal getSubtotal() {
+        return subtotal;
+    }
+
+    public void setSubtotal(BigDecimal subtotal) {
+        this.subtotal = subtotal;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        InvoiceLineItem that = (InvoiceLineItem) o;
+        return getId() == that.getId() &&
+                getInvoiceId() == that.getInvoiceId() &&
+                getItemId() == that.getItemId() &&
+                getQuantity() == that.getQuantity() &&
+                Objects.equals(getItemType(), that.getItemType()) &&
+                Objects.equals(getUnitPrice(), that.getUnitPrice()) &&
+                Objects.equals(getSubtotal(), that.getSubtotal());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getId(), getInvoiceId(), getItemType(), getItemId(), getUnitPrice(), getQuantity(),
+                getSubtotal());
+    }
+}
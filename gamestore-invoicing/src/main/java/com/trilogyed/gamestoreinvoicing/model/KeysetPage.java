@@ -0,0 +1,68 @@
+package com.trilogyed.gamestoreinvoicing.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.ToLongFunction;
+
+// One page of a keyset (cursor) listing. nextAfterId is the last id on the page; pass it back as afterId
+// (or beforeId for newest-first listings) to get the next page. It is null on the last page.
+public class KeysetPage<T> {
+
+    public static final int MAX_LIMIT = 1000;
+
+    private List<T> items;
+    private Long nextAfterId;
+
+    public KeysetPage() {}
+
+    public KeysetPage(List<T> items, Long nextAfterId) {
+        this.items = items;
+        this.nextAfterId = nextAfterId;
+    }
+
+    public static void checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+        }
+    }
+
+    // rows is expected to hold up to limit + 1 rows in listing order; the extra row only tells us there is a next page.
+    public static <T> KeysetPage<T> of(List<T> rows, int limit, ToLongFunction<T> idOf) {
+        if (rows.size() <= limit) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<T> items = new ArrayList<>(rows.subList(0, limit));
+        return new KeysetPage<>(items, idOf.applyAsLong(items.get(limit - 1)));
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public Long getNextAfterId() {
+        return nextAfterId;
+    }
+
+    public void setNextAfterId(Long nextAfterId) {
+        this.nextAfterId = nextAfterId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        KeysetPage<?> that = (KeysetPage<?>) o;
+        return Objects.equals(getItems(), that.getItems()) &&
+                Objects.equals(getNextAfterId(), that.getNextAfterId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getItems(), getNextAfterId());
+    }
+}
@@ -11,7 +11,7 @@ import java.util.Objects;
 @Entity
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Table(name = "tshirt")
-public class TShirt implements Serializable {
+public class TShirt implements Serializable, CatalogItem {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,82 @@
+package com.trilogyed.gamestoreinvoicing.repository;
+
+import com.trilogyed.gamestoreinvoicing.model.InvoiceIdempotencyKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Plain JDBC access to invoice_idempotency_key. A key is claimed with a bare INSERT so the primary key decides
+// which of several concurrent requests with the same key gets to create the invoice; every other change is a
+// single conditional UPDATE or DELETE.
+@Repository
+public class IdempotencyKeyRepository {
+
+    private static final RowMapper<InvoiceIdempotencyKey> ROW_MAPPER = (rs, rowNum) -> {
+        long invoiceId = rs.getLong("invoice_id");
+        Long completedInvoiceId = rs.wasNull() ? null : invoiceId;
+        return new InvoiceIdempotencyKey(
+                rs.getString("idempotency_key"),
+                rs.getBytes("request_hash"),
+                completedInvoiceId,
+                rs.getTimestamp("created_at").toLocalDateTime());
+    };
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    // Returns false if the key already exists.
+    public boolean claim(String key, byte[] requestHash, LocalDateTime now) {
+        try {
+            jdbcTemplate.update("insert into invoice_idempotency_key (idempotency_key, request_hash, created_at) " +
+                    "values (?, ?, ?)", key, requestHash, Timestamp.valueOf(now));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    public InvoiceIdempotencyKey find(String key) {
+        List<InvoiceIdempotencyKey> found = jdbcTemplate.query("select idempotency_key, request_hash, invoice_id, " +
+                "created_at from invoice_idempotency_key where idempotency_key = ?", ROW_MAPPER, key);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    // Takes over a claim whose request never finished (createdAt is the value that was read, so only one taker
+    // wins). Returns false if someone else got there first.
+    public boolean reclaim(String key, LocalDateTime createdAt, LocalDateTime now) {
+        return jdbcTemplate.update("update invoice_idempotency_key set created_at = ? " +
+                        "where idempotency_key = ? and invoice_id is null and created_at = ?",
+                Timestamp.valueOf(now), key, Timestamp.valueOf(createdAt)) == 1;
+    }
+
+    // Records the invoice for the claim made at claimedAt. Returns false if that claim was taken over meanwhile.
+    public boolean complete(String key, LocalDateTime claimedAt, long invoiceId) {
+        return jdbcTemplate.update("update invoice_idempotency_key set invoice_id = ? " +
+                        "where idempotency_key = ? and invoice_id is null and created_at = ?",
+                invoiceId, key, Timestamp.valueOf(claimedAt)) == 1;
+    }
+
+    // Frees a key whose request failed, so the client can retry with it. Leaves it alone if it was taken over.
+    public void release(String key, LocalDateTime claimedAt) {
+        jdbcTemplate.update("delete from invoice_idempotency_key " +
+                        "where idempotency_key = ? and invoice_id is null and created_at = ?",
+                key, Timestamp.valueOf(claimedAt));
+    }
+
+    // Removes one expired key, unless it was renewed since it was read.
+    public boolean deleteExpired(String key, LocalDateTime createdAt) {
+        return jdbcTemplate.update("delete from invoice_idempotency_key where idempotency_key = ? and created_at = ?",
+                key, Timestamp.valueOf(createdAt)) == 1;
+    }
+
+    public int deleteCreatedBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update("delete from invoice_idempotency_key where created_at < ?",
+                Timestamp.valueOf(cutoff));
+    }
+}
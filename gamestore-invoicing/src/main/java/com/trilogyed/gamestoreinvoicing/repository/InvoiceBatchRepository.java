@@ -0,0 +1,116 @@
+package com.trilogyed.gamestoreinvoicing.repository;
+
+import com.trilogyed.gamestoreinvoicing.model.Invoice;
+import com.trilogyed.gamestoreinvoicing.model.InvoiceLineItem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
+
+// Plain JDBC batch insert for invoices, for the batch and cart endpoints, without the persistence context that
+// invoiceRepo.saveAll keeps for every row. Invoice ids come from the same InvoiceIdAllocator as JPA saves, so both
+// paths can write to the table at once.
+@Repository
+public class InvoiceBatchRepository {
+
+    private static final String INSERT_INVOICE =
+            "insert into invoice (invoice_id, name, street, city, state, zipcode, item_type, item_id, unit_price, " +
+                    "quantity, subtotal, tax, processing_fee, total, created_at) " +
+                    "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_LINE_ITEM =
+            "insert into invoice_line_item (invoice_id, item_type, item_id, unit_price, quantity, subtotal) " +
+                    "values (?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    InvoiceIdAllocator idAllocator;
+
+    // Inserts all invoices in one transaction, setting their ids first. Their rows start at version 0.
+    @Transactional
+    public List<Invoice> insertAll(List<Invoice> invoices) {
+        if (invoices.isEmpty()) {
+            return invoices;
+        }
+        for (Invoice invoice : invoices) {
+            invoice.setId(idAllocator.nextId());
+            invoice.setVersion(0L);
+        }
+        return jdbcTemplate.execute((ConnectionCallback<List<Invoice>>) con -> {
+            try (PreparedStatement ps = con.prepareStatement(INSERT_INVOICE)) {
+                for (Invoice invoice : invoices) {
+                    setInvoice(ps, invoice);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            return invoices;
+        });
+    }
+
+    // Writes a cart invoice and all of its line items in one transaction: one insert for the invoice, then one
+    // JDBC batch for the lines. Ids are set on the invoice and its line items, and the invoice starts at version 0.
+    @Transactional
+    public Invoice insertCart(Invoice invoice) {
+        invoice.setId(idAllocator.nextId());
+        invoice.setVersion(0L);
+        return jdbcTemplate.execute((ConnectionCallback<Invoice>) con -> {
+            try (PreparedStatement ps = con.prepareStatement(INSERT_INVOICE)) {
+                setInvoice(ps, invoice);
+                ps.executeUpdate();
+            }
+
+            List<InvoiceLineItem> lineItems = invoice.getLineItems();
+            try (PreparedStatement ps = con.prepareStatement(INSERT_LINE_ITEM, Statement.RETURN_GENERATED_KEYS)) {
+                for (InvoiceLineItem lineItem : lineItems) {
+                    lineItem.setInvoiceId(invoice.getId());
+                    ps.setLong(1, lineItem.getInvoiceId());
+                    ps.setString(2, lineItem.getItemType());
+                    ps.setLong(3, lineItem.getItemId());
+                    ps.setBigDecimal(4, lineItem.getUnitPrice());
+                    ps.setLong(5, lineItem.getQuantity());
+                    ps.setBigDecimal(6, lineItem.getSubtotal());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    int i = 0;
+                    while (keys.next() && i < lineItems.size()) {
+                        lineItems.get(i++).setId(keys.getLong(1));
+                    }
+                }
+            }
+            return invoice;
+        });
+    }
+
+    //cart invoices have no item of their own: item type and unit price are null and the item id is 0
+    private static void setInvoice(PreparedStatement ps, Invoice invoice) throws SQLException {
+        ps.setLong(1, invoice.getId());
+        ps.setString(2, invoice.getName());
+        ps.setString(3, invoice.getStreet());
+        ps.setString(4, invoice.getCity());
+        ps.setString(5, invoice.getState());
+        ps.setString(6, invoice.getZipcode());
+        ps.setString(7, invoice.getItemType());
+        ps.setLong(8, invoice.getItemId());
+        ps.setBigDecimal(9, invoice.getUnitPrice());
+        ps.setLong(10, invoice.getQuantity());
+        ps.setBigDecimal(11, invoice.getSubtotal());
+        ps.setBigDecimal(12, invoice.getTax());
+        ps.setBigDecimal(13, invoice.getProcessingFee());
+        ps.setBigDecimal(14, invoice.getTotal());
+        ps.setTimestamp(15, Timestamp.valueOf(invoice.getCreatedAt()));
+    }
+}
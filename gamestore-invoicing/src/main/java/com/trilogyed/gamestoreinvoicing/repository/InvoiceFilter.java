@@ -0,0 +1,44 @@
+package com.trilogyed.gamestoreinvoicing.repository;
+
+import java.time.LocalDateTime;
+
+// Optional bounds for invoice listings and exports. afterId is the keyset cursor (exclusive), toId and the
+// created-at range are inclusive. Null means unbounded.
+public class InvoiceFilter {
+
+    private long afterId;
+    private Long toId;
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    public InvoiceFilter() {}
+
+    public InvoiceFilter(long afterId, Long toId, LocalDateTime from, LocalDateTime to) {
+        if (toId != null && toId <= afterId) {
+            throw new IllegalArgumentException("toId must be greater than afterId.");
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to.");
+        }
+        this.afterId = afterId;
+        this.toId = toId;
+        this.from = from;
+        this.to = to;
+    }
+
+    public long getAfterId() {
+        return afterId;
+    }
+
+    public Long getToId() {
+        return toId;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+}
@@ -0,0 +1,67 @@
+package com.trilogyed.gamestoreinvoicing.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Invoice ids, for invoiceRepo saves (through InvoiceIdGenerator) and InvoiceBatchRepository alike. Ids are handed
+// out from memory in blocks of gamestore.invoice.id-allocation-size, reserved with one round trip to the one-row
+// invoice_id_seq table, so inserts don't need the key read back and Hibernate can batch them. A table rather than
+// a sequence because MySQL has none. next_val is always the first id of the next free block, so anything else
+// that writes invoices only has to move it past the ids it used (see sql/add-invoice-id-seq.sql). ddl-auto creates
+// the table with next_val = 1 even where invoices already exist, so the first block of each process starts past
+// the highest invoice_id if next_val is behind it.
+// Blocks are reserved on a connection of their own: the caller is usually inside a transaction, and borrowing a
+// second connection from the main pool deadlocks once every connection is held by a request waiting for an id.
+@Component
+public class InvoiceIdAllocator implements DisposableBean {
+
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final int allocationSize;
+    private long nextId;
+    private long blockEnd;
+    private boolean checkedExistingIds;
+
+    @Autowired
+    public InvoiceIdAllocator(DataSourceProperties dataSourceProperties,
+                              @Value("${gamestore.invoice.id-allocation-size:50}") int allocationSize) {
+        this.dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        this.dataSource.setPoolName("invoice-id-allocator");
+        this.dataSource.setMaximumPoolSize(1);
+        this.dataSource.setMinimumIdle(0);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.allocationSize = allocationSize;
+    }
+
+    public synchronized long nextId() {
+        if (nextId == blockEnd) {
+            nextId = reserveBlock();
+            blockEnd = nextId + allocationSize;
+        }
+        return nextId++;
+    }
+
+    // Each statement commits on its own; the update only wins if nobody else moved next_val since it was read.
+    private long reserveBlock() {
+        while (true) {
+            long nextVal = jdbcTemplate.queryForObject("select next_val from invoice_id_seq", Long.class);
+            long start = checkedExistingIds ? nextVal : Math.max(nextVal, jdbcTemplate.queryForObject(
+                    "select coalesce(max(invoice_id), 0) + 1 from invoice", Long.class));
+            if (jdbcTemplate.update("update invoice_id_seq set next_val = ? where next_val = ?",
+                    start + allocationSize, nextVal) == 1) {
+                checkedExistingIds = true;
+                return start;
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        dataSource.close();
+    }
+}
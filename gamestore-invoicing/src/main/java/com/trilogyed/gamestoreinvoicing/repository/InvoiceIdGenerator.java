@@ -0,0 +1,37 @@
+package com.trilogyed.gamestoreinvoicing.repository;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Properties;
+
+// Hibernate side of InvoiceIdAllocator. Extends the sequence generator only so ddl-auto still creates
+// invoice_id_seq (a table on every database) with its first row; the ids themselves come from the allocator.
+public class InvoiceIdGenerator extends SequenceStyleGenerator {
+
+    public static final String ALLOCATOR_SETTING = "gamestore.invoice.id-allocator";
+
+    private InvoiceIdAllocator allocator;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        allocator = (InvoiceIdAllocator) serviceRegistry.getService(ConfigurationService.class).getSettings()
+                .get(ALLOCATOR_SETTING);
+        if (allocator == null) {
+            throw new MappingException(ALLOCATOR_SETTING + " is not set");
+        }
+        params.setProperty(SEQUENCE_PARAM, "invoice_id_seq");
+        params.setProperty(FORCE_TBL_PARAM, "true");
+        super.configure(type, params, serviceRegistry);
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        return allocator.nextId();
+    }
+}
@@ -0,0 +1,148 @@
+package com.trilogyed.gamestoreinvoicing.repository;
+
+import com.trilogyed.gamestoreinvoicing.model.Invoice;
+import com.trilogyed.gamestoreinvoicing.model.InvoiceLineItem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Keyset-paged and streaming reads of the invoice table. Both walk invoice_id upwards from the filter's cursor,
+// so neither needs an offset or a count. stream() uses a forward-only cursor (useCursorFetch=true on the MySQL URL)
+// and never holds more than one fetch of rows. Cart invoices (item_type null, item_id 0) come with their line
+// items from invoice_line_item in both: stream() joins them in, findPage() reads them for the page in one query.
+@Repository
+public class InvoiceListingRepository {
+
+    private static final RowMapper<Invoice> INVOICE_ROW_MAPPER = (rs, rowNum) -> {
+        Invoice invoice = new Invoice();
+        invoice.setId(rs.getLong("invoice_id"));
+        invoice.setName(rs.getString("name"));
+        invoice.setStreet(rs.getString("street"));
+        invoice.setCity(rs.getString("city"));
+        invoice.setState(rs.getString("state"));
+        invoice.setZipcode(rs.getString("zipcode"));
+        invoice.setItemType(rs.getString("item_type"));
+        invoice.setItemId(rs.getLong("item_id"));
+        invoice.setUnitPrice(rs.getBigDecimal("unit_price"));
+        invoice.setQuantity(rs.getLong("quantity"));
+        invoice.setSubtotal(rs.getBigDecimal("subtotal"));
+        invoice.setTax(rs.getBigDecimal("tax"));
+        invoice.setProcessingFee(rs.getBigDecimal("processing_fee"));
+        invoice.setTotal(rs.getBigDecimal("total"));
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        invoice.setCreatedAt(createdAt == null ? null : createdAt.toLocalDateTime());
+        return invoice;
+    };
+
+    private static final String LINE_ITEM_COLUMNS = "li.line_item_id, li.item_type as line_item_type, " +
+            "li.item_id as line_item_item_id, li.unit_price as line_unit_price, li.quantity as line_quantity, " +
+            "li.subtotal as line_subtotal";
+
+    private static final RowMapper<InvoiceLineItem> LINE_ITEM_ROW_MAPPER = (rs, rowNum) -> {
+        InvoiceLineItem lineItem = new InvoiceLineItem();
+        lineItem.setId(rs.getLong("line_item_id"));
+        lineItem.setInvoiceId(rs.getLong("invoice_id"));
+        lineItem.setItemType(rs.getString("line_item_type"));
+        lineItem.setItemId(rs.getLong("line_item_item_id"));
+        lineItem.setUnitPrice(rs.getBigDecimal("line_unit_price"));
+        lineItem.setQuantity(rs.getLong("line_quantity"));
+        lineItem.setSubtotal(rs.getBigDecimal("line_subtotal"));
+        return lineItem;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    @Autowired
+    public InvoiceListingRepository(JdbcTemplate jdbcTemplate,
+                                    @Value("${gamestore.invoice.stream-fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        //own template so the fetch size doesn't leak into other queries
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    // Returns up to limit invoices after the filter's cursor, in invoice_id order.
+    public List<Invoice> findPage(InvoiceFilter filter, int limit) {
+        List<Object> args = new ArrayList<>();
+        String sql = "select i.* from invoice i" + buildWhere(filter, args) + " order by i.invoice_id limit ?";
+        args.add(limit);
+        List<Invoice> invoices = jdbcTemplate.query(sql, INVOICE_ROW_MAPPER, args.toArray());
+
+        Map<Long, Invoice> carts = new HashMap<>();
+        for (Invoice invoice : invoices) {
+            if (invoice.getItemType() == null) {
+                carts.put(invoice.getId(), invoice);
+            }
+        }
+        if (!carts.isEmpty()) {
+            String placeholders = String.join(", ", Collections.nCopies(carts.size(), "?"));
+            String lineItemSql = "select li.invoice_id, " + LINE_ITEM_COLUMNS + " from invoice_line_item li " +
+                    "where li.invoice_id in (" + placeholders + ") order by li.line_item_id";
+            jdbcTemplate.query(lineItemSql, (RowCallbackHandler) rs -> {
+                Invoice cart = carts.get(rs.getLong("invoice_id"));
+                if (cart.getLineItems() == null) {
+                    cart.setLineItems(new ArrayList<>());
+                }
+                cart.getLineItems().add(LINE_ITEM_ROW_MAPPER.mapRow(rs, 0));
+            }, carts.keySet().toArray());
+        }
+        return invoices;
+    }
+
+    public void stream(InvoiceFilter filter, Consumer<Invoice> consumer) {
+        List<Object> args = new ArrayList<>();
+        String sql = "select i.*, " + LINE_ITEM_COLUMNS + " from invoice i " +
+                "left join invoice_line_item li on li.invoice_id = i.invoice_id" + buildWhere(filter, args) +
+                " order by i.invoice_id, li.line_item_id";
+        //the rows of a cart invoice are adjacent, so each invoice is handed on as soon as the cursor moves past it
+        Invoice[] current = new Invoice[1];
+        streamingJdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+            if (current[0] == null || current[0].getId() != rs.getLong("invoice_id")) {
+                if (current[0] != null) {
+                    consumer.accept(current[0]);
+                }
+                current[0] = INVOICE_ROW_MAPPER.mapRow(rs, 0);
+            }
+            rs.getLong("line_item_id");
+            if (!rs.wasNull()) {
+                if (current[0].getLineItems() == null) {
+                    current[0].setLineItems(new ArrayList<>());
+                }
+                current[0].getLineItems().add(LINE_ITEM_ROW_MAPPER.mapRow(rs, 0));
+            }
+        }, args.toArray());
+        if (current[0] != null) {
+            consumer.accept(current[0]);
+        }
+    }
+
+    private String buildWhere(InvoiceFilter filter, List<Object> args) {
+        StringBuilder sql = new StringBuilder(" where i.invoice_id > ?");
+        args.add(filter.getAfterId());
+        if (filter.getToId() != null) {
+            sql.append(" and i.invoice_id <= ?");
+            args.add(filter.getToId());
+        }
+        if (filter.getFrom() != null) {
+            sql.append(" and i.created_at >= ?");
+            args.add(Timestamp.valueOf(filter.getFrom()));
+        }
+        if (filter.getTo() != null) {
+            sql.append(" and i.created_at <= ?");
+            args.add(Timestamp.valueOf(filter.getTo()));
+        }
+        return sql.toString();
+    }
+}
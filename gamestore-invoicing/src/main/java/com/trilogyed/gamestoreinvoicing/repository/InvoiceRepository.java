@@ -2,6 +2,7 @@ package com.trilogyed.gamestoreinvoicing.repository;
 
 import com.trilogyed.gamestoreinvoicing.model.Invoice;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -10,4 +11,7 @@ import java.util.List;
 @Repository
 public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
     List<Invoice> findByName(String name);
+
+    // Newest first, served from idx_invoice_name_id. Returns a List rather than a Page so no count query is run.
+    List<Invoice> findByNameAndIdLessThanOrderByIdDesc(String name, long id, Pageable pageable);
 }
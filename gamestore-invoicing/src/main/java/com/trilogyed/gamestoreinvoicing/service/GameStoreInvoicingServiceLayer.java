@@ -1,13 +1,29 @@
 package com.trilogyed.gamestoreinvoicing.service;
 
 
+import com.trilogyed.gamestoreinvoicing.feign.CatalogItemCache;
+import com.trilogyed.gamestoreinvoicing.feign.CatalogUnavailableException;
 import com.trilogyed.gamestoreinvoicing.feign.GameStoreCatalog;
+import feign.FeignException;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.List;
-import java.util.Optional;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import com.trilogyed.gamestoreinvoicing.repository.*;
 import com.trilogyed.gamestoreinvoicing.model.*;
@@ -15,6 +31,8 @@ import com.trilogyed.gamestoreinvoicing.model.*;
 @Component
 public class GameStoreInvoicingServiceLayer {
 
+    private static final Logger log = LoggerFactory.getLogger(GameStoreInvoicingServiceLayer.class);
+
     @Autowired
     private GameStoreCatalog client;
 
@@ -29,119 +47,445 @@ public class GameStoreInvoicingServiceLayer {
     private final String CONSOLE_ITEM_TYPE = "Console";
     private final String TSHIRT_ITEM_TYPE = "T-Shirt";
 
+    CatalogItemCache catalogItemCache;
     InvoiceRepository invoiceRepo;
-    TaxRepository taxRepo;
-    ProcessingFeeRepository processingFeeRepo;
+    InvoiceBatchRepository invoiceBatchRepo;
+    InvoiceListingRepository invoiceListingRepo;
+    PricingSnapshotService pricingSnapshotService;
+    Validator validator;
+    InvoiceMetrics metrics;
+    TransactionTemplate transactionTemplate;
+
+    @Value("${gamestore.invoice.batch-size:500}")
+    int batchSize = 500;
 
 
     @Autowired
-    public GameStoreInvoicingServiceLayer(GameStoreCatalog client, InvoiceRepository invoiceRepo,
-                                          TaxRepository taxRepo, ProcessingFeeRepository processingFeeRepo) {
+    public GameStoreInvoicingServiceLayer(GameStoreCatalog client, CatalogItemCache catalogItemCache,
+                                          InvoiceRepository invoiceRepo, InvoiceBatchRepository invoiceBatchRepo,
+                                          InvoiceListingRepository invoiceListingRepo,
+                                          PricingSnapshotService pricingSnapshotService, Validator validator,
+                                          InvoiceMetrics metrics, PlatformTransactionManager transactionManager) {
         this.client = client;
+        this.catalogItemCache = catalogItemCache;
         this.invoiceRepo = invoiceRepo;
-        this.taxRepo = taxRepo;
-        this.processingFeeRepo = processingFeeRepo;
+        this.invoiceBatchRepo = invoiceBatchRepo;
+        this.invoiceListingRepo = invoiceListingRepo;
+        this.pricingSnapshotService = pricingSnapshotService;
+        this.validator = validator;
+        this.metrics = metrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     public Invoice createNewInvoice(Invoice invoice) {
+        return createNewInvoice(invoice, saved -> {});
+    }
+
+    // onSaved runs in the transaction that inserts the invoice: if it throws, the invoice isn't saved and the stock
+    // is given back.
+    public Invoice createNewInvoice(Invoice invoice, Consumer<Invoice> onSaved) {
+        Timer.Sample created = Timer.start();
+        try {
+            //validation...
+            validateInvoice(invoice);
+
+            //Checks the item type and get the correct unit price
+            Timer.Sample lookup = Timer.start();
+            CatalogItem item = findCatalogItem(invoice.getItemType(), invoice.getItemId());
+            lookup.stop(metrics.stage(InvoiceMetrics.SINGLE, InvoiceMetrics.CATALOG_LOOKUP));
+
+            priceInvoice(invoice, item);
+
+            invoice.setCreatedAt(LocalDateTime.now());
+            //a new invoice starts at version 0, whatever the body says
+            invoice.setVersion(null);
+
+            //take the stock only once the invoice is known to be good, and give it back if the save fails
+            Timer.Sample reservation = Timer.start();
+            String reservationId = reserveStock(invoice);
+            reservation.stop(metrics.stage(InvoiceMetrics.SINGLE, InvoiceMetrics.STOCK_RESERVATION));
+            try {
+                Timer.Sample persistence = Timer.start();
+                Invoice saved = save(() -> invoiceRepo.save(invoice), onSaved);
+                persistence.stop(metrics.stage(InvoiceMetrics.SINGLE, InvoiceMetrics.PERSISTENCE));
+                return saved;
+            } catch (RuntimeException e) {
+                releaseStock(invoice, reservationId);
+                throw e;
+            }
+        } finally {
+            created.stop(metrics.created(InvoiceMetrics.SINGLE));
+        }
+    }
+
+    // Prices a whole cart as one invoice. Catalog items are looked up with one bulk call per item type, tax and the
+    // processing fee are charged once on the cart subtotal, and the invoice and its lines are saved together.
+    public Invoice createCartInvoice(Invoice invoice) {
+        return createCartInvoice(invoice, saved -> {});
+    }
+
+    // Like createNewInvoice(invoice, onSaved), onSaved runs in the transaction that inserts the cart.
+    public Invoice createCartInvoice(Invoice invoice, Consumer<Invoice> onSaved) {
+        Timer.Sample created = Timer.start();
+        try {
+            //validation...
+            validateCart(invoice);
+
+            Map<String, Set<Long>> idsByType = new HashMap<>();
+            for (InvoiceLineItem lineItem : invoice.getLineItems()) {
+                idsByType.computeIfAbsent(lineItem.getItemType(), k -> new LinkedHashSet<>())
+                        .add(lineItem.getItemId());
+            }
+
+            //lookups for the different types run concurrently and are all joined here, before any pricing
+            Timer.Sample lookup = Timer.start();
+            Map<String, Map<Long, CatalogItem>> itemsByType = catalogItemCache.getAll(idsByType);
+            lookup.stop(metrics.stage(InvoiceMetrics.CART, InvoiceMetrics.CATALOG_LOOKUP));
+
+            priceCart(invoice, itemsByType);
+
+            invoice.setCreatedAt(LocalDateTime.now());
+            //a new invoice starts at version 0, whatever the body says
+            invoice.setVersion(null);
+
+            //reservation ids of the line items reserved so far, in line item order
+            List<String> reservationIds = new ArrayList<>();
+            try {
+                Timer.Sample reservation = Timer.start();
+                for (InvoiceLineItem lineItem : invoice.getLineItems()) {
+                    reservationIds.add(reserveStock(lineItem.getItemType(), lineItem.getItemId(),
+                            lineItem.getQuantity()));
+                }
+                reservation.stop(metrics.stage(InvoiceMetrics.CART, InvoiceMetrics.STOCK_RESERVATION));
+
+                Timer.Sample persistence = Timer.start();
+                Invoice saved = save(() -> invoiceBatchRepo.insertCart(invoice), onSaved);
+                persistence.stop(metrics.stage(InvoiceMetrics.CART, InvoiceMetrics.PERSISTENCE));
+                return saved;
+            } catch (RuntimeException e) {
+                for (int i = 0; i < reservationIds.size(); i++) {
+                    InvoiceLineItem lineItem = invoice.getLineItems().get(i);
+                    releaseStock(lineItem.getItemType(), lineItem.getItemId(), reservationIds.get(i));
+                }
+                throw e;
+            }
+        } finally {
+            created.stop(metrics.created(InvoiceMetrics.CART));
+        }
+    }
+
+    // Prices a whole list of invoices in one pass. Each distinct item is fetched from the catalog once, and all
+    // invoices that pass validation and pricing are written with a single JDBC batch. Failures are reported per
+    // invoice instead of failing the whole request.
+    public List<BatchInvoiceResult> createNewInvoices(List<Invoice> invoices) {
+        if (invoices == null)
+            throw new NullPointerException("Create invoices failed. no invoice data.");
+
+        Timer.Sample created = Timer.start();
+        try {
+            BatchInvoiceResult[] results = new BatchInvoiceResult[invoices.size()];
+            List<Integer> validIndexes = new ArrayList<>();
+
+            //validation...
+            for (int i = 0; i < invoices.size(); i++) {
+                Invoice invoice = invoices.get(i);
+                try {
+                    checkConstraints(invoice);
+                    validateInvoice(invoice);
+                    checkItemType(invoice.getItemType());
+                    validIndexes.add(i);
+                } catch (RuntimeException e) {
+                    results[i] = BatchInvoiceResult.failed(i, e.getMessage());
+                }
+            }
+
+            //one bulk catalog call per item type for all the distinct ids in the batch
+            Map<String, Set<Long>> idsByType = new HashMap<>();
+            for (int i : validIndexes) {
+                Invoice invoice = invoices.get(i);
+                idsByType.computeIfAbsent(invoice.getItemType(), k -> new LinkedHashSet<>()).add(invoice.getItemId());
+            }
+
+            Timer.Sample lookup = Timer.start();
+            Map<String, Map<Long, CatalogItem>> itemsByType = catalogItemCache.getAll(idsByType);
+            lookup.stop(metrics.stage(InvoiceMetrics.BATCH, InvoiceMetrics.CATALOG_LOOKUP));
+
+            List<Invoice> priced = new ArrayList<>();
+            List<Integer> pricedIndexes = new ArrayList<>();
+            List<String> reservationIds = new ArrayList<>();
+            for (int i : validIndexes) {
+                Invoice invoice = invoices.get(i);
+                try {
+                    priceInvoice(invoice, itemsByType.get(invoice.getItemType()).get(invoice.getItemId()));
+                    Timer.Sample reservation = Timer.start();
+                    reservationIds.add(reserveStock(invoice));
+                    reservation.stop(metrics.stage(InvoiceMetrics.BATCH, InvoiceMetrics.STOCK_RESERVATION));
+                    priced.add(invoice);
+                    pricedIndexes.add(i);
+                } catch (RuntimeException e) {
+                    results[i] = BatchInvoiceResult.failed(i, e.getMessage());
+                }
+            }
+
+            LocalDateTime createdAt = LocalDateTime.now();
+            for (Invoice invoice : priced) {
+                invoice.setCreatedAt(createdAt);
+            }
 
-        //validation...
+            //persist in chunks so one bad chunk doesn't sink the whole import
+            for (int from = 0; from < priced.size(); from += batchSize) {
+                int to = Math.min(from + batchSize, priced.size());
+                List<Invoice> chunk = priced.subList(from, to);
+                try {
+                    Timer.Sample persistence = Timer.start();
+                    invoiceBatchRepo.insertAll(chunk);
+                    persistence.stop(metrics.stage(InvoiceMetrics.BATCH, InvoiceMetrics.PERSISTENCE));
+                    for (int j = from; j < to; j++) {
+                        results[pricedIndexes.get(j)] = BatchInvoiceResult.created(pricedIndexes.get(j), priced.get(j));
+                    }
+                } catch (RuntimeException e) {
+                    for (int j = from; j < to; j++) {
+                        releaseStock(priced.get(j), reservationIds.get(j));
+                        results[pricedIndexes.get(j)] = BatchInvoiceResult.failed(pricedIndexes.get(j),
+                                "Invoice could not be saved: " + e.getMessage());
+                    }
+                }
+            }
+
+            return Arrays.asList(results);
+        } finally {
+            created.stop(metrics.created(InvoiceMetrics.BATCH));
+        }
+    }
+
+    private Invoice save(Supplier<Invoice> insert, Consumer<Invoice> onSaved) {
+        return transactionTemplate.execute(status -> {
+            Invoice saved = insert.get();
+            onSaved.accept(saved);
+            return saved;
+        });
+    }
+
+    private void validateInvoice(Invoice invoice) {
         if (invoice == null)
             throw new NullPointerException("Create invoice failed. no invoice data.");
 
+        if (invoice.getLineItems() != null && !invoice.getLineItems().isEmpty())
+            throw metrics.rejected(InvoiceMetrics.INVALID_REQUEST,
+                    "Invoices with line items must be submitted to /invoice/cart.");
+
         if (invoice.getItemType() == null)
-            throw new IllegalArgumentException("Unrecognized Item type. Valid ones: Console or Game");
+            throw metrics.rejected(InvoiceMetrics.UNKNOWN_ITEM_TYPE,
+                    "Unrecognized Item type. Valid ones: Console or Game");
 
         //Check Quantity is > 0...
         if (invoice.getQuantity() <= 0) {
-            throw new IllegalArgumentException(invoice.getQuantity() +
+            throw metrics.rejected(InvoiceMetrics.INVALID_REQUEST, invoice.getQuantity() +
                     ": Unrecognized Quantity. Must be > 0.");
         }
+    }
 
-        //Checks the item type and get the correct unit price
-        //Check if we have enough quantity
-        if (invoice.getItemType().equals(CONSOLE_ITEM_TYPE)) {
-            Console tempCon = null;
-            Optional<Console> returnVal = Optional.ofNullable(client.getConsoleById(invoice.getItemId()));
+    // A cart is checked like a single invoice, except that the item fields live on the line items.
+    private void validateCart(Invoice invoice) {
+        if (invoice == null)
+            throw new NullPointerException("Create invoice failed. no invoice data.");
 
-            if (returnVal.isPresent()) {
-                tempCon = returnVal.get();
-            } else {
-                throw new IllegalArgumentException("Requested item is unavailable.");
-            }
+        if (invoice.getLineItems() == null || invoice.getLineItems().isEmpty())
+            throw metrics.rejected(InvoiceMetrics.INVALID_REQUEST, "A cart needs at least one line item.");
 
-            if (invoice.getQuantity() > tempCon.getQuantity()) {
-                throw new IllegalArgumentException("Requested quantity is unavailable.");
-            }
+        List<ConstraintViolation<?>> violations = new ArrayList<>();
+        for (String property : Arrays.asList("name", "street", "city", "state", "zipcode")) {
+            violations.addAll(validator.validateProperty(invoice, property));
+        }
+        for (InvoiceLineItem lineItem : invoice.getLineItems()) {
+            violations.addAll(validator.validate(lineItem));
+        }
+        if (!violations.isEmpty()) {
+            throw metrics.rejected(InvoiceMetrics.INVALID_REQUEST, violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining(" ")));
+        }
 
-            invoice.setUnitPrice(tempCon.getPrice());
+        for (InvoiceLineItem lineItem : invoice.getLineItems()) {
+            checkItemType(lineItem.getItemType());
+        }
 
-        } else if (invoice.getItemType().equals(GAME_ITEM_TYPE)) {
-            Game tempGame = null;
-            Optional<Game> returnVal = Optional.ofNullable(client.getGameById(invoice.getItemId()));
+        //the invoice's own item fields don't apply to a cart
+        invoice.setItemType(null);
+        invoice.setItemId(0);
+        invoice.setUnitPrice(null);
+    }
 
-            if (returnVal.isPresent()) {
-                tempGame = returnVal.get();
-            } else {
-                throw new IllegalArgumentException("Requested item is unavailable.");
-            }
+    // Runs the same javax.validation checks the controller applies to a single POST /invoice.
+    private void checkConstraints(Invoice invoice) {
+        if (invoice == null)
+            throw metrics.rejected(InvoiceMetrics.INVALID_REQUEST, "Create invoice failed. no invoice data.");
+
+        Set<ConstraintViolation<Invoice>> violations = validator.validate(invoice);
+        if (!violations.isEmpty()) {
+            throw metrics.rejected(InvoiceMetrics.INVALID_REQUEST, violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining(" ")));
+        }
+    }
 
-            if (invoice.getQuantity() > tempGame.getQuantity()) {
-                throw new IllegalArgumentException("Requested quantity is unavailable.");
-            }
-            invoice.setUnitPrice(tempGame.getPrice());
+    private void checkItemType(String itemType) {
+        if (!itemType.equals(CONSOLE_ITEM_TYPE) && !itemType.equals(GAME_ITEM_TYPE)
+                && !itemType.equals(TSHIRT_ITEM_TYPE)) {
+            throw metrics.rejected(InvoiceMetrics.UNKNOWN_ITEM_TYPE, itemType +
+                    ": Unrecognized Item type. Valid ones: T-Shirt, Console, or Game");
+        }
+    }
+
+    // Returns null if the catalog has no such item.
+    private CatalogItem findCatalogItem(String itemType, long itemId) {
+        checkItemType(itemType);
+
+        return catalogItemCache.get(itemType, itemId);
+    }
 
-        } else if (invoice.getItemType().equals(TSHIRT_ITEM_TYPE)) {
-            TShirt tempTShirt = null;
-            Optional<TShirt> returnVal = Optional.ofNullable(client.getTshirtById(invoice.getItemId()));
+    // Decrements stock in the catalog with a conditional update there, so two purchases can't both take the
+    // last unit. A cached item's quantity is never trusted for this. Returns the id the catalog recorded the
+    // reservation under, which is what releaseStock needs to give the stock back. A reserve that fails without a
+    // clear answer (a timeout, a dropped connection, a 5xx) may still have taken the stock, so it is released under
+    // the same id before the failure goes up as a CatalogUnavailableException; the catalog answers 404 to a release
+    // it never saw the reserve for.
+    private String reserveStock(Invoice invoice) {
+        return reserveStock(invoice.getItemType(), invoice.getItemId(), invoice.getQuantity());
+    }
 
-            if (returnVal.isPresent()) {
-                tempTShirt = returnVal.get();
+    private String reserveStock(String itemType, long itemId, long quantity) {
+        String reservationId = UUID.randomUUID().toString();
+        try {
+            if (itemType.equals(CONSOLE_ITEM_TYPE)) {
+                client.reserveConsole(itemId, quantity, reservationId);
+            } else if (itemType.equals(GAME_ITEM_TYPE)) {
+                client.reserveGame(itemId, quantity, reservationId);
             } else {
-                throw new IllegalArgumentException("Requested item is unavailable.");
+                client.reserveTshirt(itemId, quantity, reservationId);
             }
+            return reservationId;
+        } catch (FeignException.Conflict e) {
+            throw metrics.rejected(InvoiceMetrics.INSUFFICIENT_QUANTITY, "Requested quantity is unavailable.");
+        } catch (FeignException.NotFound e) {
+            throw metrics.rejected(InvoiceMetrics.UNAVAILABLE_ITEM, "Requested item is unavailable.");
+        } catch (FeignException e) {
+            releaseStock(itemType, itemId, reservationId);
+            throw new CatalogUnavailableException("The catalog could not reserve " + itemType + " " + itemId +
+                    " (status " + e.status() + "); try again shortly.", e);
+        }
+    }
+
+    private void releaseStock(Invoice invoice, String reservationId) {
+        releaseStock(invoice.getItemType(), invoice.getItemId(), reservationId);
+    }
 
-            if (invoice.getQuantity() > tempTShirt.getQuantity()) {
-                throw new IllegalArgumentException("Requested quantity is unavailable.");
+    private void releaseStock(String itemType, long itemId, String reservationId) {
+        try {
+            if (itemType.equals(CONSOLE_ITEM_TYPE)) {
+                client.releaseConsole(itemId, reservationId);
+            } else if (itemType.equals(GAME_ITEM_TYPE)) {
+                client.releaseGame(itemId, reservationId);
+            } else {
+                client.releaseTshirt(itemId, reservationId);
             }
-            invoice.setUnitPrice(tempTShirt.getPrice());
+        } catch (RuntimeException e) {
+            log.error("Could not release reservation {} of {} {} after a failed purchase", reservationId, itemType,
+                    itemId, e);
+        }
+    }
 
-        } else {
-            throw new IllegalArgumentException(invoice.getItemType() +
-                    ": Unrecognized Item type. Valid ones: T-Shirt, Console, or Game");
+    // Fills in the unit price, subtotal, tax, processing fee and total of a single-item invoice from its catalog item,
+    // as createNewInvoice does. Rejects the invoice the same way too. Public for PricingArithmeticBenchmark.
+    // Tax rates and fees come from the in-memory snapshot, not the DB.
+    public Invoice priceInvoice(Invoice invoice, CatalogItem item) {
+        if (item == null) {
+            throw metrics.rejected(InvoiceMetrics.UNAVAILABLE_ITEM, "Requested item is unavailable.");
         }
+
+        PricingSnapshot pricing = pricingSnapshotService.getSnapshot();
+        BigDecimal processingFee = pricing.getProcessingFee(invoice.getItemType());
+        BigDecimal taxRate = pricing.getTaxRate(invoice.getState());
+
+        invoice.setUnitPrice(item.getPrice());
+
         invoice.setSubtotal(
                 invoice.getUnitPrice().multiply(
                         new BigDecimal(invoice.getQuantity())).setScale(2, RoundingMode.HALF_UP));
 
+        return chargeTaxAndFees(invoice, taxRate, processingFee);
+    }
+
+    // Prices every line from the catalog, then charges tax and a single processing fee on the cart as a whole.
+    // The fee is the highest of the line item types' fees, and the over-10-units surcharge applies to the cart's
+    // total quantity.
+    private Invoice priceCart(Invoice invoice, Map<String, Map<Long, CatalogItem>> itemsByType) {
+        PricingSnapshot pricing = pricingSnapshotService.getSnapshot();
+
+        List<CatalogItem> items = new ArrayList<>();
+        for (InvoiceLineItem lineItem : invoice.getLineItems()) {
+            CatalogItem item = itemsByType.get(lineItem.getItemType()).get(lineItem.getItemId());
+            if (item == null) {
+                throw metrics.rejected(InvoiceMetrics.UNAVAILABLE_ITEM, "Requested item is unavailable.");
+            }
+            items.add(item);
+        }
+
+        BigDecimal taxRate = pricing.getTaxRate(invoice.getState());
+
+        BigDecimal subtotal = BigDecimal.ZERO.setScale(2);
+        BigDecimal processingFee = null;
+        long quantity = 0;
+        for (int i = 0; i < items.size(); i++) {
+            InvoiceLineItem lineItem = invoice.getLineItems().get(i);
+            CatalogItem item = items.get(i);
+
+            lineItem.setUnitPrice(item.getPrice());
+            lineItem.setSubtotal(item.getPrice().multiply(
+                    new BigDecimal(lineItem.getQuantity())).setScale(2, RoundingMode.HALF_UP));
+
+            subtotal = subtotal.add(lineItem.getSubtotal());
+            quantity += lineItem.getQuantity();
+
+            BigDecimal fee = pricing.getProcessingFee(lineItem.getItemType());
+            if (fee == null) {
+                throw metrics.rejected(InvoiceMetrics.UNAVAILABLE_ITEM, "Requested item is unavailable.");
+            }
+            if (processingFee == null || fee.compareTo(processingFee) > 0) {
+                processingFee = fee;
+            }
+        }
+
+        invoice.setQuantity(quantity);
+        invoice.setSubtotal(subtotal);
+
+        return chargeTaxAndFees(invoice, taxRate, processingFee);
+    }
+
+    // Shared tail of single-item and cart pricing: checks the subtotal, then adds tax, the processing fee and the
+    // total. taxRate is null for an unknown state and processingFee is null when the fee table has no entry for the
+    // item type.
+    private Invoice chargeTaxAndFees(Invoice invoice, BigDecimal taxRate, BigDecimal processingFee) {
         /**   check this one*/
         //Throw Exception if subtotal is greater than 999.99
         if ((invoice.getSubtotal().compareTo(new BigDecimal(999.99)) > 0)) {
-            throw new IllegalArgumentException("Subtotal exceeds maximum purchase price of $999.99");
+            throw metrics.rejected(InvoiceMetrics.OVER_LIMIT, "Subtotal exceeds maximum purchase price of $999.99");
         }
 
         //Validate State and Calc tax...
-        BigDecimal tempTaxRate;
-        Optional<Tax> returnVal = taxRepo.findById(invoice.getState());
-
-        if (returnVal.isPresent()) {
-            tempTaxRate = returnVal.get().getRate();
-        } else {
-            throw new IllegalArgumentException(invoice.getState() + ": Invalid State code.");
+        if (taxRate == null) {
+            throw metrics.rejected(InvoiceMetrics.UNKNOWN_STATE, invoice.getState() + ": Invalid State code.");
         }
 
-        if (!tempTaxRate.equals(BigDecimal.ZERO))
-            invoice.setTax(tempTaxRate.multiply(invoice.getSubtotal()));
+        if (!taxRate.equals(BigDecimal.ZERO))
+            invoice.setTax(taxRate.multiply(invoice.getSubtotal()));
         else
-            throw new IllegalArgumentException(invoice.getState() + ": Invalid State code.");
-
-        BigDecimal processingFee;
-        Optional<ProcessingFee> returnVal2 = processingFeeRepo.findById(invoice.getItemType());
+            throw metrics.rejected(InvoiceMetrics.UNKNOWN_STATE, invoice.getState() + ": Invalid State code.");
 
-        if (returnVal2.isPresent()) {
-            processingFee = returnVal2.get().getFee();
-        } else {
-            throw new IllegalArgumentException("Requested item is unavailable.");
+        if (processingFee == null) {
+            throw metrics.rejected(InvoiceMetrics.UNAVAILABLE_ITEM, "Requested item is unavailable.");
         }
 
         invoice.setProcessingFee(processingFee);
@@ -155,10 +499,9 @@ public class GameStoreInvoicingServiceLayer {
 
         //checks total for validation
         if ((invoice.getTotal().compareTo(MAX_INVOICE_TOTAL) > 0)) {
-            throw new IllegalArgumentException("Subtotal exceeds maximum purchase price of $999.99");
+            throw metrics.rejected(InvoiceMetrics.OVER_LIMIT, "Subtotal exceeds maximum purchase price of $999.99");
         }
-        invoice = invoiceRepo.save(invoice);
-            return invoice;
+        return invoice;
     }
 
     public Invoice getInvoiceById(long id) {
@@ -177,6 +520,15 @@ public class GameStoreInvoicingServiceLayer {
             return invoiceList;
         }
     }
+
+    // One page of a customer's invoices, newest first. beforeId is the last id of the previous page.
+    public KeysetPage<Invoice> getCustomerHistory(String name, long beforeId, int limit) {
+        KeysetPage.checkLimit(limit);
+        List<Invoice> invoiceList = invoiceRepo.findByNameAndIdLessThanOrderByIdDesc(name, beforeId,
+                PageRequest.of(0, limit + 1));
+        return KeysetPage.of(invoiceList, limit, Invoice::getId);
+    }
+
     public List<Invoice> getAllInvoices(){
         List<Invoice> invoiceList = invoiceRepo.findAll();
         if(invoiceList == null){
@@ -185,6 +537,17 @@ public class GameStoreInvoicingServiceLayer {
             return invoiceList;
         }
     }
+    public KeysetPage<Invoice> getInvoicePage(InvoiceFilter filter, int limit) {
+        KeysetPage.checkLimit(limit);
+        List<Invoice> invoiceList = invoiceListingRepo.findPage(filter, limit + 1);
+        return KeysetPage.of(invoiceList, limit, Invoice::getId);
+    }
+
+    // Hands every matching invoice to the consumer in id order without holding the result set in memory.
+    public void streamInvoices(InvoiceFilter filter, Consumer<Invoice> consumer) {
+        invoiceListingRepo.stream(filter, consumer);
+    }
+
     public void deleteInvoice(long id){
         invoiceRepo.deleteById(id);
     }
@@ -0,0 +1,9 @@
+package com.trilogyed.gamestoreinvoicing.service;
+
+// Thrown when an Idempotency-Key was already used for a different request, or its first request is still running.
+public class IdempotencyKeyConflictException extends RuntimeException {
+
+    public IdempotencyKeyConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,139 @@
+package com.trilogyed.gamestoreinvoicing.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trilogyed.gamestoreinvoicing.model.Invoice;
+import com.trilogyed.gamestoreinvoicing.model.InvoiceIdempotencyKey;
+import com.trilogyed.gamestoreinvoicing.repository.IdempotencyKeyRepository;
+import com.trilogyed.gamestoreinvoicing.repository.InvoiceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Makes invoice creation safe to retry. The first request with a given Idempotency-Key creates the invoice; a
+// retry with the same key and body gets that invoice back (read by id) without pricing it, calling the catalog or
+// reserving stock again. While the first request is still running, duplicates get 409 rather than waiting. Failed
+// requests free their key, and a claim left behind by a crashed instance can be taken over after
+// gamestore.idempotency.in-progress-timeout-seconds. The key is completed in the transaction that inserts the
+// invoice, so an invoice is never saved without its key pointing at it, and a request whose claim was taken over
+// can't save a second invoice.
+@Component
+public class IdempotencyKeyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyKeyService.class);
+
+    IdempotencyKeyRepository keyRepo;
+    InvoiceRepository invoiceRepo;
+    ObjectMapper mapper;
+    private final Duration ttl;
+    private final Duration inProgressTimeout;
+
+    @Autowired
+    public IdempotencyKeyService(IdempotencyKeyRepository keyRepo, InvoiceRepository invoiceRepo, ObjectMapper mapper,
+                                 @Value("${gamestore.idempotency.ttl-hours:24}") long ttlHours,
+                                 @Value("${gamestore.idempotency.in-progress-timeout-seconds:60}") long inProgressTimeoutSeconds) {
+        this.keyRepo = keyRepo;
+        this.invoiceRepo = invoiceRepo;
+        this.mapper = mapper;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.inProgressTimeout = Duration.ofSeconds(inProgressTimeoutSeconds);
+    }
+
+    // Runs create at most once per key. request must be the invoice as received, before create changes it. create
+    // gets the callback to run in the transaction that inserts the invoice (see
+    // GameStoreInvoicingServiceLayer.createNewInvoice(Invoice, Consumer)).
+    public Invoice createOnce(String key, Invoice request, Function<Consumer<Invoice>, Invoice> create) {
+        if (key.isEmpty() || key.length() > InvoiceIdempotencyKey.MAX_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException("Idempotency-Key must be 1 to " +
+                    InvoiceIdempotencyKey.MAX_KEY_LENGTH + " characters long.");
+        }
+        byte[] requestHash = hash(request);
+
+        LocalDateTime claimedAt = claim(key, requestHash);
+        if (claimedAt == null) {
+            return previousInvoice(key);
+        }
+
+        try {
+            return create.apply(saved -> {
+                if (!keyRepo.complete(key, claimedAt, saved.getId())) {
+                    throw new IdempotencyKeyConflictException("Idempotency-Key " + key +
+                            " was taken over by another request.");
+                }
+            });
+        } catch (RuntimeException e) {
+            keyRepo.release(key, claimedAt);
+            throw e;
+        }
+    }
+
+    // Returns the created_at of this request's claim if it now owns the key. Returns null if the key belongs to an
+    // earlier request with the same body, whose invoice previousInvoice() returns; anything else throws.
+    private LocalDateTime claim(String key, byte[] requestHash) {
+        //created_at is a MySQL datetime, which keeps whole seconds; the claim is matched on it later
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        //two rounds: the existing row may expire or be released between the insert and the read
+        for (int attempt = 0; attempt < 2; attempt++) {
+            if (keyRepo.claim(key, requestHash, now)) {
+                return now;
+            }
+            InvoiceIdempotencyKey existing = keyRepo.find(key);
+            if (existing == null) {
+                continue;
+            }
+            if (existing.getCreatedAt().isBefore(now.minus(ttl))) {
+                keyRepo.deleteExpired(key, existing.getCreatedAt());
+                continue;
+            }
+            if (!Arrays.equals(existing.getRequestHash(), requestHash)) {
+                throw new IdempotencyKeyConflictException("Idempotency-Key " + key + " was already used for a different request.");
+            }
+            if (existing.getInvoiceId() != null) {
+                return null;
+            }
+            if (existing.getCreatedAt().isBefore(now.minus(inProgressTimeout))
+                    && keyRepo.reclaim(key, existing.getCreatedAt(), now)) {
+                log.warn("Taking over Idempotency-Key {}, whose first request did not finish", key);
+                return now;
+            }
+            throw new IdempotencyKeyConflictException("A request with Idempotency-Key " + key + " is still being processed.");
+        }
+        throw new IdempotencyKeyConflictException("A request with Idempotency-Key " + key + " is still being processed.");
+    }
+
+    private Invoice previousInvoice(String key) {
+        InvoiceIdempotencyKey existing = keyRepo.find(key);
+        return invoiceRepo.findById(existing.getInvoiceId())
+                .orElseThrow(() -> new IllegalArgumentException("Invoice could not be retrieved for id " +
+                        existing.getInvoiceId()));
+    }
+
+    @Scheduled(initialDelayString = "${gamestore.idempotency.purge-interval-ms:600000}",
+            fixedDelayString = "${gamestore.idempotency.purge-interval-ms:600000}")
+    public void purgeExpiredKeys() {
+        int purged = keyRepo.deleteCreatedBefore(LocalDateTime.now().minus(ttl));
+        if (purged > 0) {
+            log.info("Purged {} expired idempotency keys", purged);
+        }
+    }
+
+    private byte[] hash(Invoice request) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(mapper.writeValueAsBytes(request));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not hash the request for its Idempotency-Key", e);
+        }
+    }
+}
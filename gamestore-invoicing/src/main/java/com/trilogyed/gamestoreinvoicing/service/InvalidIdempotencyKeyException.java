@@ -0,0 +1,9 @@
+package com.trilogyed.gamestoreinvoicing.service;
+
+// Thrown when an Idempotency-Key header is empty or longer than InvoiceIdempotencyKey.MAX_KEY_LENGTH.
+public class InvalidIdempotencyKeyException extends RuntimeException {
+
+    public InvalidIdempotencyKeyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,85 @@
+package com.trilogyed.gamestoreinvoicing.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Meters for invoice creation, so checkout latency can be broken down on /actuator/prometheus:
+//   gamestore.invoice.created{operation=single|cart|batch}  end-to-end timer, rejected requests included
+//   gamestore.invoice.stage{operation, stage=...}           timer per I/O stage that completed
+//   gamestore.invoice.rejected{reason=...}                  counter per rejection reason
+// Only the stages that leave the process are timed: catalog-lookup, stock-reservation and persistence. Validation
+// and pricing are in-memory work, a fraction of a timer's own cost. Remote catalog calls are also timed per item
+// type by CatalogItemCache (gamestore.catalog.lookup). The service records into these with inline Timer.Samples.
+// All meters are registered up front so recording one is a map lookup, not a registry lookup.
+@Component
+public class InvoiceMetrics {
+
+    public static final String SINGLE = "single";
+    public static final String CART = "cart";
+    public static final String BATCH = "batch";
+
+    public static final String CATALOG_LOOKUP = "catalog-lookup";
+    public static final String STOCK_RESERVATION = "stock-reservation";
+    public static final String PERSISTENCE = "persistence";
+
+    public static final String INVALID_REQUEST = "invalid-request";
+    public static final String UNKNOWN_ITEM_TYPE = "unknown-item-type";
+    public static final String UNAVAILABLE_ITEM = "unavailable-item";
+    public static final String UNKNOWN_STATE = "unknown-state";
+    public static final String OVER_LIMIT = "over-limit";
+    public static final String INSUFFICIENT_QUANTITY = "insufficient-quantity";
+
+    private static final String[] OPERATIONS = {SINGLE, CART, BATCH};
+    private static final String[] STAGES = {CATALOG_LOOKUP, STOCK_RESERVATION, PERSISTENCE};
+    private static final String[] REASONS = {INVALID_REQUEST, UNKNOWN_ITEM_TYPE, UNAVAILABLE_ITEM, UNKNOWN_STATE,
+            OVER_LIMIT, INSUFFICIENT_QUANTITY};
+
+    private final Map<String, Timer> createdTimers = new HashMap<>();
+    private final Map<String, Map<String, Timer>> stageTimers = new HashMap<>();
+    private final Map<String, Counter> rejections = new HashMap<>();
+
+    @Autowired
+    public InvoiceMetrics(MeterRegistry meterRegistry) {
+        for (String operation : OPERATIONS) {
+            createdTimers.put(operation, Timer.builder("gamestore.invoice.created")
+                    .description("Time to create an invoice (or a batch of them), from request to response")
+                    .tag("operation", operation)
+                    .register(meterRegistry));
+            Map<String, Timer> timers = new HashMap<>();
+            for (String stage : STAGES) {
+                timers.put(stage, Timer.builder("gamestore.invoice.stage")
+                        .description("Time spent in one stage of invoice creation")
+                        .tag("operation", operation)
+                        .tag("stage", stage)
+                        .register(meterRegistry));
+            }
+            stageTimers.put(operation, timers);
+        }
+        for (String reason : REASONS) {
+            rejections.put(reason, Counter.builder("gamestore.invoice.rejected")
+                    .description("Invoices rejected, by reason")
+                    .tag("reason", reason)
+                    .register(meterRegistry));
+        }
+    }
+
+    public Timer created(String operation) {
+        return createdTimers.get(operation);
+    }
+
+    public Timer stage(String operation, String stage) {
+        return stageTimers.get(operation).get(stage);
+    }
+
+    // Counts the rejection and returns the exception for the caller to throw.
+    public IllegalArgumentException rejected(String reason, String message) {
+        rejections.get(reason).increment();
+        return new IllegalArgumentException(message);
+    }
+}
@@ -0,0 +1,50 @@
+package com.trilogyed.gamestoreinvoicing.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+// Immutable copy of the tax and fee tables. A new instance is built on every refresh and swapped in whole,
+// so readers never see a half-loaded table.
+public final class PricingSnapshot {
+
+    private final long version;
+    private final LocalDateTime loadedAt;
+    private final Map<String, BigDecimal> taxRates;
+    private final Map<String, BigDecimal> processingFees;
+
+    public PricingSnapshot(long version, Map<String, BigDecimal> taxRates, Map<String, BigDecimal> processingFees) {
+        this.version = version;
+        this.loadedAt = LocalDateTime.now();
+        this.taxRates = Collections.unmodifiableMap(new HashMap<>(taxRates));
+        this.processingFees = Collections.unmodifiableMap(new HashMap<>(processingFees));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public LocalDateTime getLoadedAt() {
+        return loadedAt;
+    }
+
+    // returns null when the state is not in the tax table
+    public BigDecimal getTaxRate(String state) {
+        return state == null ? null : taxRates.get(state);
+    }
+
+    // returns null when the item type is not in the fee table
+    public BigDecimal getProcessingFee(String itemType) {
+        return itemType == null ? null : processingFees.get(itemType);
+    }
+
+    public int getTaxRateCount() {
+        return taxRates.size();
+    }
+
+    public int getProcessingFeeCount() {
+        return processingFees.size();
+    }
+}
@@ -0,0 +1,71 @@
+package com.trilogyed.gamestoreinvoicing.service;
+
+import com.trilogyed.gamestoreinvoicing.model.ProcessingFee;
+import com.trilogyed.gamestoreinvoicing.model.Tax;
+import com.trilogyed.gamestoreinvoicing.repository.ProcessingFeeRepository;
+import com.trilogyed.gamestoreinvoicing.repository.TaxRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Holds the in-memory tax/fee snapshot used on the invoice path. Loaded once at startup and reloaded on a
+// schedule (gamestore.pricing-snapshot.refresh-interval-ms) or through POST /admin/pricing-snapshot/refresh.
+@Component
+public class PricingSnapshotService {
+
+    TaxRepository taxRepo;
+    ProcessingFeeRepository processingFeeRepo;
+
+    private final AtomicReference<PricingSnapshot> current = new AtomicReference<>();
+
+    @Autowired
+    public PricingSnapshotService(TaxRepository taxRepo, ProcessingFeeRepository processingFeeRepo) {
+        this.taxRepo = taxRepo;
+        this.processingFeeRepo = processingFeeRepo;
+    }
+
+    @PostConstruct
+    public void load() {
+        refresh();
+    }
+
+    @Scheduled(initialDelayString = "${gamestore.pricing-snapshot.refresh-interval-ms:300000}",
+            fixedDelayString = "${gamestore.pricing-snapshot.refresh-interval-ms:300000}")
+    public void scheduledRefresh() {
+        refresh();
+    }
+
+    // synchronized only so two refreshes can't race on the version number; readers never take this lock
+    public synchronized PricingSnapshot refresh() {
+        Map<String, BigDecimal> taxRates = new HashMap<>();
+        for (Tax tax : taxRepo.findAll()) {
+            taxRates.put(tax.getState(), tax.getRate());
+        }
+
+        Map<String, BigDecimal> fees = new HashMap<>();
+        for (ProcessingFee fee : processingFeeRepo.findAll()) {
+            fees.put(fee.getProductType(), fee.getFee());
+        }
+
+        PricingSnapshot previous = current.get();
+        long version = previous == null ? 1 : previous.getVersion() + 1;
+
+        PricingSnapshot snapshot = new PricingSnapshot(version, taxRates, fees);
+        current.set(snapshot);
+        return snapshot;
+    }
+
+    public PricingSnapshot getSnapshot() {
+        PricingSnapshot snapshot = current.get();
+        if (snapshot == null) {
+            snapshot = refresh();
+        }
+        return snapshot;
+    }
+}
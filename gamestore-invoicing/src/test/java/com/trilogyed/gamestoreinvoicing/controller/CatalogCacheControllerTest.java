@@ -0,0 +1,61 @@
+package com.trilogyed.gamestoreinvoicing.controller;
+
+import com.trilogyed.gamestoreinvoicing.feign.CatalogItemCache;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(CatalogCacheController.class)
+@AutoConfigureMockMvc
+public class CatalogCacheControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private CatalogItemCache catalogItemCache;
+
+    @Test
+    public void shouldInvalidateItem() throws Exception {
+        when(catalogItemCache.isKnownItemType("T-Shirt")).thenReturn(true);
+
+        this.mockMvc.perform(delete("/catalog-cache/{itemType}/{id}", "T-Shirt", 12))
+                .andDo(print())
+                .andExpect(status().isNoContent());
+
+        verify(catalogItemCache).invalidate("T-Shirt", 12);
+    }
+
+    @Test
+    public void shouldFailInvalidateUnknownItemType() throws Exception {
+        when(catalogItemCache.isKnownItemType("Hat")).thenReturn(false);
+
+        this.mockMvc.perform(delete("/catalog-cache/{itemType}/{id}", "Hat", 12))
+                .andDo(print())
+                .andExpect(status().isNotFound());
+
+        verify(catalogItemCache, never()).invalidate("Hat", 12);
+    }
+
+    @Test
+    public void shouldInvalidateAll() throws Exception {
+        this.mockMvc.perform(delete("/catalog-cache"))
+                .andDo(print())
+                .andExpect(status().isNoContent());
+
+        verify(catalogItemCache).invalidateAll();
+    }
+}
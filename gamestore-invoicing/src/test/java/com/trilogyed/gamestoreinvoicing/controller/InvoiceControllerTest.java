@@ -1,8 +1,17 @@
 package com.trilogyed.gamestoreinvoicing.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trilogyed.gamestoreinvoicing.feign.CatalogLookupTimeoutException;
+import com.trilogyed.gamestoreinvoicing.feign.CatalogUnavailableException;
+import com.trilogyed.gamestoreinvoicing.model.BatchInvoiceResult;
 import com.trilogyed.gamestoreinvoicing.model.Invoice;
+import com.trilogyed.gamestoreinvoicing.model.InvoiceLineItem;
+import com.trilogyed.gamestoreinvoicing.model.KeysetPage;
+import com.trilogyed.gamestoreinvoicing.repository.InvoiceFilter;
 import com.trilogyed.gamestoreinvoicing.service.GameStoreInvoicingServiceLayer;
+import com.trilogyed.gamestoreinvoicing.service.IdempotencyKeyConflictException;
+import com.trilogyed.gamestoreinvoicing.service.IdempotencyKeyService;
+import com.trilogyed.gamestoreinvoicing.service.InvalidIdempotencyKeyException;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,18 +21,29 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
 
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -37,6 +57,9 @@ public class InvoiceControllerTest {
     @MockBean
     private GameStoreInvoicingServiceLayer service;
 
+    @MockBean
+    private IdempotencyKeyService idempotencyService;
+
     @Autowired//used to move between Objects and JSON
     private ObjectMapper mapper;
 
@@ -88,6 +111,56 @@ public class InvoiceControllerTest {
                 .andExpect(content().json(outputJson));
     }
 
+    @Test
+    public void shouldAddPurchaseWithIdempotencyKey() throws Exception {
+        Invoice inInvoice = new Invoice();
+        inInvoice.setName("Joe Black");
+        inInvoice.setStreet("123 Main St");
+        inInvoice.setCity("any City");
+        inInvoice.setState("NY");
+        inInvoice.setZipcode("10016");
+        inInvoice.setItemType("T-Shirt");
+        inInvoice.setItemId(12);
+        inInvoice.setQuantity(2);
+
+        Invoice savedInvoice = savedInvoice(22);
+
+        //first request and retries get the same invoice back
+        when(idempotencyService.createOnce(eq("order-7f3a"), eq(inInvoice), any())).thenReturn(savedInvoice);
+
+        this.mockMvc.perform(post("/invoice")
+                        .header("Idempotency-Key", "order-7f3a")
+                        .content(mapper.writeValueAsString(inInvoice))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isCreated())
+                .andExpect(content().json(mapper.writeValueAsString(savedInvoice)));
+
+        //same key, different request
+        when(idempotencyService.createOnce(eq("order-0b21"), any(), any()))
+                .thenThrow(new IdempotencyKeyConflictException(
+                        "Idempotency-Key order-0b21 was already used for a different request."));
+
+        this.mockMvc.perform(post("/invoice")
+                        .header("Idempotency-Key", "order-0b21")
+                        .content(mapper.writeValueAsString(inInvoice))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isConflict());
+
+        //malformed key
+        String overlongKey = "k".repeat(65);
+        when(idempotencyService.createOnce(eq(overlongKey), any(), any()))
+                .thenThrow(new InvalidIdempotencyKeyException("Idempotency-Key must be 1 to 64 characters long."));
+
+        this.mockMvc.perform(post("/invoice")
+                        .header("Idempotency-Key", overlongKey)
+                        .content(mapper.writeValueAsString(inInvoice))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void shouldFindInvoice() throws Exception{
 
@@ -280,6 +353,27 @@ public class InvoiceControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void shouldFindCustomerHistoryPage() throws Exception {
+        KeysetPage<Invoice> firstPage = new KeysetPage<>(Arrays.asList(savedInvoice(40), savedInvoice(31)), 31L);
+        KeysetPage<Invoice> lastPage = new KeysetPage<>(Arrays.asList(savedInvoice(22)), null);
+
+        when(service.getCustomerHistory("Joe Black", Long.MAX_VALUE, 2)).thenReturn(firstPage);
+        when(service.getCustomerHistory("Joe Black", 31L, 2)).thenReturn(lastPage);
+
+        this.mockMvc.perform(get("/invoice/cname/{name}", "Joe Black").param("limit", "2"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().json(mapper.writeValueAsString(firstPage)));
+
+        this.mockMvc.perform(get("/invoice/cname/{name}", "Joe Black")
+                        .param("beforeId", "31")
+                        .param("limit", "2"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().json(mapper.writeValueAsString(lastPage)));
+    }
+
     @Test
     public void shouldFailCreateUnvoiceWithBadData() throws Exception{
         Invoice inInvoiceMV = new Invoice();
@@ -625,4 +719,301 @@ public class InvoiceControllerTest {
                 .andExpect(status().isUnprocessableEntity()); //Expected response status code.
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldAddBatchOfPurchases() throws Exception {
+        Invoice inInvoice = new Invoice();
+        inInvoice.setName("Joe Black");
+        inInvoice.setStreet("123 Main St");
+        inInvoice.setCity("any City");
+        inInvoice.setState("NY");
+        inInvoice.setZipcode("10016");
+        inInvoice.setItemType("T-Shirt");
+        inInvoice.setItemId(12);
+        inInvoice.setUnitPrice(new BigDecimal("12.50"));
+        inInvoice.setQuantity(2);
+
+        Invoice badInvoice = new Invoice();
+        badInvoice.setName("Joe Black");
+        badInvoice.setStreet("123 Main St");
+        badInvoice.setCity("any City");
+        badInvoice.setState("ZZ");
+        badInvoice.setZipcode("10016");
+        badInvoice.setItemType("T-Shirt");
+        badInvoice.setItemId(12);
+        badInvoice.setUnitPrice(new BigDecimal("12.50"));
+        badInvoice.setQuantity(2);
+
+        List<Invoice> inInvoices = new ArrayList<>();
+        inInvoices.add(inInvoice);
+        inInvoices.add(badInvoice);
+
+        Invoice savedInvoice = new Invoice();
+        savedInvoice.setName("Joe Black");
+        savedInvoice.setStreet("123 Main St");
+        savedInvoice.setCity("any City");
+        savedInvoice.setState("NY");
+        savedInvoice.setZipcode("10016");
+        savedInvoice.setItemType("T-Shirt");
+        savedInvoice.setItemId(12);
+        savedInvoice.setUnitPrice(new BigDecimal("12.50"));
+        savedInvoice.setQuantity(2);
+        savedInvoice.setSubtotal(new BigDecimal("25.00"));
+        savedInvoice.setTax(new BigDecimal("1.50"));
+        savedInvoice.setProcessingFee(new BigDecimal("1.98"));
+        savedInvoice.setTotal(new BigDecimal("28.48"));
+        savedInvoice.setId(22);
+
+        List<BatchInvoiceResult> results = new ArrayList<>();
+        results.add(BatchInvoiceResult.created(0, savedInvoice));
+        results.add(BatchInvoiceResult.failed(1, "ZZ: Invalid State code."));
+
+        when(service.createNewInvoices(inInvoices)).thenReturn(results);
+
+        this.mockMvc.perform(post("/invoice/batch")
+                        .content(mapper.writeValueAsString(inInvoices))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().json(mapper.writeValueAsString(results)));
+
+        //empty batch is rejected
+        this.mockMvc.perform(post("/invoice/batch")
+                        .content("[]")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isNotFound());
+    }
+
+    private Invoice savedInvoice(long id) {
+        Invoice savedInvoice = new Invoice();
+        savedInvoice.setName("Joe Black");
+        savedInvoice.setStreet("123 Main St");
+        savedInvoice.setCity("any City");
+        savedInvoice.setState("NY");
+        savedInvoice.setZipcode("10016");
+        savedInvoice.setItemType("T-Shirt");
+        savedInvoice.setItemId(12);
+        savedInvoice.setUnitPrice(new BigDecimal("12.50"));
+        savedInvoice.setQuantity(2);
+        savedInvoice.setSubtotal(new BigDecimal("25.00"));
+        savedInvoice.setTax(new BigDecimal("1.50"));
+        savedInvoice.setProcessingFee(new BigDecimal("1.98"));
+        savedInvoice.setTotal(new BigDecimal("28.48"));
+        savedInvoice.setCreatedAt(LocalDateTime.of(2024, 3, 1, 10, 30));
+        savedInvoice.setId(id);
+        return savedInvoice;
+    }
+
+    private InvoiceLineItem lineItem(String itemType, long itemId, long quantity) {
+        InvoiceLineItem lineItem = new InvoiceLineItem();
+        lineItem.setItemType(itemType);
+        lineItem.setItemId(itemId);
+        lineItem.setQuantity(quantity);
+        return lineItem;
+    }
+
+    @Test
+    public void shouldAddCartPurchase() throws Exception {
+        Invoice inCart = new Invoice();
+        inCart.setName("Joe Black");
+        inCart.setStreet("123 Main St");
+        inCart.setCity("any City");
+        inCart.setState("NY");
+        inCart.setZipcode("10016");
+        inCart.setLineItems(Arrays.asList(lineItem("Console", 3, 1), lineItem("Game", 7, 2),
+                lineItem("T-Shirt", 12, 1)));
+
+        Invoice savedCart = new Invoice();
+        savedCart.setName("Joe Black");
+        savedCart.setStreet("123 Main St");
+        savedCart.setCity("any City");
+        savedCart.setState("NY");
+        savedCart.setZipcode("10016");
+        savedCart.setQuantity(4);
+        savedCart.setSubtotal(new BigDecimal("340.92"));
+        savedCart.setTax(new BigDecimal("20.4552"));
+        savedCart.setProcessingFee(new BigDecimal("14.99"));
+        savedCart.setTotal(new BigDecimal("376.3652"));
+        savedCart.setCreatedAt(LocalDateTime.of(2024, 3, 1, 10, 30));
+        savedCart.setId(30);
+        InvoiceLineItem console = lineItem("Console", 3, 1);
+        console.setUnitPrice(new BigDecimal("299.99"));
+        console.setSubtotal(new BigDecimal("299.99"));
+        InvoiceLineItem game = lineItem("Game", 7, 2);
+        game.setUnitPrice(new BigDecimal("12.99"));
+        game.setSubtotal(new BigDecimal("25.98"));
+        InvoiceLineItem tshirt = lineItem("T-Shirt", 12, 1);
+        tshirt.setUnitPrice(new BigDecimal("14.95"));
+        tshirt.setSubtotal(new BigDecimal("14.95"));
+        savedCart.setLineItems(Arrays.asList(console, game, tshirt));
+
+        when(service.createCartInvoice(argThat(cart -> cart != null && "Joe Black".equals(cart.getName())
+                && cart.getLineItems().size() == 3))).thenReturn(savedCart);
+
+        this.mockMvc.perform(post("/invoice/cart")
+                        .content(mapper.writeValueAsString(inCart))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isCreated())
+                .andExpect(content().json(mapper.writeValueAsString(savedCart)));
+
+        //a cart the service rejects
+        when(service.createCartInvoice(argThat(cart -> cart != null && "Rob Bank".equals(cart.getName()))))
+                .thenThrow(new IllegalArgumentException("A cart needs at least one line item."));
+        inCart.setName("Rob Bank");
+        inCart.setLineItems(null);
+
+        this.mockMvc.perform(post("/invoice/cart")
+                        .content(mapper.writeValueAsString(inCart))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isNotFound());
+
+        //catalog lookups missed their deadline
+        when(service.createCartInvoice(argThat(cart -> cart != null && "Sandy Beach".equals(cart.getName()))))
+                .thenThrow(new CatalogLookupTimeoutException("Catalog lookups did not finish within 3000 ms."));
+        inCart.setName("Sandy Beach");
+
+        this.mockMvc.perform(post("/invoice/cart")
+                        .content(mapper.writeValueAsString(inCart))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isGatewayTimeout());
+
+        //catalog client is failing fast (breaker open or bulkhead full)
+        when(service.createCartInvoice(argThat(cart -> cart != null && "Bill Fold".equals(cart.getName()))))
+                .thenThrow(new CatalogUnavailableException("The catalog is unavailable; try again shortly."));
+        inCart.setName("Bill Fold");
+
+        this.mockMvc.perform(post("/invoice/cart")
+                        .content(mapper.writeValueAsString(inCart))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    public void shouldFindInvoicesPage() throws Exception {
+        KeysetPage<Invoice> page = new KeysetPage<>(Arrays.asList(savedInvoice(21), savedInvoice(22)), 22L);
+
+        when(service.getInvoicePage(argThat(filter -> filter.getAfterId() == 20
+                && filter.getToId() == null
+                && LocalDateTime.of(2024, 3, 1, 0, 0).equals(filter.getFrom())
+                && filter.getTo() == null), eq(2))).thenReturn(page);
+
+        this.mockMvc.perform(get("/invoice")
+                        .param("afterId", "20")
+                        .param("from", "2024-03-01T00:00:00")
+                        .param("limit", "2"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().json(mapper.writeValueAsString(page)));
+
+        //range is checked before the service is called
+        this.mockMvc.perform(get("/invoice")
+                        .param("afterId", "20")
+                        .param("toId", "10")
+                        .param("limit", "2"))
+                .andDo(print())
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void shouldExportInvoices() throws Exception {
+        Invoice invoice1 = savedInvoice(21);
+        Invoice invoice2 = savedInvoice(22);
+        invoice2.setName("Black, Joe");
+        Invoice cart = exportedCart(23);
+
+        doAnswer(invocation -> {
+            Consumer<Invoice> consumer = invocation.getArgument(1);
+            consumer.accept(invoice1);
+            consumer.accept(invoice2);
+            consumer.accept(cart);
+            return null;
+        }).when(service).streamInvoices(any(InvoiceFilter.class), any());
+
+        MvcResult result = this.mockMvc.perform(get("/invoice/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(result))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(mapper.writeValueAsString(invoice1) + "\n"
+                        + mapper.writeValueAsString(invoice2) + "\n"
+                        + mapper.writeValueAsString(cart) + "\n"));
+
+        result = this.mockMvc.perform(get("/invoice/export").param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(result))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(content().string(
+                        "id,name,street,city,state,zipcode,itemType,itemId,unitPrice,quantity,subtotal,tax,processingFee,total,createdAt,lineItemId,lineSubtotal\r\n" +
+                        "21,Joe Black,123 Main St,any City,NY,10016,T-Shirt,12,12.50,2,25.00,1.50,1.98,28.48,2024-03-01T10:30,,\r\n" +
+                        "22,\"Black, Joe\",123 Main St,any City,NY,10016,T-Shirt,12,12.50,2,25.00,1.50,1.98,28.48,2024-03-01T10:30,,\r\n" +
+                        //one row per line item of the cart
+                        "23,Joe Black,123 Main St,any City,NY,10016,Game,7,12.99,2,40.93,2.46,1.98,45.37,2024-03-01T10:30,5,25.98\r\n" +
+                        "23,Joe Black,123 Main St,any City,NY,10016,T-Shirt,12,14.95,1,40.93,2.46,1.98,45.37,2024-03-01T10:30,6,14.95\r\n"));
+
+        this.mockMvc.perform(get("/invoice/export").param("format", "xml"))
+                .andDo(print())
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void shouldStopExportWhenCancelled() throws Exception {
+        List<RuntimeException> stopped = new ArrayList<>();
+
+        doAnswer(invocation -> {
+            Consumer<Invoice> consumer = invocation.getArgument(1);
+            consumer.accept(savedInvoice(21));
+            //what Spring does to the export thread on a timeout or a client disconnect
+            Thread.currentThread().interrupt();
+            try {
+                consumer.accept(savedInvoice(22));
+            } catch (RuntimeException e) {
+                stopped.add(e);
+                throw e;
+            }
+            return null;
+        }).when(service).streamInvoices(any(InvoiceFilter.class), any());
+
+        MvcResult result = this.mockMvc.perform(get("/invoice/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertTrue(result.getAsyncResult() instanceof CancellationException);
+        assertEquals(1, stopped.size());
+        assertEquals(mapper.writeValueAsString(savedInvoice(21)) + "\n", result.getResponse().getContentAsString());
+    }
+
+    private Invoice exportedCart(long id) {
+        Invoice cart = savedInvoice(id);
+        cart.setItemType(null);
+        cart.setItemId(0);
+        cart.setUnitPrice(null);
+        cart.setQuantity(3);
+        cart.setSubtotal(new BigDecimal("40.93"));
+        cart.setTax(new BigDecimal("2.46"));
+        cart.setTotal(new BigDecimal("45.37"));
+        InvoiceLineItem game = lineItem("Game", 7, 2);
+        game.setId(5);
+        game.setInvoiceId(id);
+        game.setUnitPrice(new BigDecimal("12.99"));
+        game.setSubtotal(new BigDecimal("25.98"));
+        InvoiceLineItem tshirt = lineItem("T-Shirt", 12, 1);
+        tshirt.setId(6);
+        tshirt.setInvoiceId(id);
+        tshirt.setUnitPrice(new BigDecimal("14.95"));
+        tshirt.setSubtotal(new BigDecimal("14.95"));
+        cart.setLineItems(Arrays.asList(game, tshirt));
+        return cart;
+    }
+}
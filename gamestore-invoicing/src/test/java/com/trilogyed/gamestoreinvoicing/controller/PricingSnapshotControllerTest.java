@@ -0,0 +1,66 @@
+package com.trilogyed.gamestoreinvoicing.controller;
+
+import com.trilogyed.gamestoreinvoicing.service.PricingSnapshot;
+import com.trilogyed.gamestoreinvoicing.service.PricingSnapshotService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(PricingSnapshotController.class)
+@AutoConfigureMockMvc
+public class PricingSnapshotControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private PricingSnapshotService pricingSnapshotService;
+
+    private PricingSnapshot snapshot(long version) {
+        Map<String, BigDecimal> taxRates = new HashMap<>();
+        taxRates.put("NY", new BigDecimal("0.06"));
+        taxRates.put("MN", new BigDecimal("0.06"));
+        Map<String, BigDecimal> fees = new HashMap<>();
+        fees.put("Game", new BigDecimal("1.49"));
+        return new PricingSnapshot(version, taxRates, fees);
+    }
+
+    @Test
+    public void shouldReturnCurrentSnapshot() throws Exception {
+        when(pricingSnapshotService.getSnapshot()).thenReturn(snapshot(3));
+
+        this.mockMvc.perform(get("/admin/pricing-snapshot"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(3))
+                .andExpect(jsonPath("$.taxRateCount").value(2))
+                .andExpect(jsonPath("$.processingFeeCount").value(1));
+    }
+
+    @Test
+    public void shouldRefreshSnapshot() throws Exception {
+        when(pricingSnapshotService.refresh()).thenReturn(snapshot(4));
+
+        this.mockMvc.perform(post("/admin/pricing-snapshot/refresh"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(4));
+    }
+}
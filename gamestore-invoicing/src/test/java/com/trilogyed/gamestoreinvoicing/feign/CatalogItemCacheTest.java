@@ -0,0 +1,158 @@
+package com.trilogyed.gamestoreinvoicing.feign;
+
+import com.trilogyed.gamestoreinvoicing.model.CatalogItem;
+import com.trilogyed.gamestoreinvoicing.model.Game;
+import feign.FeignException;
+import feign.Request;
+import feign.Response;
+import feign.RetryableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CatalogItemCacheTest {
+
+    private GameStoreCatalog client;
+    private CatalogItemCache cache;
+
+    @Before
+    public void setUp() {
+        client = mock(GameStoreCatalog.class);
+        cache = new CatalogItemCache(client, new SimpleMeterRegistry(), 100, 30, 2, 8, 3000);
+    }
+
+    @After
+    public void tearDown() {
+        cache.shutdown();
+    }
+
+    @Test
+    public void shouldLeaveUnknownIdsOutOfBulkLookup() {
+        when(client.getGamesByIds(List.of(7L))).thenThrow(catalogError(404));
+
+        Map<String, Map<Long, CatalogItem>> found = cache.getAll(Map.of(CatalogItemCache.GAME_ITEM_TYPE, Set.of(7L)));
+
+        assertEquals(Collections.emptyMap(), found.get(CatalogItemCache.GAME_ITEM_TYPE));
+    }
+
+    @Test
+    public void shouldReportFailedBulkLookupAsUnavailable() {
+        when(client.getGamesByIds(List.of(7L))).thenThrow(catalogError(500));
+
+        try {
+            cache.getAll(Map.of(CatalogItemCache.GAME_ITEM_TYPE, Set.of(7L)));
+            fail("Expected CatalogUnavailableException");
+        } catch (CatalogUnavailableException e) {
+            assertTrue(e.getCause() instanceof FeignException.InternalServerError);
+        }
+    }
+
+    @Test
+    public void shouldFailWholeFanOutWhenOneLookupFails() {
+        when(client.getGamesByIds(List.of(7L))).thenReturn(List.of(game(7)));
+        when(client.getConsolesByIds(List.of(3L))).thenThrow(connectionReset());
+
+        try {
+            cache.getAll(Map.of(CatalogItemCache.GAME_ITEM_TYPE, Set.of(7L),
+                    CatalogItemCache.CONSOLE_ITEM_TYPE, Set.of(3L)));
+            fail("Expected CatalogUnavailableException");
+        } catch (CatalogUnavailableException e) {
+            assertTrue(e.getCause() instanceof RetryableException);
+        }
+    }
+
+    @Test
+    public void shouldPassOnFailFastFromCatalogClient() {
+        CatalogUnavailableException failFast =
+                new CatalogUnavailableException("The catalog is unavailable; try again shortly.");
+        when(client.getGamesByIds(List.of(7L))).thenThrow(failFast);
+
+        try {
+            cache.getAll(Map.of(CatalogItemCache.GAME_ITEM_TYPE, Set.of(7L)));
+            fail("Expected CatalogUnavailableException");
+        } catch (CatalogUnavailableException e) {
+            assertSame(failFast, e);
+        }
+    }
+
+    //a bug, not a catalog outage, so it must not be reported as a 503
+    @Test(expected = NullPointerException.class)
+    public void shouldNotReportLookupBugAsUnavailable() {
+        when(client.getGamesByIds(List.of(7L))).thenThrow(new NullPointerException());
+
+        cache.getAll(Map.of(CatalogItemCache.GAME_ITEM_TYPE, Set.of(7L)));
+    }
+
+    @Test
+    public void shouldCacheBulkLookups() {
+        when(client.getGamesByIds(List.of(7L))).thenReturn(List.of(game(7)));
+
+        cache.getAll(Map.of(CatalogItemCache.GAME_ITEM_TYPE, Set.of(7L)));
+        //the second lookup is answered from the cache; the catalog would fail it
+        when(client.getGamesByIds(List.of(7L))).thenThrow(catalogError(500));
+        Map<String, Map<Long, CatalogItem>> found = cache.getAll(Map.of(CatalogItemCache.GAME_ITEM_TYPE, Set.of(7L)));
+
+        assertEquals(game(7), found.get(CatalogItemCache.GAME_ITEM_TYPE).get(7L));
+    }
+
+    @Test
+    public void shouldReturnNullForUnknownItem() {
+        when(client.getGameById(7L)).thenThrow(catalogError(404));
+
+        assertNull(cache.get(CatalogItemCache.GAME_ITEM_TYPE, 7L));
+    }
+
+    @Test
+    public void shouldReportFailedLookupAsUnavailable() {
+        when(client.getGameById(7L)).thenThrow(catalogError(503));
+
+        try {
+            cache.get(CatalogItemCache.GAME_ITEM_TYPE, 7L);
+            fail("Expected CatalogUnavailableException");
+        } catch (CatalogUnavailableException e) {
+            assertTrue(e.getCause() instanceof FeignException.ServiceUnavailable);
+        }
+    }
+
+    static Game game(long id) {
+        Game game = new Game();
+        game.setId(id);
+        game.setTitle("Halo");
+        game.setPrice(new BigDecimal("23.99"));
+        game.setQuantity(5);
+        return game;
+    }
+
+    static RetryableException connectionReset() {
+        Request request = Request.create(Request.HttpMethod.GET, "http://gamestore-catalog/console", Map.of(), null,
+                StandardCharsets.UTF_8, null);
+        return new RetryableException(-1, "Connection reset", Request.HttpMethod.GET, null, request);
+    }
+
+    static FeignException catalogError(int status) {
+        Request request = Request.create(Request.HttpMethod.GET, "http://gamestore-catalog/game", Map.of(), null,
+                StandardCharsets.UTF_8, null);
+        return FeignException.errorStatus("GameStoreCatalog#getGamesByIds(List)", Response.builder()
+                .status(status)
+                .reason("status " + status)
+                .request(request)
+                .headers(Map.of())
+                .build());
+    }
+}
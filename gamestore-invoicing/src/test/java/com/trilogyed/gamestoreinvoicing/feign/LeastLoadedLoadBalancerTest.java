@@ -0,0 +1,149 @@
+package com.trilogyed.gamestoreinvoicing.feign;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Two catalog replicas behind a seeded Random, with the load fed in through the lifecycle callbacks the way
+// FeignBlockingLoadBalancerClient does. A failed call counts as the 10 s failure penalty, so "slow" is exact.
+public class LeastLoadedLoadBalancerTest {
+
+    private final ServiceInstance fast = new DefaultServiceInstance("catalog-1", "gamestore-catalog", "10.0.0.1", 7474,
+            false);
+    private final ServiceInstance slow = new DefaultServiceInstance("catalog-2", "gamestore-catalog", "10.0.0.2", 7474,
+            false);
+
+    private CatalogInstanceStats stats;
+    private List<ServiceInstance> instances;
+    private LeastLoadedLoadBalancer loadBalancer;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        stats = new CatalogInstanceStats(0.2, 10_000);
+        instances = new ArrayList<>(List.of(fast, slow));
+
+        ServiceInstanceListSupplier supplier = mock(ServiceInstanceListSupplier.class);
+        when(supplier.get(any())).thenAnswer(invocation -> Flux.just(new ArrayList<>(instances)));
+        ObjectProvider<ServiceInstanceListSupplier> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable(any())).thenReturn(supplier);
+
+        Random random = new Random(42);
+        loadBalancer = new LeastLoadedLoadBalancer(provider, "gamestore-catalog", stats, () -> random);
+    }
+
+    @Test
+    public void shouldSpreadRequestsWhileNothingIsMeasured() {
+        int fastPicks = 0;
+        for (int i = 0; i < 100; i++) {
+            if (choose() == fast) {
+                fastPicks++;
+            }
+        }
+        //equal cost, so whichever replica was drawn first wins; the seeded draws go both ways
+        assertTrue(fastPicks > 0 && fastPicks < 100);
+    }
+
+    @Test
+    public void shouldPreferFasterReplica() {
+        call(fast, CompletionContext.Status.SUCCESS);
+        call(slow, CompletionContext.Status.FAILED);
+
+        for (int i = 0; i < 100; i++) {
+            assertSame(fast, choose());
+        }
+    }
+
+    @Test
+    public void shouldPreferReplicaWithFewerRequestsInFlight() {
+        Request<RequestDataContext> request = startRequest(fast);
+        assertEquals(1, stats.outstanding(fast));
+
+        for (int i = 0; i < 20; i++) {
+            assertSame(slow, choose());
+        }
+
+        complete(request, fast, CompletionContext.Status.SUCCESS);
+        assertEquals(0, stats.outstanding(fast));
+    }
+
+    @Test
+    public void shouldIgnoreDiscardedRequests() {
+        Request<RequestDataContext> request = startRequest(fast);
+
+        complete(request, fast, CompletionContext.Status.DISCARD);
+
+        assertEquals(1, stats.outstanding(fast));
+        assertEquals(0, stats.latencyNanos(fast), 0);
+    }
+
+    @Test
+    public void shouldForgetReplicaThatLeftDiscovery() {
+        call(fast, CompletionContext.Status.SUCCESS);
+        call(slow, CompletionContext.Status.FAILED);
+        Request<RequestDataContext> inFlight = startRequest(slow);
+
+        instances.remove(slow);
+        assertSame(fast, choose());
+
+        assertEquals(0, stats.latencyNanos(slow), 0);
+        assertEquals(0, stats.outstanding(slow));
+        assertTrue(stats.latencyNanos(fast) > 0);
+
+        //the call that was still running when the replica left doesn't bring it back
+        complete(inFlight, slow, CompletionContext.Status.SUCCESS);
+        assertEquals(0, stats.outstanding(slow));
+        assertEquals(0, stats.latencyNanos(slow), 0);
+    }
+
+    @Test
+    public void shouldAnswerEmptyWhenNoReplicaIsRegistered() {
+        instances.clear();
+
+        assertFalse(loadBalancer.choose(new DefaultRequest<>(new RequestDataContext())).block().hasServer());
+    }
+
+    private ServiceInstance choose() {
+        return loadBalancer.choose(new DefaultRequest<>(new RequestDataContext())).block().getServer();
+    }
+
+    private void call(ServiceInstance instance, CompletionContext.Status status) {
+        complete(startRequest(instance), instance, status);
+    }
+
+    private Request<RequestDataContext> startRequest(ServiceInstance instance) {
+        Request<RequestDataContext> request = new DefaultRequest<>(new RequestDataContext());
+        stats.onStartRequest(request, new DefaultResponse(instance));
+        return request;
+    }
+
+    private void complete(Request<RequestDataContext> request, ServiceInstance instance,
+                          CompletionContext.Status status) {
+        Response<ServiceInstance> lbResponse = new DefaultResponse(instance);
+        stats.onComplete(new CompletionContext<ResponseData, ServiceInstance, RequestDataContext>(status, request,
+                lbResponse));
+    }
+}
@@ -0,0 +1,188 @@
+package com.trilogyed.gamestoreinvoicing.feign;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ResilientCatalogClientTest {
+
+    private static final Request REQUEST = Request.create(Request.HttpMethod.GET, "http://gamestore-catalog/game/7",
+            Map.of(), null, StandardCharsets.UTF_8, null);
+
+    private CircuitBreaker circuitBreaker;
+    private Bulkhead bulkhead;
+    private final AtomicInteger delegateCalls = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        //opens after two calls if either failed
+        circuitBreaker = CircuitBreaker.of("catalog", CircuitBreakerConfig.custom()
+                .slidingWindow(2, 2, CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .failureRateThreshold(50)
+                .waitDurationInOpenState(Duration.ofMinutes(1))
+                .build());
+        bulkhead = Bulkhead.of("catalog", BulkheadConfig.custom()
+                .maxConcurrentCalls(1)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+    }
+
+    @Test
+    public void shouldFailFastWhenBreakerIsOpen() throws IOException {
+        circuitBreaker.transitionToOpenState();
+        Client client = client(answering(200, "{}"));
+
+        try {
+            client.execute(REQUEST, new Request.Options());
+            fail("Expected CatalogUnavailableException");
+        } catch (CatalogUnavailableException e) {
+            assertEquals("The catalog is unavailable; try again shortly.", e.getMessage());
+        }
+        assertEquals(0, delegateCalls.get());
+        //the refused call gave its bulkhead permit back
+        assertEquals(1, bulkhead.getMetrics().getAvailableConcurrentCalls());
+    }
+
+    @Test
+    public void shouldFailFastWhenBulkheadIsFull() throws IOException {
+        Client client = client(answering(200, "{}"));
+        Response inFlight = client.execute(REQUEST, new Request.Options());
+
+        try {
+            client.execute(REQUEST, new Request.Options());
+            fail("Expected CatalogUnavailableException");
+        } catch (CatalogUnavailableException e) {
+            assertEquals("Too many catalog calls in flight; try again shortly.", e.getMessage());
+        }
+        assertEquals(1, delegateCalls.get());
+
+        inFlight.close();
+        client.execute(REQUEST, new Request.Options()).close();
+        assertEquals(2, delegateCalls.get());
+    }
+
+    @Test
+    public void shouldHoldPermitUntilBodyIsRead() throws IOException {
+        Client client = client(answering(200, "{\"id\":7}"));
+
+        Response response = client.execute(REQUEST, new Request.Options());
+        assertEquals(0, bulkhead.getMetrics().getAvailableConcurrentCalls());
+        assertEquals(0, circuitBreaker.getMetrics().getNumberOfBufferedCalls());
+
+        assertEquals("{\"id\":7}", Util.toString(response.body().asReader(StandardCharsets.UTF_8)));
+        response.close();
+
+        assertEquals(1, bulkhead.getMetrics().getAvailableConcurrentCalls());
+        assertEquals(1, circuitBreaker.getMetrics().getNumberOfSuccessfulCalls());
+    }
+
+    @Test
+    public void shouldCountServerErrorsAsFailures() throws IOException {
+        Client client = client(answering(503, "down"));
+
+        for (int i = 0; i < 2; i++) {
+            Response response = client.execute(REQUEST, new Request.Options());
+            assertEquals(503, response.status());
+            response.close();
+        }
+
+        assertEquals(2, circuitBreaker.getMetrics().getNumberOfFailedCalls());
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void shouldNotCountNotFoundAsFailure() throws IOException {
+        Client client = client(answering(404, "no such game"));
+
+        for (int i = 0; i < 2; i++) {
+            client.execute(REQUEST, new Request.Options()).close();
+        }
+
+        assertEquals(2, circuitBreaker.getMetrics().getNumberOfSuccessfulCalls());
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    public void shouldCountBrokenBodyAsFailure() throws IOException {
+        Client client = client((request, options) -> {
+            delegateCalls.incrementAndGet();
+            InputStream broken = new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    throw new IOException("Connection reset");
+                }
+            };
+            return response(200).body(broken, null).build();
+        });
+
+        Response response = client.execute(REQUEST, new Request.Options());
+        try {
+            Util.toByteArray(response.body().asInputStream());
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("Connection reset", e.getMessage());
+        }
+        response.close();
+
+        assertEquals(1, circuitBreaker.getMetrics().getNumberOfFailedCalls());
+        assertEquals(1, bulkhead.getMetrics().getAvailableConcurrentCalls());
+    }
+
+    @Test
+    public void shouldCountConnectionErrorAsFailure() {
+        Client client = client((request, options) -> {
+            delegateCalls.incrementAndGet();
+            throw new IOException("Connection refused");
+        });
+
+        try {
+            client.execute(REQUEST, new Request.Options());
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("refused"));
+        }
+
+        assertEquals(1, circuitBreaker.getMetrics().getNumberOfFailedCalls());
+        assertEquals(1, bulkhead.getMetrics().getAvailableConcurrentCalls());
+    }
+
+    private Client client(Client delegate) {
+        return new ResilientCatalogClient(delegate, circuitBreaker, bulkhead);
+    }
+
+    private Client answering(int status, String body) {
+        return (request, options) -> {
+            delegateCalls.incrementAndGet();
+            return response(status)
+                    .body(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), body.length())
+                    .build();
+        };
+    }
+
+    private static Response.Builder response(int status) {
+        return Response.builder()
+                .status(status)
+                .reason("status " + status)
+                .request(REQUEST)
+                .headers(Map.of());
+    }
+}
@@ -0,0 +1,58 @@
+package com.trilogyed.gamestoreinvoicing.repository;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+
+// Runs against an H2 database of its own per test, with just the two tables the allocator reads.
+public class InvoiceIdAllocatorTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private InvoiceIdAllocator allocator;
+
+    @Before
+    public void setUp() {
+        String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""));
+        jdbcTemplate.execute("create table invoice_id_seq (next_val bigint not null)");
+        jdbcTemplate.execute("create table invoice (invoice_id bigint primary key)");
+
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl(url);
+        properties.setUsername("sa");
+        properties.setPassword("");
+        allocator = new InvoiceIdAllocator(properties, 50);
+    }
+
+    @After
+    public void tearDown() {
+        allocator.destroy();
+    }
+
+    @Test
+    public void shouldStartPastExistingInvoicesWhenSequenceIsBehind() {
+        //what ddl-auto leaves on a database that already has invoices
+        jdbcTemplate.update("insert into invoice_id_seq values (1)");
+        jdbcTemplate.update("insert into invoice values (120)");
+
+        assertEquals(121, allocator.nextId());
+        assertEquals(122, allocator.nextId());
+        assertEquals(171, (long) jdbcTemplate.queryForObject("select next_val from invoice_id_seq", Long.class));
+    }
+
+    @Test
+    public void shouldKeepSequenceThatIsAlreadyAhead() {
+        jdbcTemplate.update("insert into invoice_id_seq values (500)");
+        jdbcTemplate.update("insert into invoice values (120)");
+
+        assertEquals(500, allocator.nextId());
+        assertEquals(550, (long) jdbcTemplate.queryForObject("select next_val from invoice_id_seq", Long.class));
+    }
+}
@@ -0,0 +1,99 @@
+package com.trilogyed.gamestoreinvoicing.repository;
+
+import com.trilogyed.gamestoreinvoicing.InvoicePersistenceConfig;
+import com.trilogyed.gamestoreinvoicing.model.Invoice;
+import com.trilogyed.gamestoreinvoicing.model.InvoiceLineItem;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import({InvoiceListingRepository.class, InvoiceIdAllocator.class, InvoicePersistenceConfig.class})
+public class InvoiceListingRepositoryTest {
+
+    @Autowired
+    InvoiceListingRepository listingRepo;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setUp() {
+        insertInvoice(1, "Game", 7, 2);
+        //a cart invoice; its items are only in invoice_line_item
+        insertInvoice(2, null, 0, 3);
+        insertLineItem(2, "Game", 7, 2);
+        insertLineItem(2, "T-Shirt", 12, 1);
+        insertInvoice(3, "Console", 3, 1);
+    }
+
+    @Test
+    public void shouldStreamCartInvoicesWithTheirLineItems() {
+        List<Invoice> streamed = new ArrayList<>();
+        listingRepo.stream(new InvoiceFilter(), streamed::add);
+
+        assertEquals(3, streamed.size());
+        assertEquals(1, streamed.get(0).getId());
+        assertNull(streamed.get(0).getLineItems());
+
+        Invoice cart = streamed.get(1);
+        assertEquals(2, cart.getId());
+        assertEquals(2, cart.getLineItems().size());
+        InvoiceLineItem tshirt = cart.getLineItems().get(1);
+        assertEquals(2, tshirt.getInvoiceId());
+        assertEquals("T-Shirt", tshirt.getItemType());
+        assertEquals(12, tshirt.getItemId());
+        assertEquals(1, tshirt.getQuantity());
+        assertEquals(0, new BigDecimal("14.95").compareTo(tshirt.getUnitPrice()));
+
+        assertEquals(3, streamed.get(2).getId());
+        assertNull(streamed.get(2).getLineItems());
+    }
+
+    @Test
+    public void shouldStreamOnlyInvoicesAfterTheCursor() {
+        List<Invoice> streamed = new ArrayList<>();
+        listingRepo.stream(new InvoiceFilter(1, 2L, null, null), streamed::add);
+
+        assertEquals(1, streamed.size());
+        assertEquals(2, streamed.get(0).getLineItems().size());
+    }
+
+    @Test
+    public void shouldAttachLineItemsToCartInvoicesInAPage() {
+        List<Invoice> page = listingRepo.findPage(new InvoiceFilter(), 10);
+
+        assertEquals(3, page.size());
+        assertNull(page.get(0).getLineItems());
+        assertEquals(2, page.get(1).getLineItems().size());
+        assertEquals("Game", page.get(1).getLineItems().get(0).getItemType());
+        assertEquals("T-Shirt", page.get(1).getLineItems().get(1).getItemType());
+        assertNull(page.get(2).getLineItems());
+    }
+
+    private void insertInvoice(long id, String itemType, long itemId, long quantity) {
+        jdbcTemplate.update("insert into invoice (invoice_id, name, street, city, state, zipcode, item_type, " +
+                        "item_id, unit_price, quantity, subtotal, tax, processing_fee, total, created_at, version) " +
+                        "values (?, 'Joe Black', '123 Main St', 'any City', 'NY', '10016', ?, ?, ?, ?, 25.00, 1.50, " +
+                        "1.98, 28.48, current_timestamp, 0)",
+                id, itemType, itemId, itemType == null ? null : new BigDecimal("12.50"), quantity);
+    }
+
+    private void insertLineItem(long invoiceId, String itemType, long itemId, long quantity) {
+        jdbcTemplate.update("insert into invoice_line_item (invoice_id, item_type, item_id, unit_price, quantity, " +
+                "subtotal) values (?, ?, ?, 14.95, ?, 14.95)", invoiceId, itemType, itemId, quantity);
+    }
+}
@@ -0,0 +1,188 @@
+package com.trilogyed.gamestoreinvoicing.service;
+
+import com.trilogyed.gamestoreinvoicing.feign.CatalogItemCache;
+import com.trilogyed.gamestoreinvoicing.feign.CatalogUnavailableException;
+import com.trilogyed.gamestoreinvoicing.feign.GameStoreCatalog;
+import com.trilogyed.gamestoreinvoicing.model.CatalogItem;
+import com.trilogyed.gamestoreinvoicing.model.Console;
+import com.trilogyed.gamestoreinvoicing.model.Game;
+import com.trilogyed.gamestoreinvoicing.model.Invoice;
+import com.trilogyed.gamestoreinvoicing.model.InvoiceLineItem;
+import com.trilogyed.gamestoreinvoicing.repository.InvoiceBatchRepository;
+import com.trilogyed.gamestoreinvoicing.repository.InvoiceRepository;
+import feign.FeignException;
+import feign.Request;
+import feign.RetryableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.validation.Validation;
+import java.math.BigDecimal;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Stock reservations against a mocked catalog client, for the failures that leave it unclear whether the catalog
+// took the stock, and the end-to-end timer for requests that fail part way.
+public class GameStoreInvoicingServiceLayerTest {
+
+    private GameStoreCatalog client;
+    private InvoiceRepository invoiceRepo;
+    private InvoiceBatchRepository invoiceBatchRepo;
+    private CatalogItemCache cache;
+    private SimpleMeterRegistry registry;
+    private GameStoreInvoicingServiceLayer service;
+
+    @Before
+    public void setUp() {
+        client = mock(GameStoreCatalog.class);
+        invoiceRepo = mock(InvoiceRepository.class);
+        invoiceBatchRepo = mock(InvoiceBatchRepository.class);
+        registry = new SimpleMeterRegistry();
+
+        Game game = new Game();
+        game.setId(7);
+        game.setPrice(new BigDecimal("23.99"));
+        game.setQuantity(5);
+        Console console = new Console();
+        console.setId(3);
+        console.setPrice(new BigDecimal("299.99"));
+        console.setQuantity(5);
+        cache = mock(CatalogItemCache.class);
+        when(cache.get("Game", 7)).thenReturn(game);
+        when(cache.getAll(any())).thenReturn(Map.<String, Map<Long, CatalogItem>>of(
+                "Game", Map.of(7L, game), "Console", Map.of(3L, console)));
+
+        PricingSnapshotService pricing = mock(PricingSnapshotService.class);
+        when(pricing.getSnapshot()).thenReturn(new PricingSnapshot(1, Map.of("NY", new BigDecimal("0.06")),
+                Map.of("Game", new BigDecimal("1.49"), "Console", new BigDecimal("14.99"))));
+
+        service = new GameStoreInvoicingServiceLayer(client, cache, invoiceRepo, invoiceBatchRepo, null, pricing,
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new InvoiceMetrics(registry), mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    public void shouldReleaseReservationWhoseReserveTimedOut() {
+        doThrow(readTimedOut()).when(client).reserveGame(eq(7L), eq(2L), anyString());
+
+        try {
+            service.createNewInvoice(invoice());
+            fail("Expected CatalogUnavailableException");
+        } catch (CatalogUnavailableException e) {
+            assertTrue(e.getCause() instanceof RetryableException);
+        }
+
+        //the catalog may have taken the stock before the answer was lost, so the same reservation is given back
+        ArgumentCaptor<String> reserved = ArgumentCaptor.forClass(String.class);
+        verify(client).reserveGame(eq(7L), eq(2L), reserved.capture());
+        verify(client).releaseGame(7L, reserved.getValue());
+        verify(invoiceRepo, never()).save(any());
+    }
+
+    @Test
+    public void shouldReleaseEveryCartReservationWhenOneTimesOut() {
+        doThrow(readTimedOut()).when(client).reserveConsole(eq(3L), eq(1L), anyString());
+
+        try {
+            service.createCartInvoice(cart());
+            fail("Expected CatalogUnavailableException");
+        } catch (CatalogUnavailableException e) {
+            assertTrue(e.getMessage().contains("Console 3"));
+        }
+
+        ArgumentCaptor<String> gameReservation = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> consoleReservation = ArgumentCaptor.forClass(String.class);
+        verify(client).reserveGame(eq(7L), eq(2L), gameReservation.capture());
+        verify(client).reserveConsole(eq(3L), eq(1L), consoleReservation.capture());
+        verify(client).releaseGame(7L, gameReservation.getValue());
+        verify(client).releaseConsole(3L, consoleReservation.getValue());
+        verify(invoiceBatchRepo, never()).insertCart(any());
+    }
+
+    @Test
+    public void shouldNotReleaseStockThatWasShort() {
+        doThrow(new FeignException.Conflict("short", request(), null, null))
+                .when(client).reserveGame(eq(7L), eq(2L), anyString());
+
+        try {
+            service.createNewInvoice(invoice());
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Requested quantity is unavailable.", e.getMessage());
+        }
+        verify(client, never()).releaseGame(eq(7L), anyString());
+    }
+
+    @Test
+    public void shouldTimeBatchWhoseCatalogLookupFailed() {
+        when(cache.getAll(any())).thenThrow(new CatalogUnavailableException("Catalog is down"));
+
+        try {
+            service.createNewInvoices(List.of(invoice()));
+            fail("Expected CatalogUnavailableException");
+        } catch (CatalogUnavailableException e) {
+            assertEquals("Catalog is down", e.getMessage());
+        }
+        assertEquals(1, registry.get("gamestore.invoice.created").tag("operation", InvoiceMetrics.BATCH).timer()
+                .count());
+    }
+
+    private static RetryableException readTimedOut() {
+        return new RetryableException(-1, "Read timed out", Request.HttpMethod.POST,
+                new SocketTimeoutException("Read timed out"), null, request());
+    }
+
+    private static Request request() {
+        return Request.create(Request.HttpMethod.POST, "http://gamestore-catalog/game/7/reserve", Map.of(), null,
+                StandardCharsets.UTF_8, null);
+    }
+
+    private static Invoice invoice() {
+        Invoice invoice = customer();
+        invoice.setItemType("Game");
+        invoice.setItemId(7);
+        invoice.setQuantity(2);
+        return invoice;
+    }
+
+    private static Invoice cart() {
+        Invoice invoice = customer();
+        invoice.setLineItems(List.of(lineItem("Game", 7, 2), lineItem("Console", 3, 1)));
+        return invoice;
+    }
+
+    private static Invoice customer() {
+        Invoice invoice = new Invoice();
+        invoice.setName("Joe Black");
+        invoice.setStreet("123 Main St");
+        invoice.setCity("any City");
+        invoice.setState("NY");
+        invoice.setZipcode("10016");
+        return invoice;
+    }
+
+    private static InvoiceLineItem lineItem(String itemType, long itemId, long quantity) {
+        InvoiceLineItem lineItem = new InvoiceLineItem();
+        lineItem.setItemType(itemType);
+        lineItem.setItemId(itemId);
+        lineItem.setQuantity(quantity);
+        return lineItem;
+    }
+}
@@ -0,0 +1,239 @@
+package com.trilogyed.gamestoreinvoicing.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trilogyed.gamestoreinvoicing.InvoicePersistenceConfig;
+import com.trilogyed.gamestoreinvoicing.model.Invoice;
+import com.trilogyed.gamestoreinvoicing.repository.IdempotencyKeyRepository;
+import com.trilogyed.gamestoreinvoicing.repository.InvoiceIdAllocator;
+import com.trilogyed.gamestoreinvoicing.repository.InvoiceRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.security.MessageDigest;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.when;
+
+// Runs against H2 without a test transaction, so every claim and every invoice insert commits the way it does behind
+// the controller. create() inserts the invoice and runs the key's callback in one transaction, like
+// GameStoreInvoicingServiceLayer does.
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import({IdempotencyKeyRepository.class, InvoicePersistenceConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class IdempotencyKeyServiceTest {
+
+    @Autowired
+    IdempotencyKeyRepository keyRepo;
+
+    @Autowired
+    InvoiceRepository invoiceRepo;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    //the tests share one database, so ids go on counting across them
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    //ids from memory; the real allocator opens its own pool against the configured MySQL url
+    @MockBean
+    InvoiceIdAllocator idAllocator;
+
+    private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+    private IdempotencyKeyService service;
+    private final AtomicInteger creates = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        when(idAllocator.nextId()).thenAnswer(invocation -> NEXT_ID.incrementAndGet());
+        service = new IdempotencyKeyService(keyRepo, invoiceRepo, mapper, 24, 60);
+    }
+
+    @Test
+    public void shouldReplayInvoiceForRetry() {
+        Invoice first = service.createOnce("replay-1", request("Replay"), create(request("Replay")));
+        Invoice retry = service.createOnce("replay-1", request("Replay"), create(request("Replay")));
+
+        assertEquals(first.getId(), retry.getId());
+        assertEquals(1, creates.get());
+        assertEquals(1, invoicesNamed("Replay"));
+    }
+
+    @Test
+    public void shouldRejectKeyReusedForDifferentRequest() {
+        service.createOnce("mismatch-1", request("Mismatch"), create(request("Mismatch")));
+
+        Invoice other = request("Mismatch");
+        other.setQuantity(3);
+        try {
+            service.createOnce("mismatch-1", other, create(other));
+            fail("Expected IdempotencyKeyConflictException");
+        } catch (IdempotencyKeyConflictException e) {
+            assertTrue(e.getMessage().contains("different request"));
+        }
+        assertEquals(1, creates.get());
+    }
+
+    @Test
+    public void shouldCreateOnceForConcurrentRequests() throws Exception {
+        CountDownLatch inCreate = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<Invoice> first = CompletableFuture.supplyAsync(() ->
+                service.createOnce("concurrent-1", request("Concurrent"),
+                        blockingCreate(request("Concurrent"), inCreate, finish)));
+        assertTrue(inCreate.await(5, TimeUnit.SECONDS));
+
+        //the first request holds the key, so the duplicate is turned away instead of buying again
+        try {
+            service.createOnce("concurrent-1", request("Concurrent"), create(request("Concurrent")));
+            fail("Expected IdempotencyKeyConflictException");
+        } catch (IdempotencyKeyConflictException e) {
+            assertTrue(e.getMessage().contains("still being processed"));
+        }
+
+        finish.countDown();
+        Invoice created = first.get(5, TimeUnit.SECONDS);
+        Invoice retry = service.createOnce("concurrent-1", request("Concurrent"), create(request("Concurrent")));
+
+        assertEquals(created.getId(), retry.getId());
+        assertEquals(1, creates.get());
+        assertEquals(1, invoicesNamed("Concurrent"));
+    }
+
+    @Test
+    public void shouldFreeKeyWhenCreateFails() {
+        try {
+            service.createOnce("failed-1", request("Failed"), onSaved -> {
+                throw new IllegalArgumentException("Out of stock");
+            });
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Out of stock", e.getMessage());
+        }
+
+        service.createOnce("failed-1", request("Failed"), create(request("Failed")));
+        assertEquals(1, invoicesNamed("Failed"));
+    }
+
+    @Test
+    public void shouldTakeOverAbandonedClaim() throws Exception {
+        //a claim whose instance died before creating the invoice
+        keyRepo.claim("abandoned-1", hash(request("Abandoned")), LocalDateTime.now().minusMinutes(5).withNano(0));
+
+        Invoice created = service.createOnce("abandoned-1", request("Abandoned"), create(request("Abandoned")));
+
+        assertEquals(created.getId(), (long) keyRepo.find("abandoned-1").getInvoiceId());
+        assertEquals(1, invoicesNamed("Abandoned"));
+    }
+
+    @Test
+    public void shouldNotSaveInvoiceOfRequestThatWasTakenOver() throws Exception {
+        CountDownLatch inCreate = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<Invoice> slow = CompletableFuture.supplyAsync(() ->
+                service.createOnce("taken-over-1", request("TakenOver"),
+                        blockingCreate(request("TakenOver"), inCreate, finish)));
+        assertTrue(inCreate.await(5, TimeUnit.SECONDS));
+
+        //the slow request outlives the in-progress timeout, and a retry takes its claim over
+        jdbcTemplate.update("update invoice_idempotency_key set created_at = ? where idempotency_key = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusMinutes(5).withNano(0)), "taken-over-1");
+        Invoice retry = service.createOnce("taken-over-1", request("TakenOver"), create(request("TakenOver")));
+
+        finish.countDown();
+        try {
+            slow.get(5, TimeUnit.SECONDS);
+            fail("Expected IdempotencyKeyConflictException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IdempotencyKeyConflictException);
+        }
+        //its invoice was rolled back with the failed completion
+        assertEquals(1, invoicesNamed("TakenOver"));
+        assertEquals(retry.getId(), (long) keyRepo.find("taken-over-1").getInvoiceId());
+    }
+
+    @Test(expected = InvalidIdempotencyKeyException.class)
+    public void shouldRejectOverlongKey() {
+        service.createOnce("k".repeat(65), request("Overlong"), create(request("Overlong")));
+    }
+
+    private Function<Consumer<Invoice>, Invoice> create(Invoice invoice) {
+        return onSaved -> {
+            creates.incrementAndGet();
+            invoice.setCreatedAt(LocalDateTime.now());
+            return new TransactionTemplate(transactionManager).execute(status -> {
+                Invoice saved = invoiceRepo.save(invoice);
+                onSaved.accept(saved);
+                return saved;
+            });
+        };
+    }
+
+    // Like create(), but signals inCreate and waits for finish before saving.
+    private Function<Consumer<Invoice>, Invoice> blockingCreate(Invoice invoice, CountDownLatch inCreate,
+                                                               CountDownLatch finish) {
+        Function<Consumer<Invoice>, Invoice> create = create(invoice);
+        return onSaved -> {
+            inCreate.countDown();
+            try {
+                finish.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return create.apply(onSaved);
+        };
+    }
+
+    private int invoicesNamed(String name) {
+        return invoiceRepo.findByName(name).size();
+    }
+
+    private byte[] hash(Invoice request) throws Exception {
+        return MessageDigest.getInstance("SHA-256").digest(mapper.writeValueAsBytes(request));
+    }
+
+    private static Invoice request(String name) {
+        Invoice invoice = new Invoice();
+        invoice.setName(name);
+        invoice.setStreet("123 Main St");
+        invoice.setCity("Albany");
+        invoice.setState("NY");
+        invoice.setZipcode("12205");
+        invoice.setItemType("Game");
+        invoice.setItemId(7);
+        invoice.setUnitPrice(new BigDecimal("23.99"));
+        invoice.setQuantity(2);
+        invoice.setSubtotal(new BigDecimal("47.98"));
+        invoice.setTax(new BigDecimal("2.88"));
+        invoice.setProcessingFee(new BigDecimal("1.49"));
+        invoice.setTotal(new BigDecimal("52.35"));
+        return invoice;
+    }
+}
@@ -0,0 +1,105 @@
+package com.trilogyed.gamestoreinvoicing.service;
+
+import com.trilogyed.gamestoreinvoicing.feign.CatalogItemCache;
+import com.trilogyed.gamestoreinvoicing.feign.GameStoreCatalog;
+import com.trilogyed.gamestoreinvoicing.model.Game;
+import com.trilogyed.gamestoreinvoicing.model.Invoice;
+import com.trilogyed.gamestoreinvoicing.repository.InvoiceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class InvoiceMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private GameStoreCatalog client;
+    private InvoiceRepository invoiceRepo;
+    private GameStoreInvoicingServiceLayer service;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        client = mock(GameStoreCatalog.class);
+        invoiceRepo = mock(InvoiceRepository.class);
+        when(invoiceRepo.save(any(Invoice.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        CatalogItemCache cache = mock(CatalogItemCache.class);
+        Game game = new Game();
+        game.setId(7);
+        game.setPrice(new BigDecimal("23.99"));
+        game.setQuantity(5);
+        when(cache.get("Game", 7)).thenReturn(game);
+
+        PricingSnapshotService pricing = mock(PricingSnapshotService.class);
+        when(pricing.getSnapshot()).thenReturn(new PricingSnapshot(1,
+                Map.of("NY", new BigDecimal("0.06")), Map.of("Game", new BigDecimal("1.49"))));
+
+        service = new GameStoreInvoicingServiceLayer(client, cache, invoiceRepo, null, null, pricing, null,
+                new InvoiceMetrics(meterRegistry), mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    public void shouldCountRejectionByReason() {
+        Invoice invoice = invoice();
+        invoice.setState("ZZ");
+
+        try {
+            service.createNewInvoice(invoice);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals("ZZ: Invalid State code.", e.getMessage());
+        }
+
+        assertEquals(1, rejected(InvoiceMetrics.UNKNOWN_STATE), 0);
+        assertEquals(0, rejected(InvoiceMetrics.OVER_LIMIT), 0);
+        //rejected before any stock was taken, but still timed end to end
+        verify(client, never()).reserveGame(anyLong(), anyLong(), anyString());
+        assertEquals(0, meterRegistry.get("gamestore.invoice.stage")
+                .tags("operation", InvoiceMetrics.SINGLE, "stage", InvoiceMetrics.STOCK_RESERVATION).timer().count());
+        assertEquals(1, meterRegistry.get("gamestore.invoice.created")
+                .tag("operation", InvoiceMetrics.SINGLE).timer().count());
+    }
+
+    @Test
+    public void shouldTimeEachIoStageOfCreatedInvoice() {
+        service.createNewInvoice(invoice());
+
+        for (String stage : new String[]{InvoiceMetrics.CATALOG_LOOKUP, InvoiceMetrics.STOCK_RESERVATION,
+                InvoiceMetrics.PERSISTENCE}) {
+            assertEquals(stage, 1, meterRegistry.get("gamestore.invoice.stage")
+                    .tags("operation", InvoiceMetrics.SINGLE, "stage", stage).timer().count());
+        }
+        assertEquals(0, rejected(InvoiceMetrics.UNKNOWN_STATE), 0);
+    }
+
+    private double rejected(String reason) {
+        return meterRegistry.get("gamestore.invoice.rejected").tag("reason", reason).counter().count();
+    }
+
+    private static Invoice invoice() {
+        Invoice invoice = new Invoice();
+        invoice.setName("Joe Black");
+        invoice.setStreet("123 Main St");
+        invoice.setCity("any City");
+        invoice.setState("NY");
+        invoice.setZipcode("10016");
+        invoice.setItemType("Game");
+        invoice.setItemId(7);
+        invoice.setQuantity(2);
+        return invoice;
+    }
+}